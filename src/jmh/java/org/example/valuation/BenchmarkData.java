@@ -0,0 +1,120 @@
+package org.example.valuation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates benchmark inputs at any scale. The same seed always yields the same data, so runs can be compared.
+ */
+final class BenchmarkData {
+    static final long SEED = 20240101L;
+    private static final String LETTERS = "ABCDEFGHJKLMNOPRSTUVWXY";
+    private static final String[] MAKES = {"BMW", "SKODA", "FORD", "VAUXHALL", "TOYOTA"};
+    private static final String[] MODELS = {"120D M SPORT", "SUPERB SPORTLINE TDI S-A", "FIESTA ZETEC", "CORSA SXI", "YARIS ICON"};
+
+    private BenchmarkData() {}
+
+    /**
+     * Writes an input file in the style of the car input files, holding about the given number of plates:
+     * current-format plates with and without their space, older formats and plain words and numbers.
+     *
+     * @param file   the file to write
+     * @param plates the number of plates
+     * @throws IOException if the file cannot be written
+     */
+    static void writeInputFile(Path file, int plates) throws IOException {
+        SplittableRandom random = new SplittableRandom(SEED);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < plates; i += 2) {
+                writer.write("Car " + i + " with registration " + currentPlate(random)
+                        + " was valued at £" + random.nextInt(50_000) + ", see also " + otherPlate(random));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns the lines of an output file with a header and the given number of rows, two thirds of them recognised.
+     *
+     * @param rows the number of rows
+     * @return the lines
+     */
+    static List<String> outputLines(int rows) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<String> lines = new ArrayList<>(rows + 1);
+        lines.add("VARIANT_REG,MAKE,MODEL,YEAR");
+        for (int i = 0; i < rows; i++) {
+            lines.add(outputResult(random, i).toRow());
+        }
+        return lines;
+    }
+
+    /**
+     * Returns lookup results like those the tests write, two thirds of them recognised.
+     *
+     * @param rows the number of results
+     * @return the results
+     */
+    static List<LookupResult> lookupResults(int rows) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<LookupResult> results = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            results.add(outputResult(random, i));
+        }
+        return results;
+    }
+
+    /**
+     * Returns a car report page like the one the site serves.
+     *
+     * @return the page HTML
+     */
+    static String reportHtml() {
+        StringBuilder html = new StringBuilder("<html><head><title>Car report</title></head><body>"
+                + "<nav><ul><li><a href=\"/\">Home</a></li><li><a href=\"/report\">Report</a></li></ul></nav>"
+                + "<form><input id=\"subForm\" type=\"text\" value=\"AD58VNF\"></form>"
+                + "<table class=\"table\"><tr><td>Make</td><td>BMW</td></tr>"
+                + "<tr><td>Model</td><td>120D M SPORT</td></tr>"
+                + "<tr><td>Year of manufacture</td><td>2008</td></tr>");
+        for (int i = 0; i < 40; i++) {
+            html.append("<tr><td class=\"label\">Detail ").append(i).append("</td><td><span>Value &amp; more ")
+                    .append(i).append("</span></td></tr>");
+        }
+        return html.append("</table><footer>&copy; car-checking.com</footer></body></html>").toString();
+    }
+
+    private static LookupResult outputResult(SplittableRandom random, int index) {
+        String registration = currentPlate(random).replace(" ", "") + index;
+        if (random.nextInt(3) == 0) {
+            return LookupResult.notRecognised(registration, LookupResult.NOT_RECOGNISED_MESSAGE);
+        }
+        int car = random.nextInt(MAKES.length);
+        return LookupResult.found(registration, MAKES[car], MODELS[car], Integer.toString(2001 + random.nextInt(23)));
+    }
+
+    private static String currentPlate(SplittableRandom random) {
+        return "" + letter(random) + letter(random) + random.nextInt(10) + random.nextInt(10) + " "
+                + letter(random) + letter(random) + letter(random);
+    }
+
+    private static String otherPlate(SplittableRandom random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return currentPlate(random).replace(" ", "");
+            case 1:
+                return "" + letter(random) + (1 + random.nextInt(999)) + " " + letter(random) + letter(random) + letter(random);
+            default:
+                return "" + letter(random) + letter(random) + letter(random) + " " + (1 + random.nextInt(999)) + letter(random);
+        }
+    }
+
+    private static char letter(SplittableRandom random) {
+        return LETTERS.charAt(random.nextInt(LETTERS.length()));
+    }
+}
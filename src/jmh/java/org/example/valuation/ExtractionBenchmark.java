@@ -0,0 +1,119 @@
+package org.example.valuation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares registration extraction approaches on the same generated input: the original pair of regular expressions,
+ * the tokenizer on its own, and the streaming and parallel extractors writing the cleaned test data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractionBenchmark {
+    private static final Pattern LEGACY_VALID_PATTERN = Pattern.compile("\\b[A-Z]{2}[0-9]{2} [A-Z]{3}\\b");
+    private static final Pattern LEGACY_INVALID_PATTERN = Pattern.compile("\\b(?![A-Z]{2}[0-9]{2} [A-Z]{3}\\b)[A-Z0-9]{1,7}\\b");
+
+    @Param({"1000", "100000", "1000000"})
+    public int plates;
+
+    private Path inputDir;
+    private Path outputFile;
+    private List<String> lines;
+
+    /**
+     * Generates the input file.
+     *
+     * @throws IOException if the input cannot be written
+     */
+    @Setup(Level.Trial)
+    public void generateInput() throws IOException {
+        inputDir = Files.createTempDirectory("extraction-benchmark");
+        Path inputFile = inputDir.resolve("car_input - benchmark.txt");
+        BenchmarkData.writeInputFile(inputFile, plates);
+        outputFile = inputDir.resolve("cleaned_test_data.txt");
+        lines = Files.readAllLines(inputFile, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes the input and output files.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteInput() throws IOException {
+        Files.deleteIfExists(outputFile);
+        Files.deleteIfExists(inputDir.resolve("car_input - benchmark.txt"));
+        Files.deleteIfExists(inputDir);
+    }
+
+    /**
+     * Matches the input lines with the original valid and invalid regular expressions, one pass each.
+     *
+     * @param blackhole consumes the matches
+     */
+    @Benchmark
+    public void legacyRegex(Blackhole blackhole) {
+        for (Pattern pattern : new Pattern[] {LEGACY_VALID_PATTERN, LEGACY_INVALID_PATTERN}) {
+            for (String line : lines) {
+                Matcher matcher = pattern.matcher(line);
+                while (matcher.find()) {
+                    blackhole.consume(matcher.group());
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the input lines with the tokenizer in one pass.
+     *
+     * @param blackhole consumes the registration numbers
+     */
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) {
+        for (String line : lines) {
+            VehicleRegistrationExtractor.scan(line, blackhole::consume, blackhole::consume);
+        }
+    }
+
+    /**
+     * Extracts the cleaned test data from the input file with the streaming extractor.
+     */
+    @Benchmark
+    public void streamingExtraction() {
+        VehicleRegistrationExtractor.extractAndWriteRegistrationNumbers(inputDir, outputFile);
+    }
+
+    /**
+     * Extracts the cleaned test data from the input file with the parallel extractor on every processor.
+     */
+    @Benchmark
+    public void parallelExtraction() {
+        ParallelRegistrationExtractor.extractAndWriteRegistrationNumbers(inputDir, outputFile,
+                Runtime.getRuntime().availableProcessors(), 4 * 1024 * 1024);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.valuation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original line-by-line output comparison with the keyed comparison, on an expected output and
+ * an actual output holding the same rows in a different order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutputComparisonBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path workDir;
+    private Path expectedFile;
+    private Path actualFile;
+    private Path diffFile;
+
+    /**
+     * Generates the expected output and a shuffled copy of it as the actual output.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Setup(Level.Trial)
+    public void generateOutputs() throws IOException {
+        workDir = Files.createTempDirectory("output-comparison-benchmark");
+        List<String> lines = BenchmarkData.outputLines(rows);
+        expectedFile = Files.write(workDir.resolve("expected.txt"), lines, StandardCharsets.UTF_8);
+        List<String> shuffled = lines.subList(1, lines.size());
+        Collections.shuffle(shuffled, new Random(BenchmarkData.SEED));
+        actualFile = Files.write(workDir.resolve("actual.txt"), lines, StandardCharsets.UTF_8);
+        diffFile = workDir.resolve("diff.jsonl");
+    }
+
+    /**
+     * Deletes the generated files.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteOutputs() throws IOException {
+        Files.deleteIfExists(expectedFile);
+        Files.deleteIfExists(actualFile);
+        Files.deleteIfExists(diffFile);
+        Files.deleteIfExists(workDir);
+    }
+
+    /**
+     * Reads both files into memory and compares them line by line and field by field, as the tests originally did.
+     * The actual output is sorted first, since the line-by-line comparison only works on rows in the same order.
+     *
+     * @return the number of differing lines
+     * @throws IOException if a file cannot be read
+     */
+    @Benchmark
+    public int lineByLine() throws IOException {
+        List<String> expected = Files.readAllLines(expectedFile);
+        List<String> actual = Files.readAllLines(actualFile);
+        Collections.sort(expected.subList(1, expected.size()));
+        Collections.sort(actual.subList(1, actual.size()));
+        int differences = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            String[] expectedFields = expected.get(i).split(",");
+            String[] actualFields = actual.get(i).split(",");
+            for (int j = 0; j < expectedFields.length; j++) {
+                if (j >= actualFields.length || !expectedFields[j].equals(actualFields[j])) {
+                    differences++;
+                    break;
+                }
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * Compares both files keyed on VARIANT_REG, with partitions sized like the tests use.
+     *
+     * @return the comparison summary
+     * @throws IOException if a file cannot be read or the diff cannot be written
+     */
+    @Benchmark
+    public OutputComparator.Summary keyed() throws IOException {
+        return new OutputComparator(diffFile, 64L * 1024 * 1024).compare(expectedFile, actualFile);
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.valuation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original way of writing output rows, opening the output file for every row, with the result sink
+ * the tests use now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutputWritingBenchmark {
+    private static final String HEADER = "VARIANT_REG,MAKE,MODEL,YEAR";
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private List<LookupResult> results;
+    private Path outputFile;
+
+    /**
+     * Generates the lookup results to write.
+     *
+     * @throws IOException if the output file cannot be created
+     */
+    @Setup(Level.Trial)
+    public void generateResults() throws IOException {
+        results = BenchmarkData.lookupResults(rows);
+        outputFile = Files.createTempFile("output-writing-benchmark", ".txt");
+    }
+
+    /**
+     * Deletes the output file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteOutput() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+
+    /**
+     * Appends each row by opening the output file, formatting the row and closing the file again.
+     *
+     * @throws IOException if the output cannot be written
+     */
+    @Benchmark
+    public void openPerRow() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile.toFile()))) {
+            writer.write(HEADER + "\n");
+        }
+        for (LookupResult result : results) {
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile.toFile(), true))) {
+                writer.write(String.format("%s%n", result.toRow()));
+            }
+        }
+    }
+
+    /**
+     * Submits every row to a result sink configured like the tests and waits for it to write them all.
+     *
+     * @throws IOException if the output cannot be written
+     */
+    @Benchmark
+    public void resultSink() throws IOException {
+        try (ResultSink sink = new ResultSink(outputFile, HEADER, 1024, 64, Duration.ofMillis(200))) {
+            long sequence = 0;
+            for (LookupResult result : results) {
+                sink.submit(sequence++, result.toRow());
+            }
+        }
+    }
+}
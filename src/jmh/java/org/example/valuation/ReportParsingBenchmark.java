@@ -0,0 +1,58 @@
+package org.example.valuation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a car report page, as the HTTP engine and the page-source fallback do for every lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportParsingBenchmark {
+
+    private final String html = BenchmarkData.reportHtml();
+
+    /**
+     * Parses every label/value pair of the report.
+     *
+     * @return the report fields
+     */
+    @Benchmark
+    public Map<String, String> parseReportFields() {
+        return ReportHtmlParser.parseReportFields(html);
+    }
+
+    /**
+     * Parses the whole report: the registration number and every field.
+     *
+     * @return the report
+     */
+    @Benchmark
+    public VehicleReport vehicleReportFromHtml() {
+        return VehicleReport.fromHtml(html);
+    }
+
+    /**
+     * Looks for the error alert, which a report page does not have.
+     *
+     * @return null
+     */
+    @Benchmark
+    public String parseErrorMessage() {
+        return ReportHtmlParser.parseErrorMessage(html);
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.valuation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading results from the CSV output with loading them from the binary result store.
+ * Load times are measured by the benchmarks and the memory each load allocates is shown by running with
+ * {@code -prof gc}; the size of each form on disk is checked by {@code ResultStoreTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultStoreBenchmark {
+
+    private static final String HEADER = "VARIANT_REG,MAKE,MODEL,YEAR";
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path workDir;
+    private Path csvFile;
+    private Path storeFile;
+    private Path exportFile;
+
+    /**
+     * Writes the generated output as CSV and as a result store.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Setup(Level.Trial)
+    public void generateOutputs() throws IOException {
+        workDir = Files.createTempDirectory("result-store-benchmark");
+        csvFile = Files.write(workDir.resolve("output.txt"), BenchmarkData.outputLines(rows), StandardCharsets.UTF_8);
+        storeFile = workDir.resolve("output.bin");
+        exportFile = workDir.resolve("exported.txt");
+        ResultStoreWriter.importCsv(csvFile, storeFile, 4096);
+    }
+
+    /**
+     * Deletes the generated files.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteOutputs() throws IOException {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(storeFile);
+        Files.deleteIfExists(exportFile);
+        Files.deleteIfExists(workDir);
+    }
+
+    /**
+     * Parses the CSV output into a list of results.
+     *
+     * @param blackhole consumes the loaded results
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public void loadCsv(Blackhole blackhole) throws IOException {
+        List<LookupResult> results = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                results.add(LookupResult.fromRow(line));
+            }
+        }
+        blackhole.consume(results);
+    }
+
+    /**
+     * Loads the result store into columns.
+     *
+     * @param blackhole consumes the loaded columns
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public void loadStore(Blackhole blackhole) throws IOException {
+        blackhole.consume(ResultStoreReader.load(storeFile));
+    }
+
+    /**
+     * Exports the result store to the CSV output format.
+     *
+     * @param blackhole consumes the number of rows written
+     * @throws IOException if a file cannot be read or written
+     */
+    @Benchmark
+    public void exportCsv(Blackhole blackhole) throws IOException {
+        blackhole.consume(ResultStoreReader.exportCsv(storeFile, exportFile, HEADER));
+    }
+}
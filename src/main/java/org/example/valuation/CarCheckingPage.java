@@ -1,6 +1,7 @@
 package org.example.valuation;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.WebDriverWait;
@@ -15,12 +16,12 @@ import java.time.Duration;
 public class CarCheckingPage {
     private static final Logger logger = LogManager.getLogger(CarCheckingPage.class);
     private final WebDriver driver;
-    private final WebDriverWait wait;
-    private static final Duration WAIT_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration FORM_TIMEOUT = Duration.ofSeconds(5);
 
     // Locators
     private static final By REG_NUMBER_INPUT = By.xpath("//input[@id='subForm1']");
     private static final By SUBMIT_BUTTON = By.cssSelector("button[type='submit']");
+    static final By ERROR_ALERT = By.cssSelector(".alert.alert-danger");
 
     /**
      * Constructor to initialize the CarCheckingPage with WebDriver.
@@ -29,16 +30,16 @@ public class CarCheckingPage {
      */
     public CarCheckingPage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, WAIT_TIMEOUT);
     }
 
     /**
-     * Enters the registration number into the input field.
+     * Enters the registration number into the input field, waiting for the field if the page is still loading,
+     * as it can be with an eager or no page-load strategy.
      *
      * @param registrationNumber the registration number to enter
      */
     public void enterRegistrationNumber(String registrationNumber) {
-        WebElement regNumberInput = driver.findElement(REG_NUMBER_INPUT);
+        WebElement regNumberInput = new WebDriverWait(driver, FORM_TIMEOUT).until(d -> d.findElement(REG_NUMBER_INPUT));
         regNumberInput.sendKeys(registrationNumber);
         logger.info("Entered registration number: " + registrationNumber);
     }
@@ -51,4 +52,30 @@ public class CarCheckingPage {
         submitButton.click();
         logger.info("Submitted the form");
     }
-}
\ No newline at end of file
+
+    /**
+     * Submits the form from a script timer, so the call returns at once instead of waiting for the next page to load.
+     * Used when one driver has pages loading in several tabs at the same time.
+     */
+    public void submitFormWithoutWaiting() {
+        WebElement submitButton = driver.findElement(SUBMIT_BUTTON);
+        ((JavascriptExecutor) driver).executeScript(
+                "var button = arguments[0]; setTimeout(function () { button.click(); }, 0);", submitButton);
+        logger.info("Submitted the form");
+    }
+
+    /**
+     * Retrieves the error message shown after submitting an unrecognised registration number.
+     *
+     * @return the error message, or null if no error alert is displayed
+     */
+    public String getErrorMessage() {
+        WebElement errorAlert = driver.findElement(ERROR_ALERT);
+        if (!errorAlert.isDisplayed()) {
+            return null;
+        }
+        String alertMessage = errorAlert.getText();
+        logger.info("Alert Message: " + alertMessage);
+        return alertMessage;
+    }
+}
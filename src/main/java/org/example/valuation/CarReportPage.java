@@ -1,11 +1,17 @@
 package org.example.valuation;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Page Object Model for the Car Report Page.
  */
@@ -14,11 +20,27 @@ public class CarReportPage {
     private final WebDriver driver;
 
     // Locators
-    private static final By REG_NUMBER_ELEMENT = By.id("subForm");
+    static final By REG_NUMBER_ELEMENT = By.id("subForm");
     private static final By MAKE_ELEMENT = By.xpath("//td[text()='Make']/following-sibling::td");
     private static final By MODEL_ELEMENT = By.xpath("//td[text()='Model']/following-sibling::td");
     private static final By YEAR_ELEMENT = By.xpath("//td[text()='Year of manufacture']/following-sibling::td");
 
+    /**
+     * Returns the registration number and every label/value row of the report table in a single round trip,
+     * as {@code [registrationNumber, [[label, value], ...]]}. Labels are matched by their text, as the XPath locators
+     * match them, and values are read as their rendered text, as getText() reads them.
+     */
+    private static final String READ_REPORT_SCRIPT =
+            "var reg = document.getElementById('subForm');"
+            + "var rows = [];"
+            + "document.querySelectorAll('tr').forEach(function (tr) {"
+            + "  var cells = tr.querySelectorAll('td');"
+            + "  if (cells.length >= 2) {"
+            + "    rows.push([cells[0].textContent.trim(), cells[1].innerText.trim()]);"
+            + "  }"
+            + "});"
+            + "return [reg ? reg.value : null, rows];";
+
     /**
      * Constructor to initialize the CarReportPage with WebDriver.
      *
@@ -28,6 +50,40 @@ public class CarReportPage {
         this.driver = driver;
     }
 
+    /**
+     * Reads the registration number and all report fields in one round trip to the browser.
+     * If the script cannot be run, the fields are parsed from a single page source snapshot instead.
+     *
+     * @return the report, with a null registration number if the page is not a report page
+     */
+    public VehicleReport readReport() {
+        VehicleReport report;
+        try {
+            report = readReportWithScript();
+        } catch (WebDriverException | ClassCastException e) {
+            logger.warn("Could not read the report with a script, parsing the page source instead", e);
+            report = VehicleReport.fromHtml(driver.getPageSource());
+            if (report == null) {
+                report = new VehicleReport(null, Map.of());
+            }
+        }
+        logger.info("Retrieved report for registration number " + report.registrationNumber() + ": " + report.fields());
+        return report;
+    }
+
+    private VehicleReport readReportWithScript() {
+        if (!(driver instanceof JavascriptExecutor)) {
+            throw new WebDriverException("Driver cannot execute scripts: " + driver.getClass().getName());
+        }
+        List<?> result = (List<?>) ((JavascriptExecutor) driver).executeScript(READ_REPORT_SCRIPT);
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (Object row : (List<?>) result.get(1)) {
+            List<?> cells = (List<?>) row;
+            fields.putIfAbsent((String) cells.get(0), (String) cells.get(1));
+        }
+        return new VehicleReport((String) result.get(0), fields);
+    }
+
     /**
      * Retrieves the registration number from the report page.
      *
@@ -0,0 +1,176 @@
+package org.example.valuation;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Resolves the driver binary for a browser once and records it in a local manifest that later runs reuse,
+ * so a cold start needs neither a network call nor a WebDriverManager resolution while the binary is unchanged.
+ * A binary is verified with a SHA-256 digest when it is recorded; a recorded binary is reused while its
+ * size, modification time and digest still match the manifest.
+ */
+public class DriverBinaryResolver {
+    private static final Logger logger = LogManager.getLogger(DriverBinaryResolver.class);
+
+    private final Path manifestFile;
+    private final Set<String> resolvedBrowsers = new HashSet<>();
+
+    /**
+     * Constructor to initialize the DriverBinaryResolver.
+     *
+     * @param manifestFile the file resolved binaries are recorded in
+     */
+    public DriverBinaryResolver(Path manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Makes the driver binary for a browser known to Selenium, resolving it only if the manifest has no usable entry.
+     * Browsers that ship their own driver, such as Safari, need nothing.
+     *
+     * @param browser        the browser name from the configuration file
+     * @param configuredPath a driver binary to use instead of resolving one, or null
+     * @throws IllegalStateException if the binary is not executable
+     */
+    public synchronized void resolve(String browser, String configuredPath) {
+        String driverProperty = driverProperty(browser);
+        if (driverProperty == null || resolvedBrowsers.contains(browser)) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path binary;
+        if (configuredPath != null) {
+            binary = Paths.get(configuredPath);
+        } else {
+            Properties manifest = readManifest();
+            binary = cachedBinary(manifest, browser);
+            if (binary == null) {
+                binary = download(browser);
+                record(manifest, browser, binary);
+            }
+        }
+        if (!Files.isExecutable(binary)) {
+            throw new IllegalStateException("Driver binary for " + browser + " is not executable: " + binary);
+        }
+        System.setProperty(driverProperty, binary.toString());
+        resolvedBrowsers.add(browser);
+        logger.info("Using " + browser + " driver " + binary + ", resolved in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Resolves the driver binary for a browser again, ignoring the manifest, and records the new binary.
+     * Used when a session cannot be created with the recorded binary, typically because the browser was updated
+     * past the versions the driver supports.
+     *
+     * @param browser the browser name from the configuration file
+     * @throws IllegalStateException if the binary is not executable
+     */
+    public synchronized void refresh(String browser) {
+        String driverProperty = driverProperty(browser);
+        if (driverProperty == null) {
+            return;
+        }
+        Path binary = download(browser);
+        if (!Files.isExecutable(binary)) {
+            throw new IllegalStateException("Driver binary for " + browser + " is not executable: " + binary);
+        }
+        record(readManifest(), browser, binary);
+        System.setProperty(driverProperty, binary.toString());
+        resolvedBrowsers.add(browser);
+        logger.info("Resolved " + browser + " driver again: " + binary);
+    }
+
+    private static String driverProperty(String browser) {
+        switch (browser.toLowerCase()) {
+            case "chrome":
+                return "webdriver.chrome.driver";
+            case "firefox":
+                return "webdriver.gecko.driver";
+            default:
+                return null;
+        }
+    }
+
+    private static Path download(String browser) {
+        WebDriverManager manager = "chrome".equalsIgnoreCase(browser) ? WebDriverManager.chromedriver() : WebDriverManager.firefoxdriver();
+        manager.setup();
+        return Paths.get(manager.getDownloadedDriverPath());
+    }
+
+    private Path cachedBinary(Properties manifest, String browser) {
+        String path = manifest.getProperty(browser + ".path");
+        if (path == null) {
+            return null;
+        }
+        Path binary = Paths.get(path);
+        try {
+            if (Files.isExecutable(binary)
+                    && Long.toString(Files.size(binary)).equals(manifest.getProperty(browser + ".size"))
+                    && Long.toString(Files.getLastModifiedTime(binary).toMillis()).equals(manifest.getProperty(browser + ".lastModified"))
+                    && sha256(binary).equals(manifest.getProperty(browser + ".sha256"))) {
+                return binary;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not check cached driver binary " + binary, e);
+        }
+        logger.info("Cached " + browser + " driver " + binary + " has changed or gone, resolving it again");
+        return null;
+    }
+
+    private void record(Properties manifest, String browser, Path binary) {
+        try {
+            manifest.setProperty(browser + ".path", binary.toAbsolutePath().toString());
+            manifest.setProperty(browser + ".size", Long.toString(Files.size(binary)));
+            manifest.setProperty(browser + ".lastModified", Long.toString(Files.getLastModifiedTime(binary).toMillis()));
+            manifest.setProperty(browser + ".sha256", sha256(binary));
+            if (manifestFile.getParent() != null) {
+                Files.createDirectories(manifestFile.getParent());
+            }
+            Path tmp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+            try (OutputStream output = Files.newOutputStream(tmp)) {
+                manifest.store(output, "Resolved WebDriver binaries");
+            }
+            Files.move(tmp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The binary is still usable; the next run just resolves it again
+            logger.warn("Could not record driver binary in " + manifestFile, e);
+        }
+    }
+
+    private Properties readManifest() {
+        Properties manifest = new Properties();
+        if (Files.exists(manifestFile)) {
+            try (InputStream input = Files.newInputStream(manifestFile)) {
+                manifest.load(input);
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable driver manifest " + manifestFile, e);
+            }
+        }
+        return manifest;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (DigestInputStream input = new DigestInputStream(Files.newInputStream(file), MessageDigest.getInstance("SHA-256"))) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(input.getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.ChromiumDriver;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Pool of warm WebDriver sessions with checkout/return semantics.
+ * Returned sessions are reset (cookies, storage, about:blank) instead of quit,
+ * so a browser launch is only paid when the pool has to grow. Chromium sessions lose the cookies of every domain;
+ * other browsers only those of the page they are on, which for lookups is the car checking site.
+ * With a {@link SessionHealthPolicy}, each session's health is tracked, and a session that crosses a threshold is
+ * recycled in the background: a checked-out one when it is returned, an idle one when the monitor samples it.
+ * The caller never waits for the old browser to quit or the replacement to start.
+ */
+public class DriverPool implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(DriverPool.class);
+    private static final String BLANK_PAGE = "about:blank";
+    private static final String CLEAR_STORAGE_SCRIPT =
+            "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}";
+
+    private final Supplier<WebDriver> driverFactory;
+    private final int minSize;
+    private final int maxSize;
+    private final Duration idleTimeout;
+    private final Duration acquireTimeout;
+    private final LinkedBlockingDeque<IdleDriver> idleDrivers = new LinkedBlockingDeque<>();
+    private final Set<WebDriver> allDrivers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger reservedSlots = new AtomicInteger();
+    private final Semaphore checkoutPermits;
+    private final ScheduledExecutorService evictor;
+    private final SessionHealthPolicy healthPolicy;
+    private final LookupMetrics metrics;
+    private final Map<WebDriver, SessionHealth> health = new ConcurrentHashMap<>();
+    private final ExecutorService recycler;
+    private final Object launchLock = new Object();
+    private volatile boolean closed;
+
+    /**
+     * Constructor to initialize the DriverPool.
+     *
+     * @param driverFactory  creates a new browser session when the pool needs to grow
+     * @param minSize        number of sessions kept warm even when idle
+     * @param maxSize        maximum number of live sessions
+     * @param idleTimeout    idle time after which sessions above minSize are quit
+     * @param acquireTimeout maximum time to wait for a free session on checkout
+     */
+    public DriverPool(Supplier<WebDriver> driverFactory, int minSize, int maxSize,
+                      Duration idleTimeout, Duration acquireTimeout) {
+        this(driverFactory, minSize, maxSize, idleTimeout, acquireTimeout, SessionHealthPolicy.DISABLED, null);
+    }
+
+    /**
+     * Constructor to initialize the DriverPool with session health monitoring.
+     *
+     * @param driverFactory  creates a new browser session when the pool needs to grow
+     * @param minSize        number of sessions kept warm even when idle
+     * @param maxSize        maximum number of live sessions
+     * @param idleTimeout    idle time after which sessions above minSize are quit
+     * @param acquireTimeout maximum time to wait for a free session on checkout
+     * @param healthPolicy   the thresholds past which sessions are recycled
+     * @param metrics        receives recycling counts and health gauges, or null
+     */
+    public DriverPool(Supplier<WebDriver> driverFactory, int minSize, int maxSize, Duration idleTimeout,
+                      Duration acquireTimeout, SessionHealthPolicy healthPolicy, LookupMetrics metrics) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.driverFactory = driverFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+        this.acquireTimeout = acquireTimeout;
+        this.checkoutPermits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "driver-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeout.toMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleDrivers, period, period, TimeUnit.MILLISECONDS);
+        this.healthPolicy = healthPolicy;
+        this.metrics = metrics;
+        this.recycler = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "driver-pool-recycler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (healthPolicy.isEnabled()) {
+            long samplePeriod = healthPolicy.samplesProcesses() ? healthPolicy.sampleInterval().toMillis() : period;
+            evictor.scheduleWithFixedDelay(this::monitorHealth, samplePeriod, samplePeriod, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Starts sessions until minSize sessions are idle and ready for checkout.
+     */
+    public void prewarm() {
+        while (!closed && reservedSlots.get() < minSize && reserveSlot()) {
+            idleDrivers.offerFirst(new IdleDriver(createDriver()));
+        }
+    }
+
+    /**
+     * Checks out a session, reusing a warm one when available.
+     *
+     * @return a WebDriver owned by the caller until it is released
+     * @throws IllegalStateException if the pool is closed or no session becomes free in time
+     */
+    public WebDriver checkout() {
+        if (closed) {
+            throw new IllegalStateException("Driver pool is closed");
+        }
+        try {
+            if (!checkoutPermits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out after " + acquireTimeout + " waiting for a WebDriver session");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a WebDriver session", e);
+        }
+        try {
+            IdleDriver idle = idleDrivers.pollFirst();
+            if (idle != null) {
+                return idle.driver;
+            }
+            if (reserveSlot()) {
+                return createDriver();
+            }
+            // Every slot holds a session or one the recycler is starting, which will become idle
+            idle = idleDrivers.pollFirst(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (idle == null) {
+                throw new IllegalStateException("Timed out after " + acquireTimeout + " waiting for a WebDriver session");
+            }
+            return idle.driver;
+        } catch (InterruptedException e) {
+            checkoutPermits.release();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a WebDriver session", e);
+        } catch (RuntimeException e) {
+            checkoutPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a session to the pool after resetting its state. Sessions that fail to reset are quit.
+     *
+     * @param driver a session obtained from {@link #checkout()}
+     */
+    public void release(WebDriver driver) {
+        if (driver == null || !allDrivers.contains(driver)) {
+            return;
+        }
+        try {
+            String reason = reasonToRecycle(driver);
+            if (!closed && reason != null) {
+                recycleInBackground(driver, reason);
+            } else if (!closed && reset(driver)) {
+                idleDrivers.offerFirst(new IdleDriver(driver));
+            } else {
+                quit(driver);
+            }
+        } finally {
+            checkoutPermits.release();
+        }
+    }
+
+    /**
+     * Quits a checked-out session instead of returning it, e.g. after the browser crashed.
+     *
+     * @param driver a session obtained from {@link #checkout()}
+     */
+    public void invalidate(WebDriver driver) {
+        if (driver == null || !allDrivers.contains(driver)) {
+            return;
+        }
+        quit(driver);
+        checkoutPermits.release();
+    }
+
+    /**
+     * Returns whether a session has crossed a health threshold and should be released, so that it is recycled,
+     * rather than used for another lookup.
+     *
+     * @param driver a session obtained from {@link #checkout()}
+     * @return true if the session should be recycled
+     */
+    public boolean needsRecycling(WebDriver driver) {
+        return reasonToRecycle(driver) != null;
+    }
+
+    /**
+     * Records how long a lookup with a session took, for its health. Sessions not from this pool are ignored.
+     *
+     * @param driver a session obtained from {@link #checkout()}
+     * @param nanos  the lookup time
+     */
+    public void recordLookup(WebDriver driver, long nanos) {
+        SessionHealth sessionHealth = health.get(driver);
+        if (sessionHealth != null) {
+            sessionHealth.recordLookup(nanos);
+        }
+    }
+
+    /**
+     * Returns the health of a live session.
+     *
+     * @param driver a session of this pool
+     * @return the session's health, or null if it is not a live session of this pool
+     */
+    public SessionHealth getHealth(WebDriver driver) {
+        return health.get(driver);
+    }
+
+    /**
+     * Returns the number of live sessions, idle or checked out.
+     *
+     * @return the number of live sessions
+     */
+    public int size() {
+        return allDrivers.size();
+    }
+
+    /**
+     * Returns the number of sessions ready for checkout.
+     *
+     * @return the number of idle sessions
+     */
+    public int idleCount() {
+        return idleDrivers.size();
+    }
+
+    /**
+     * Quits every session, including ones still checked out, and stops idle eviction.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        recycler.shutdownNow();
+        idleDrivers.clear();
+        for (WebDriver driver : allDrivers) {
+            quit(driver);
+        }
+        logger.info("Closed WebDriver pool");
+    }
+
+    /**
+     * Reserves a slot for a new session, so that concurrent launches cannot take the pool past maxSize.
+     * Each reserved slot is freed when its session is quit or fails to start.
+     *
+     * @return false if every slot is taken
+     */
+    private boolean reserveSlot() {
+        while (true) {
+            int reserved = reservedSlots.get();
+            if (reserved >= maxSize) {
+                return false;
+            }
+            if (reservedSlots.compareAndSet(reserved, reserved + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Starts a session in a slot already reserved with {@link #reserveSlot()}.
+     */
+    private WebDriver createDriver() {
+        WebDriver driver;
+        List<ProcessHandle> processes = List.of();
+        try {
+            if (healthPolicy.samplesProcesses()) {
+                // Launches are serialized so that the driver processes that appear belong to this session
+                synchronized (launchLock) {
+                    Set<ProcessHandle> before = ProcessHandle.current().children().collect(Collectors.toSet());
+                    driver = driverFactory.get();
+                    processes = ProcessHandle.current().children().filter(process -> !before.contains(process))
+                            .collect(Collectors.toList());
+                }
+            } else {
+                driver = driverFactory.get();
+            }
+        } catch (RuntimeException e) {
+            reservedSlots.decrementAndGet();
+            throw e;
+        }
+        health.put(driver, new SessionHealth(processes));
+        allDrivers.add(driver);
+        logger.info("Started WebDriver session {} of max {}", allDrivers.size(), maxSize);
+        return driver;
+    }
+
+    private boolean reset(WebDriver driver) {
+        try {
+            if (driver instanceof ChromiumDriver) {
+                // deleteAllCookies only reaches the current page's domain; this clears every domain's cookies
+                ((ChromiumDriver) driver).executeCdpCommand("Network.clearBrowserCookies", Map.of());
+            } else {
+                driver.manage().deleteAllCookies();
+            }
+            if (driver instanceof JavascriptExecutor) {
+                ((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE_SCRIPT);
+            }
+            driver.get(BLANK_PAGE);
+            return true;
+        } catch (WebDriverException e) {
+            logger.warn("Discarding WebDriver session that failed to reset", e);
+            return false;
+        }
+    }
+
+    private void quit(WebDriver driver) {
+        if (allDrivers.remove(driver)) {
+            health.remove(driver);
+            reservedSlots.decrementAndGet();
+            try {
+                driver.quit();
+            } catch (WebDriverException e) {
+                logger.warn("Error quitting WebDriver session", e);
+            }
+        }
+    }
+
+    private void evictIdleDrivers() {
+        long now = System.nanoTime();
+        Iterator<IdleDriver> iterator = idleDrivers.descendingIterator();
+        while (iterator.hasNext() && allDrivers.size() > minSize) {
+            IdleDriver idle = iterator.next();
+            if (now - idle.idleSince >= idleTimeout.toNanos() && idleDrivers.remove(idle)) {
+                quit(idle.driver);
+                logger.info("Evicted idle WebDriver session, {} remaining", allDrivers.size());
+            }
+        }
+    }
+
+    private String reasonToRecycle(WebDriver driver) {
+        SessionHealth sessionHealth = health.get(driver);
+        return sessionHealth == null || !healthPolicy.isEnabled() ? null : sessionHealth.reasonToRecycle(healthPolicy);
+    }
+
+    /**
+     * Quits a session on the recycler thread and starts its replacement there, so the caller does not wait for either.
+     * The session is out of the idle deque and unavailable for checkout by then.
+     */
+    private void recycleInBackground(WebDriver driver, String reason) {
+        logger.info("Recycling WebDriver session that " + reason);
+        if (metrics != null) {
+            metrics.count(LookupMetrics.Event.SESSION_RECYCLED);
+        }
+        recycler.execute(() -> {
+            quit(driver);
+            if (closed || !reserveSlot()) {
+                // A checkout already started a session in the freed slot
+                return;
+            }
+            try {
+                WebDriver replacement = createDriver();
+                if (closed) {
+                    quit(replacement);
+                } else {
+                    idleDrivers.offerFirst(new IdleDriver(replacement));
+                }
+            } catch (RuntimeException e) {
+                // The next checkout starts a session itself
+                logger.warn("Could not start a replacement WebDriver session", e);
+            }
+        });
+    }
+
+    /**
+     * Samples every session's processes, publishes the pool's health gauges and recycles idle sessions that crossed
+     * a threshold. Checked-out sessions are recycled when they are returned.
+     */
+    private void monitorHealth() {
+        try {
+            long rss = 0;
+            long openFiles = 0;
+            double maxDrift = 1.0;
+            for (SessionHealth sessionHealth : health.values()) {
+                if (healthPolicy.samplesProcesses()) {
+                    sessionHealth.sample();
+                }
+                rss += Math.max(0, sessionHealth.getRssBytes());
+                openFiles += Math.max(0, sessionHealth.getOpenFiles());
+                maxDrift = Math.max(maxDrift, sessionHealth.getLatencyDrift());
+            }
+            if (metrics != null) {
+                metrics.set(LookupMetrics.Gauge.BROWSER_SESSIONS, allDrivers.size());
+                metrics.set(LookupMetrics.Gauge.BROWSER_RSS_BYTES, rss);
+                metrics.set(LookupMetrics.Gauge.BROWSER_OPEN_FILES, openFiles);
+                metrics.set(LookupMetrics.Gauge.MAX_LATENCY_DRIFT_PERCENT, Math.round(maxDrift * 100));
+            }
+            for (IdleDriver idle : idleDrivers) {
+                String reason = reasonToRecycle(idle.driver);
+                if (reason != null && idleDrivers.remove(idle)) {
+                    recycleInBackground(idle.driver, reason);
+                }
+            }
+        } catch (RuntimeException e) {
+            // A failed sample must not cancel the monitor's schedule
+            logger.warn("Could not sample WebDriver session health", e);
+        }
+    }
+
+    private static final class IdleDriver {
+        private final WebDriver driver;
+        private final long idleSince = System.nanoTime();
+
+        private IdleDriver(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+}
@@ -1,74 +1,178 @@
 package org.example.valuation;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.SessionNotCreatedException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.safari.SafariDriver;
+import org.openqa.selenium.safari.SafariOptions;
 
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.Duration;
-import java.util.Properties;
 
 /**
- * Singleton class to manage WebDriver instance.
+ * Singleton facade over the shared {@link DriverPool}.
+ * Each thread gets its own pooled WebDriver instance from {@link #getDriver()}.
  */
 public class DriverSingleton {
     private static final Logger logger = LogManager.getLogger(DriverSingleton.class);
-    private static WebDriver driver;
+    private static final ThreadLocal<WebDriver> currentDriver = new ThreadLocal<>();
+    private static DriverPool pool;
+    private static NetworkShaper networkShaper;
+    private static Settings settings;
+    private static LookupMetrics metrics;
+    private static DriverBinaryResolver driverBinaries;
+    private static boolean shutdownHookRegistered;
     private static final String CONFIG_FILE_PATH = "src/test/resources/config.properties";
-    private static final Duration IMPLICIT_WAIT_TIMEOUT = Duration.ofSeconds(3);
+    private static final String DEFAULT_DRIVER_MANIFEST = System.getProperty("user.home") + "/.cache/car-valuation/driver-manifest.properties";
 
     private DriverSingleton() {}
 
     /**
-     * Returns the singleton WebDriver instance.
+     * Returns the WebDriver instance owned by the calling thread, checking one out of the pool if needed.
      * @return WebDriver instance
      */
     public static WebDriver getDriver() {
+        WebDriver driver = currentDriver.get();
         if (driver == null) {
-            try {
-                Properties properties = new Properties();
-                properties.load(new FileInputStream(CONFIG_FILE_PATH));
-                String browser = properties.getProperty("browser");
-
-                switch (browser.toLowerCase()) {
-                    case "chrome":
-                        WebDriverManager.chromedriver().setup();
-                        driver = new ChromeDriver();
-                        break;
-                    case "firefox":
-                        WebDriverManager.firefoxdriver().setup();
-                        driver = new FirefoxDriver();
-                        break;
-                    case "safari":
-                        WebDriverManager.safaridriver().setup();
-                        driver = new SafariDriver();
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unsupported browser: " + browser);
-                }
-                driver.manage().window().maximize();
-                driver.manage().timeouts().implicitlyWait(IMPLICIT_WAIT_TIMEOUT);
-                logger.info("Initialized WebDriver for browser: " + browser);
-            } catch (IOException e) {
-                logger.error("Error loading configuration file", e);
-            }
+            long start = System.nanoTime();
+            driver = getPool().checkout();
+            getMetrics().recordSince(LookupMetrics.Phase.ACQUIRE, start);
+            currentDriver.set(driver);
         }
         return driver;
     }
 
     /**
-     * Closes the WebDriver instance.
+     * Returns the calling thread's WebDriver instance to the pool, where it stays warm for the next caller.
      */
     public static void closeDriver() {
+        WebDriver driver = currentDriver.get();
         if (driver != null) {
-            driver.quit();
-            driver = null;
-            logger.info("Closed WebDriver instance");
+            currentDriver.remove();
+            getPool().release(driver);
+            logger.info("Returned WebDriver instance to pool");
+        }
+    }
+
+    /**
+     * Returns the shared driver pool, creating it from the settings on first use.
+     * @return the driver pool
+     */
+    public static synchronized DriverPool getPool() {
+        if (pool == null) {
+            Settings config = getSettings();
+            NetworkShaper shaper = NetworkShaper.fromConfig(config);
+            networkShaper = shaper;
+            pool = new DriverPool(
+                    () -> createDriver(config.getString("browser", "chrome"), shaper),
+                    config.getInt("driver.pool.minSize", 1),
+                    config.getInt("driver.pool.maxSize", 4),
+                    Duration.ofSeconds(config.getLong("driver.pool.idleTimeoutSeconds", 300)),
+                    Duration.ofSeconds(config.getLong("driver.pool.acquireTimeoutSeconds", 120)),
+                    SessionHealthPolicy.fromConfig(config),
+                    getMetrics());
+            // The pool is created again after a shutdown, but one hook shuts down whichever pool is current
+            if (!shutdownHookRegistered) {
+                Runtime.getRuntime().addShutdownHook(new Thread(DriverSingleton::shutdown, "driver-pool-shutdown"));
+                shutdownHookRegistered = true;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Quits all pooled WebDriver instances and logs the network traffic of their sessions.
+     */
+    public static synchronized void shutdown() {
+        currentDriver.remove();
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        if (networkShaper != null) {
+            networkShaper.logStats();
+            networkShaper = null;
+        }
+    }
+
+    /**
+     * Creates a new WebDriver session for the given browser, shaped by the network shaper.
+     * @param browser the browser name from the configuration file
+     * @param shaper  sets the headless mode and page-load strategy, and blocks requests where the browser allows it
+     * @return WebDriver instance
+     */
+    static WebDriver createDriver(String browser, NetworkShaper shaper) {
+        String configuredPath = getSettings().getString("driver." + browser.toLowerCase() + ".path", null);
+        DriverBinaryResolver resolver = getDriverBinaries();
+        resolver.resolve(browser, configuredPath);
+        WebDriver driver;
+        try {
+            driver = startSession(browser, shaper);
+        } catch (SessionNotCreatedException e) {
+            if (configuredPath != null) {
+                throw e;
+            }
+            // Usually a browser update the recorded driver does not support yet
+            logger.warn("Could not start a " + browser + " session, resolving its driver again and retrying once", e);
+            resolver.refresh(browser);
+            driver = startSession(browser, shaper);
+        }
+        driver.manage().window().maximize();
+        shaper.attach(driver);
+        // No implicit wait: OutcomeDetector waits explicitly, and an implicit wait would stack with it on every probe
+        logger.info("Initialized WebDriver for browser: " + browser);
+        return driver;
+    }
+
+    private static WebDriver startSession(String browser, NetworkShaper shaper) {
+        switch (browser.toLowerCase()) {
+            case "chrome":
+                return new ChromeDriver(shaper.configure(new ChromeOptions()));
+            case "firefox":
+                return new FirefoxDriver(shaper.configure(new FirefoxOptions()));
+            case "safari":
+                return new SafariDriver(shaper.withPageLoadStrategy(new SafariOptions()));
+            default:
+                throw new IllegalArgumentException("Unsupported browser: " + browser);
+        }
+    }
+
+    /**
+     * Returns the settings, reading the configuration file on first use only.
+     * @return the settings
+     */
+    public static synchronized Settings getSettings() {
+        if (settings == null) {
+            settings = Settings.load(Paths.get(CONFIG_FILE_PATH));
+        }
+        return settings;
+    }
+
+    /**
+     * Returns the run's lookup metrics, created on first use.
+     * @return the lookup metrics
+     */
+    public static synchronized LookupMetrics getMetrics() {
+        if (metrics == null) {
+            metrics = new LookupMetrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the resolver that makes driver binaries available, resolving each at most once per run and
+     * reusing the binary recorded in the driver manifest by earlier runs.
+     * @return the driver binary resolver
+     */
+    private static synchronized DriverBinaryResolver getDriverBinaries() {
+        if (driverBinaries == null) {
+            driverBinaries = new DriverBinaryResolver(Paths.get(getSettings().getString("driver.manifest", DEFAULT_DRIVER_MANIFEST)));
         }
+        return driverBinaries;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,336 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches lookup results in front of another {@link VehicleLookup}, keyed on the canonical registration number.
+ * Hot entries live in an in-memory LRU; every entry is also appended to a store file that is replayed on start,
+ * so results survive JVM restarts. Recognised and not recognised results expire after separate TTLs,
+ * and concurrent lookups of the same registration share a single request to the delegate.
+ */
+public class LookupCache implements VehicleLookup, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(LookupCache.class);
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String RECOGNISED = "F";
+    private static final String NOT_RECOGNISED = "N";
+    private static final int STORE_READ_SIZE = 256;
+
+    private final VehicleLookup delegate;
+    private final Path storeFile;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Map<String, CachedResult> memory;
+    private final Map<String, Long> storeOffsets = new HashMap<>();
+    private final Map<String, CompletableFuture<LookupResult>> inFlight = new ConcurrentHashMap<>();
+    private final RandomAccessFile store;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+
+    /**
+     * Constructor to initialize the LookupCache, loading entries from the store file if it exists.
+     *
+     * @param delegate    the lookup to call on a cache miss
+     * @param storeFile   the file entries are persisted to
+     * @param maxEntries  the maximum number of entries held in memory
+     * @param ttl         how long recognised results are served from the cache
+     * @param negativeTtl how long not recognised results are served from the cache
+     * @throws IOException if the store file cannot be read or opened
+     */
+    public LookupCache(VehicleLookup delegate, Path storeFile, int maxEntries, Duration ttl, Duration negativeTtl) throws IOException {
+        this.delegate = delegate;
+        this.storeFile = storeFile;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        if (storeFile.getParent() != null) {
+            Files.createDirectories(storeFile.getParent());
+        }
+        this.store = new RandomAccessFile(storeFile.toFile(), "rw");
+        loadStore();
+    }
+
+    /**
+     * Returns the cached result for the registration number, or looks it up and caches the result.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     */
+    @Override
+    public LookupResult lookup(String registrationNumber) {
+        String key = Registrations.canonical(registrationNumber);
+        CachedResult cached = get(key);
+        if (cached != null) {
+            (cached.result.isRecognised() ? hits : negativeHits).incrementAndGet();
+            return forEnteredRegistration(cached.result, registrationNumber);
+        }
+
+        CompletableFuture<LookupResult> pending = new CompletableFuture<>();
+        CompletableFuture<LookupResult> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return forEnteredRegistration(join(existing), registrationNumber);
+        }
+        try {
+            cached = get(key);
+            if (cached != null) {
+                // Another lookup of this registration finished between the first check and claiming it
+                (cached.result.isRecognised() ? hits : negativeHits).incrementAndGet();
+                pending.complete(cached.result);
+                return forEnteredRegistration(cached.result, registrationNumber);
+            }
+            misses.incrementAndGet();
+            long start = System.nanoTime();
+            LookupResult result = delegate.lookup(registrationNumber);
+            lookupNanos.addAndGet(System.nanoTime() - start);
+            put(key, result);
+            pending.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    /**
+     * Returns the number of lookups answered with a cached recognised result.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups answered with a cached not recognised result.
+     *
+     * @return the number of negative hits
+     */
+    public long getNegativeHits() {
+        return negativeHits.get();
+    }
+
+    /**
+     * Returns the number of lookups passed on to the delegate.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of lookups that waited for an identical lookup already in flight.
+     *
+     * @return the number of coalesced lookups
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Estimates the lookup time saved, as the number of lookups served without calling the delegate
+     * multiplied by the mean delegate lookup time.
+     *
+     * @return the estimated time saved
+     */
+    public Duration getEstimatedTimeSaved() {
+        long missCount = misses.get();
+        if (missCount == 0) {
+            return Duration.ZERO;
+        }
+        long served = hits.get() + negativeHits.get() + coalesced.get();
+        return Duration.ofNanos(lookupNanos.get() / missCount * served);
+    }
+
+    /**
+     * Rewrites the store file with only the live entries and closes it.
+     *
+     * @throws IOException if the store file cannot be rewritten
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        logger.info("Lookup cache: " + hits.get() + " hits, " + negativeHits.get() + " negative hits, "
+                + misses.get() + " misses, " + coalesced.get() + " coalesced, ~" + getEstimatedTimeSaved().toMillis() + " ms saved");
+        Path compacted = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        StringBuilder live = new StringBuilder();
+        for (String key : storeOffsets.keySet()) {
+            CachedResult entry = readStoreEntry(storeOffsets.get(key));
+            if (entry != null && entry.expiresAt > now) {
+                live.append(format(key, entry)).append('\n');
+            }
+        }
+        store.close();
+        Files.writeString(compacted, live, StandardCharsets.UTF_8);
+        Files.move(compacted, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private synchronized CachedResult get(String key) {
+        CachedResult cached = memory.get(key);
+        if (cached == null) {
+            Long offset = storeOffsets.get(key);
+            if (offset != null) {
+                cached = readStoreEntry(offset);
+                if (cached != null) {
+                    memory.put(key, cached);
+                }
+            }
+        }
+        if (cached != null && cached.expiresAt <= System.currentTimeMillis()) {
+            memory.remove(key);
+            storeOffsets.remove(key);
+            return null;
+        }
+        return cached;
+    }
+
+    private synchronized void put(String key, LookupResult result) {
+        long expiresAt = System.currentTimeMillis() + (result.isRecognised() ? ttl : negativeTtl).toMillis();
+        CachedResult entry = new CachedResult(result, expiresAt);
+        memory.put(key, entry);
+        try {
+            long offset = store.length();
+            store.seek(offset);
+            store.write((format(key, entry) + "\n").getBytes(StandardCharsets.UTF_8));
+            storeOffsets.put(key, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing lookup cache store: " + storeFile, e);
+        }
+    }
+
+    private void loadStore() throws IOException {
+        long now = System.currentTimeMillis();
+        long offset = 0;
+        long lineStart = 0;
+        try (BufferedInputStream input = new BufferedInputStream(Files.newInputStream(storeFile))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = input.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = line.toString(StandardCharsets.UTF_8);
+                int keyEnd = text.indexOf(FIELD_SEPARATOR);
+                CachedResult entry = parse(text);
+                if (entry != null && entry.expiresAt > now) {
+                    storeOffsets.put(text.substring(0, keyEnd), lineStart);
+                } else if (keyEnd > 0) {
+                    storeOffsets.remove(text.substring(0, keyEnd));
+                }
+                line.reset();
+                lineStart = offset;
+            }
+        }
+        if (lineStart < offset) {
+            // A write torn by a crash: cut it off so the next append starts on a line of its own
+            logger.warn("Truncating torn lookup cache entry at offset " + lineStart + " of " + storeFile);
+            store.setLength(lineStart);
+        }
+        logger.info("Loaded " + storeOffsets.size() + " cached lookups from " + storeFile);
+    }
+
+    private CachedResult readStoreEntry(long offset) {
+        try {
+            store.seek(offset);
+            byte[] buffer = new byte[STORE_READ_SIZE];
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int read;
+            while ((read = store.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        line.write(buffer, 0, i);
+                        return parse(line.toString(StandardCharsets.UTF_8));
+                    }
+                }
+                line.write(buffer, 0, read);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading lookup cache store: " + storeFile, e);
+        }
+    }
+
+    private static String format(String key, CachedResult entry) {
+        LookupResult result = entry.result;
+        return result.isRecognised()
+                ? String.join(FIELD_SEPARATOR, key, Long.toString(entry.expiresAt), RECOGNISED,
+                        result.registration(), result.make(), result.model(), result.year())
+                : String.join(FIELD_SEPARATOR, key, Long.toString(entry.expiresAt), NOT_RECOGNISED,
+                        result.registration(), result.message());
+    }
+
+    private static CachedResult parse(String line) {
+        String[] fields = line.split(FIELD_SEPARATOR, -1);
+        try {
+            if (fields.length == 7 && RECOGNISED.equals(fields[2])) {
+                return new CachedResult(LookupResult.found(fields[3], fields[4], fields[5], fields[6]), Long.parseLong(fields[1]));
+            }
+            if (fields.length == 5 && NOT_RECOGNISED.equals(fields[2])) {
+                return new CachedResult(LookupResult.notRecognised(fields[3], fields[4]), Long.parseLong(fields[1]));
+            }
+        } catch (NumberFormatException e) {
+            // Fall through: a torn or corrupt line is treated as absent
+        }
+        logger.warn("Ignoring malformed lookup cache entry: " + line);
+        return null;
+    }
+
+    /**
+     * Not recognised rows carry the registration as entered, so a cached one is re-labelled for the caller.
+     */
+    private static LookupResult forEnteredRegistration(LookupResult result, String registrationNumber) {
+        return result.isRecognised() ? result : LookupResult.notRecognised(registrationNumber, result.message());
+    }
+
+    private static LookupResult join(CompletableFuture<LookupResult> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class CachedResult {
+        private final LookupResult result;
+        private final long expiresAt;
+
+        private CachedResult(LookupResult result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
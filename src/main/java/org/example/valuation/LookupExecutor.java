@@ -0,0 +1,71 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs lookup tasks on a fixed number of worker threads.
+ * A worker that uses {@link DriverSingleton#getDriver()} owns that pooled WebDriver until it exits and returns it
+ * to the pool, unless {@link SeleniumVehicleLookup} swaps it for a fresh one between lookups because it needs recycling.
+ */
+public class LookupExecutor implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(LookupExecutor.class);
+    private static final long SHUTDOWN_TIMEOUT_MINUTES = 5;
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructor to initialize the LookupExecutor.
+     *
+     * @param parallelism the number of worker threads, and therefore browser sessions
+     */
+    public LookupExecutor(int parallelism) {
+        AtomicInteger workerCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    DriverSingleton.closeDriver();
+                }
+            }, "lookup-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Started lookup executor with " + parallelism + " workers");
+    }
+
+    /**
+     * Submits a task to run on one of the workers.
+     *
+     * @param task the task to run
+     * @param <T>  the task result type
+     * @return a future completed with the task result
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * Waits for submitted tasks to finish and stops the workers, returning their drivers to the pool.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
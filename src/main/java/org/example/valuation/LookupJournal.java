@@ -0,0 +1,321 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of completed lookups in front of another {@link VehicleLookup}, so that a run that dies
+ * can be resumed without repeating the lookups it finished.
+ * Each record holds the registration number as entered and its result, framed by its length and a CRC32 checksum.
+ * A lookup returns only once its record is on disk; one committer thread writes whatever records are waiting and
+ * forces them to disk with a single fsync, so concurrent lookups share the cost of syncing. On start the journal is
+ * replayed and registrations found in it are answered from it; a torn or corrupt tail left by a crash is cut off.
+ */
+public class LookupJournal implements VehicleLookup, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(LookupJournal.class);
+    private static final int MAGIC = 0x4C4B4A31; // "LKJ1"
+    private static final int FRAME_OVERHEAD = Integer.BYTES * 2;
+    private static final PendingRecord END_OF_INPUT = new PendingRecord(null);
+
+    private final VehicleLookup delegate;
+    private final Path journalFile;
+    private final int groupCommitSize;
+    private final FileChannel channel;
+    private final Map<String, LookupResult> completed = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to initialize the LookupJournal, replaying the journal file if it exists.
+     *
+     * @param delegate        the lookup to call for registrations not in the journal
+     * @param journalFile     the journal file
+     * @param groupCommitSize the maximum number of records written per fsync
+     * @throws IOException if the journal file cannot be read, repaired or opened
+     */
+    public LookupJournal(VehicleLookup delegate, Path journalFile, int groupCommitSize) throws IOException {
+        this.delegate = delegate;
+        this.journalFile = journalFile;
+        this.groupCommitSize = groupCommitSize;
+        if (journalFile.getParent() != null) {
+            Files.createDirectories(journalFile.getParent());
+        }
+        this.channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+        this.committer = new Thread(this::commitLoop, "lookup-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Returns the journaled result for the registration number, or looks it up and journals the result.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     * @throws UncheckedIOException if the result cannot be journaled
+     */
+    @Override
+    public LookupResult lookup(String registrationNumber) {
+        LookupResult result = completed.get(registrationNumber);
+        if (result != null) {
+            replayed.incrementAndGet();
+            return result;
+        }
+        result = delegate.lookup(registrationNumber);
+        append(registrationNumber, result);
+        return result;
+    }
+
+    /**
+     * Returns the number of lookups answered from the journal.
+     *
+     * @return the number of replayed lookups
+     */
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    /**
+     * Returns the number of records appended to the journal in this run.
+     *
+     * @return the number of appended records
+     */
+    public long getAppended() {
+        return appended.get();
+    }
+
+    /**
+     * Returns the number of fsyncs the appended records took.
+     *
+     * @return the number of group commits
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * Commits any waiting records and closes the journal file, keeping it for a resumed run.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(END_OF_INPUT);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing lookup journal", e);
+        } finally {
+            channel.close();
+        }
+        logger.info("Lookup journal: " + replayed.get() + " lookups replayed, " + appended.get() + " appended in "
+                + commits.get() + " commits");
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Closes the journal and deletes it, once the run it protects has finished.
+     *
+     * @throws IOException if the journal cannot be written or deleted
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(journalFile);
+    }
+
+    private void append(String registrationNumber, LookupResult result) {
+        if (closed) {
+            throw new IllegalStateException("Lookup journal is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Error writing lookup journal: " + journalFile, failure);
+        }
+        PendingRecord record = new PendingRecord(frame(registrationNumber, result));
+        queue.add(record);
+        try {
+            record.committed.join();
+        } catch (CompletionException e) {
+            throw new UncheckedIOException("Error writing lookup journal: " + journalFile, (IOException) e.getCause());
+        }
+        completed.put(registrationNumber, result);
+        appended.incrementAndGet();
+    }
+
+    private void commitLoop() {
+        List<PendingRecord> batch = new ArrayList<>(groupCommitSize);
+        boolean endOfInput = false;
+        try {
+            while (!endOfInput) {
+                batch.add(queue.take());
+                queue.drainTo(batch, groupCommitSize - 1);
+                if (batch.remove(END_OF_INPUT)) {
+                    endOfInput = true;
+                    queue.drainTo(batch);
+                }
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void commit(List<PendingRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            int size = 0;
+            for (PendingRecord record : batch) {
+                size += record.frame.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (PendingRecord record : batch) {
+                buffer.put(record.frame);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            commits.incrementAndGet();
+            for (PendingRecord record : batch) {
+                record.committed.complete(null);
+            }
+        } catch (IOException e) {
+            failure = e;
+            for (PendingRecord record : batch) {
+                record.committed.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Reads every intact record and cuts the file after the last one. A new file gets the journal header.
+     */
+    private void replay() throws IOException {
+        long size = channel.size();
+        if (size < Integer.BYTES) {
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).flip(), 0);
+            channel.force(false);
+            channel.position(Integer.BYTES);
+            return;
+        }
+        ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(journalFile));
+        if (contents.getInt() != MAGIC) {
+            throw new IOException("Not a lookup journal: " + journalFile);
+        }
+        long validEnd = contents.position();
+        while (contents.remaining() >= FRAME_OVERHEAD) {
+            int length = contents.getInt(contents.position());
+            if (length < 0 || length > contents.remaining() - FRAME_OVERHEAD) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            contents.position(contents.position() + Integer.BYTES);
+            contents.get(payload);
+            int checksum = contents.getInt();
+            if (checksum != crc(payload)) {
+                break;
+            }
+            readRecord(payload);
+            validEnd = contents.position();
+        }
+        if (validEnd < size) {
+            logger.warn("Cutting " + (size - validEnd) + " bytes of torn or corrupt records off " + journalFile);
+            channel.truncate(validEnd);
+            channel.force(false);
+        }
+        channel.position(validEnd);
+        logger.info("Replayed " + completed.size() + " completed lookups from " + journalFile);
+    }
+
+    private void readRecord(byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        String registrationNumber = input.readUTF();
+        completed.put(registrationNumber, new LookupResult(readNullable(input), readNullable(input), readNullable(input),
+                readNullable(input), readNullable(input)));
+    }
+
+    private static byte[] frame(String registrationNumber, LookupResult result) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeUTF(registrationNumber);
+            writeNullable(output, result.registration());
+            writeNullable(output, result.make());
+            writeNullable(output, result.model());
+            writeNullable(output, result.year());
+            writeNullable(output, result.message());
+            byte[] payload = bytes.toByteArray();
+            return ByteBuffer.allocate(payload.length + FRAME_OVERHEAD)
+                    .putInt(payload.length).put(payload).putInt(crc(payload)).array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static final class PendingRecord {
+        private final byte[] frame;
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        private PendingRecord(byte[] frame) {
+            this.frame = frame;
+        }
+    }
+}
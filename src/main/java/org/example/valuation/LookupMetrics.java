@@ -0,0 +1,360 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.TimeoutException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Run-level lookup metrics: a latency histogram per phase of a lookup, a counter per lookup outcome, a counter
+ * per scheduling decision and a gauge per browser session health reading.
+ * Recording is lock-free and allocation-free, so lookups can be instrumented on every call. At the end of a run
+ * the metrics are written as a JSON and a CSV report with percentiles and throughput, for comparing runs.
+ */
+public class LookupMetrics {
+    private static final Logger logger = LogManager.getLogger(LookupMetrics.class);
+    private static final double[] PERCENTILES = {0.50, 0.95, 0.99};
+
+    /**
+     * A timed part of a lookup.
+     */
+    public enum Phase {
+        /** Waiting for a rate-limit token and a concurrency slot. */
+        THROTTLE,
+        /** Checking a WebDriver out of the pool. */
+        ACQUIRE,
+        /** Loading the car checking page. */
+        NAVIGATE,
+        /** Entering and submitting the registration number. */
+        SUBMIT,
+        /** Waiting for the report, the error alert or a 404 page. */
+        OUTCOME_WAIT,
+        /** Reading the car details from the report. */
+        EXTRACT,
+        /** Handing the output row to the result sink. */
+        WRITE,
+        /** A whole lookup, from request to result. */
+        LOOKUP
+    }
+
+    /**
+     * How a lookup ended.
+     */
+    public enum Outcome {
+        /** The registration number was recognised. */
+        VALID,
+        /** The registration number was not recognised. */
+        INVALID,
+        /** The lookup timed out. */
+        TIMEOUT,
+        /** The lookup failed otherwise. */
+        ERROR
+    }
+
+    /**
+     * A decision taken by the lookup scheduler or the driver pool.
+     */
+    public enum Event {
+        /** A lookup attempt failed transiently and was retried. */
+        RETRY,
+        /** The site said it was rate limiting us. */
+        THROTTLED,
+        /** The concurrency limit was raised. */
+        LIMIT_INCREASE,
+        /** The concurrency limit was cut. */
+        LIMIT_DECREASE,
+        /** A browser session crossed a health threshold and was replaced. */
+        SESSION_RECYCLED
+    }
+
+    /**
+     * A browser session health reading, as last sampled by the driver pool.
+     */
+    public enum Gauge {
+        /** Live browser sessions. */
+        BROWSER_SESSIONS,
+        /** Resident memory of all sessions' driver and browser processes, in bytes. */
+        BROWSER_RSS_BYTES,
+        /** Open file handles of all sessions' driver and browser processes. */
+        BROWSER_OPEN_FILES,
+        /** The largest latency drift of any session, in percent of its first lookups' latency. */
+        MAX_LATENCY_DRIFT_PERCENT
+    }
+
+    private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+    private final Map<Event, LongAdder> events = new EnumMap<>(Event.class);
+    private final Map<Gauge, AtomicLong> gauges = new EnumMap<>(Gauge.class);
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Constructor to initialize the LookupMetrics. Throughput is measured from here.
+     */
+    public LookupMetrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+        for (Event event : Event.values()) {
+            events.put(event, new LongAdder());
+        }
+        for (Gauge gauge : Gauge.values()) {
+            gauges.put(gauge, new AtomicLong());
+        }
+    }
+
+    /**
+     * Records the time since a phase started.
+     *
+     * @param phase      the phase
+     * @param startNanos the {@link System#nanoTime()} at which the phase started
+     */
+    public void recordSince(Phase phase, long startNanos) {
+        phases.get(phase).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Counts a lookup outcome.
+     *
+     * @param outcome the outcome
+     */
+    public void count(Outcome outcome) {
+        outcomes.get(outcome).increment();
+    }
+
+    /**
+     * Counts a scheduling decision.
+     *
+     * @param event the decision
+     */
+    public void count(Event event) {
+        events.get(event).increment();
+    }
+
+    /**
+     * Sets a gauge to its latest reading.
+     *
+     * @param gauge the gauge
+     * @param value the reading
+     */
+    public void set(Gauge gauge, long value) {
+        gauges.get(gauge).set(value);
+    }
+
+    /**
+     * Returns the latest reading of a gauge.
+     *
+     * @param gauge the gauge
+     * @return the reading, 0 if never set
+     */
+    public long getGauge(Gauge gauge) {
+        return gauges.get(gauge).get();
+    }
+
+    /**
+     * Returns the latency histogram of a phase.
+     *
+     * @param phase the phase
+     * @return the histogram
+     */
+    public LatencyHistogram histogram(Phase phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * Returns the number of lookups with an outcome.
+     *
+     * @param outcome the outcome
+     * @return the count
+     */
+    public long getCount(Outcome outcome) {
+        return outcomes.get(outcome).sum();
+    }
+
+    /**
+     * Returns the number of times a scheduling decision was taken.
+     *
+     * @param event the decision
+     * @return the count
+     */
+    public long getCount(Event event) {
+        return events.get(event).sum();
+    }
+
+    /**
+     * Wraps a lookup so that every call is timed as a {@link Phase#LOOKUP} and its outcome counted.
+     *
+     * @param delegate the lookup to instrument
+     * @return the instrumented lookup
+     */
+    public VehicleLookup instrument(VehicleLookup delegate) {
+        return registrationNumber -> {
+            long start = System.nanoTime();
+            try {
+                LookupResult result = delegate.lookup(registrationNumber);
+                count(result.isRecognised() ? Outcome.VALID : Outcome.INVALID);
+                return result;
+            } catch (RuntimeException e) {
+                count(isTimeout(e) ? Outcome.TIMEOUT : Outcome.ERROR);
+                throw e;
+            } finally {
+                recordSince(Phase.LOOKUP, start);
+            }
+        };
+    }
+
+    private static boolean isTimeout(RuntimeException e) {
+        return e instanceof TimeoutException
+                || e instanceof UncheckedIOException && e.getCause() instanceof HttpTimeoutException;
+    }
+
+    /**
+     * Returns the completed lookups per second since these metrics were created.
+     *
+     * @return the throughput
+     */
+    public double throughput() {
+        long lookups = 0;
+        for (LongAdder adder : outcomes.values()) {
+            lookups += adder.sum();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? lookups / seconds : 0;
+    }
+
+    /**
+     * Writes the report as JSON: run start, elapsed time, throughput, outcome and decision counts, session health gauges
+     * and per-phase latencies in milliseconds.
+     *
+     * @param file the report file
+     * @throws IOException if the report cannot be written
+     */
+    public void writeJson(Path file) throws IOException {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"startedAt\": \"").append(startedAt).append("\",\n");
+        json.append("  \"elapsedMillis\": ").append((System.nanoTime() - startNanos) / 1_000_000).append(",\n");
+        json.append("  \"throughputPerSecond\": ").append(format(throughput())).append(",\n");
+        json.append("  \"outcomes\": {");
+        String separator = "\n";
+        for (Outcome outcome : Outcome.values()) {
+            json.append(separator).append("    \"").append(outcome).append("\": ").append(getCount(outcome));
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"events\": {");
+        separator = "\n";
+        for (Event event : Event.values()) {
+            json.append(separator).append("    \"").append(event).append("\": ").append(getCount(event));
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"gauges\": {");
+        separator = "\n";
+        for (Gauge gauge : Gauge.values()) {
+            json.append(separator).append("    \"").append(gauge).append("\": ").append(getGauge(gauge));
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"phases\": {");
+        separator = "\n";
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = phases.get(phase);
+            json.append(separator).append("    \"").append(phase).append("\": {\"count\": ").append(histogram.count())
+                    .append(", \"meanMillis\": ").append(millis(histogram.mean()));
+            for (double percentile : PERCENTILES) {
+                json.append(", \"p").append(Math.round(percentile * 100)).append("Millis\": ").append(millis(histogram.percentile(percentile)));
+            }
+            json.append(", \"maxMillis\": ").append(millis(histogram.max())).append('}');
+            separator = ",\n";
+        }
+        json.append("\n  }\n}\n");
+        write(file, json);
+    }
+
+    /**
+     * Writes the report as CSV, one row per phase, outcome, decision and gauge, with latencies in milliseconds.
+     *
+     * @param file the report file
+     * @throws IOException if the report cannot be written
+     */
+    public void writeCsv(Path file) throws IOException {
+        StringBuilder csv = new StringBuilder("METRIC,COUNT,MEAN_MS,P50_MS,P95_MS,P99_MS,MAX_MS\n");
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = phases.get(phase);
+            csv.append(phase).append(',').append(histogram.count()).append(',').append(millis(histogram.mean()));
+            for (double percentile : PERCENTILES) {
+                csv.append(',').append(millis(histogram.percentile(percentile)));
+            }
+            csv.append(',').append(millis(histogram.max())).append('\n');
+        }
+        for (Outcome outcome : Outcome.values()) {
+            csv.append(outcome).append(',').append(getCount(outcome)).append(",,,,,\n");
+        }
+        for (Event event : Event.values()) {
+            csv.append(event).append(',').append(getCount(event)).append(",,,,,\n");
+        }
+        for (Gauge gauge : Gauge.values()) {
+            csv.append(gauge).append(',').append(getGauge(gauge)).append(",,,,,\n");
+        }
+        csv.append("THROUGHPUT_PER_SECOND,").append(format(throughput())).append(",,,,,\n");
+        write(file, csv);
+    }
+
+    /**
+     * Logs the lookup count, throughput and the median and 99th percentile of every phase that was timed.
+     */
+    public void logSummary() {
+        StringBuilder summary = new StringBuilder("Lookup metrics: ").append(format(throughput())).append(" lookups/s");
+        for (Outcome outcome : Outcome.values()) {
+            summary.append(", ").append(getCount(outcome)).append(' ').append(outcome.name().toLowerCase(Locale.ROOT));
+        }
+        for (Event event : Event.values()) {
+            if (getCount(event) > 0) {
+                summary.append(", ").append(getCount(event)).append(' ').append(event.name().toLowerCase(Locale.ROOT));
+            }
+        }
+        if (getGauge(Gauge.BROWSER_SESSIONS) > 0) {
+            summary.append(", ").append(getGauge(Gauge.BROWSER_SESSIONS)).append(" browser sessions using ")
+                    .append(getGauge(Gauge.BROWSER_RSS_BYTES) / (1024 * 1024)).append(" MB");
+        }
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = phases.get(phase);
+            if (histogram.count() > 0) {
+                summary.append("; ").append(phase).append(" p50 ").append(millis(histogram.percentile(0.50)))
+                        .append(" ms, p99 ").append(millis(histogram.percentile(0.99))).append(" ms");
+            }
+        }
+        logger.info(summary.toString());
+    }
+
+    private static void write(Path file, CharSequence content) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.append(content);
+        }
+        logger.info("Written lookup metrics to " + file);
+    }
+
+    private static String millis(long nanos) {
+        return format(nanos / 1e6);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The lookup stage of the extract → lookup → write pipeline.
+ * Registrations are handed over one by one as the extractor finds them and wait in a bounded queue; when the queue
+ * is full, {@link #submit(String)} blocks, so a fast extractor is held back by the lookups instead of piling up work.
+ * A dispatcher thread starts each queued lookup once one of a fixed number of lookup slots is free, and completes
+ * its future, so the caller can hand the result straight on to the writer.
+ * Lookups run on virtual threads when the JVM has them (Java 21 and later), and on a fixed pool of platform threads
+ * otherwise. Each lookup returns its pooled WebDriver when it finishes, since a virtual thread lives for one task only.
+ */
+public class LookupPipeline implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(LookupPipeline.class);
+    private static final long SHUTDOWN_TIMEOUT_MINUTES = 5;
+    private static final PendingLookup END_OF_INPUT = new PendingLookup(null);
+
+    private final VehicleLookup lookup;
+    private final int concurrency;
+    private final BlockingQueue<PendingLookup> queue;
+    private final Semaphore slots;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Thread dispatcher;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong firstResultNanos = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Constructor to initialize the LookupPipeline and start its dispatcher.
+     *
+     * @param lookup        the lookup to run for each registration number
+     * @param concurrency   the number of lookups that may run at once
+     * @param queueCapacity the number of registration numbers that may wait for a lookup slot
+     * @param preferVirtual whether to run lookups on virtual threads when the JVM has them
+     */
+    public LookupPipeline(VehicleLookup lookup, int concurrency, int queueCapacity, boolean preferVirtual) {
+        this.lookup = lookup;
+        this.concurrency = concurrency;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.slots = new Semaphore(concurrency);
+        ExecutorService virtualExecutor = preferVirtual ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtualExecutor != null;
+        this.executor = virtualThreads ? virtualExecutor : newPlatformThreadExecutor(concurrency);
+        this.dispatcher = new Thread(this::dispatchLoop, "lookup-pipeline-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        logger.info("Started lookup pipeline with " + concurrency + " lookup slots on "
+                + (virtualThreads ? "virtual" : "platform") + " threads, queue capacity " + queueCapacity);
+    }
+
+    /**
+     * Queues a registration number for lookup, waiting while the queue is full.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return a future completed with the lookup result, or with the lookup's failure
+     * @throws IllegalStateException if the pipeline is closed or the caller is interrupted while waiting
+     */
+    public CompletableFuture<LookupResult> submit(String registrationNumber) {
+        if (closed) {
+            throw new IllegalStateException("Lookup pipeline is closed");
+        }
+        PendingLookup pending = new PendingLookup(registrationNumber);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing " + registrationNumber, e);
+        }
+        submitted.incrementAndGet();
+        return pending.result;
+    }
+
+    /**
+     * Returns whether lookups run on virtual threads.
+     *
+     * @return true on virtual threads, false on the platform thread fallback
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Returns how long after the pipeline started the first lookup finished.
+     *
+     * @return the time to the first result, or null if no lookup has finished yet
+     */
+    public Duration getTimeToFirstResult() {
+        long first = firstResultNanos.get();
+        return first == 0 ? null : Duration.ofNanos(first - startNanos);
+    }
+
+    /**
+     * Waits for every queued and running lookup to finish and stops the lookup threads.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(END_OF_INPUT);
+            dispatcher.join();
+            slots.acquire(concurrency);
+            slots.release(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        Duration firstResult = getTimeToFirstResult();
+        logger.info("Lookup pipeline: " + submitted.get() + " lookups, first result after "
+                + (firstResult == null ? "-" : firstResult.toMillis() + " ms") + ", finished after "
+                + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+    }
+
+    private void dispatchLoop() {
+        try {
+            for (PendingLookup pending = queue.take(); pending != END_OF_INPUT; pending = queue.take()) {
+                slots.acquire();
+                PendingLookup next = pending;
+                try {
+                    executor.execute(() -> run(next));
+                } catch (RuntimeException e) {
+                    slots.release();
+                    next.result.completeExceptionally(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(PendingLookup pending) {
+        try {
+            LookupResult result = lookup.lookup(pending.registrationNumber);
+            firstResultNanos.compareAndSet(0, System.nanoTime());
+            pending.result.complete(result);
+        } catch (RuntimeException | Error e) {
+            pending.result.completeExceptionally(e);
+        } finally {
+            DriverSingleton.closeDriver();
+            slots.release();
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor through reflection, so the code still compiles for Java 17.
+     *
+     * @return the executor, or null if the JVM has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads are not available on Java " + Runtime.version().feature()
+                    + ", using platform threads for lookups");
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor(int concurrency) {
+        AtomicInteger workerCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "lookup-pipeline-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class PendingLookup {
+        private final String registrationNumber;
+        private final CompletableFuture<LookupResult> result = new CompletableFuture<>();
+
+        private PendingLookup(String registrationNumber) {
+            this.registrationNumber = registrationNumber;
+        }
+    }
+}
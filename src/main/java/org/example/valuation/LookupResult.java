@@ -0,0 +1,97 @@
+package org.example.valuation;
+
+/**
+ * Outcome of a single registration lookup, as written to the output file.
+ *
+ * @param registration the registration reported by the site, or the one entered if it was not recognised
+ * @param make         the make of the car, or null if not recognised
+ * @param model        the model of the car, or null if not recognised
+ * @param year         the year of manufacture, or null if not recognised
+ * @param message      the error message shown by the site, or null if recognised
+ */
+public record LookupResult(String registration, String make, String model, String year, String message) {
+
+    public static final String NOT_RECOGNISED_MESSAGE = "The license plate number is not recognised";
+
+    /**
+     * Creates a result for a registration the site returned car details for.
+     *
+     * @param registration the registration reported by the site
+     * @param make         the make of the car
+     * @param model        the model of the car
+     * @param year         the year of manufacture
+     * @return the lookup result
+     */
+    public static LookupResult found(String registration, String make, String model, String year) {
+        return new LookupResult(registration, make, model, year, null);
+    }
+
+    /**
+     * Creates a result for a registration the site did not recognise.
+     *
+     * @param registration the registration that was entered
+     * @param message      the error message shown by the site
+     * @return the lookup result
+     */
+    public static LookupResult notRecognised(String registration, String message) {
+        return new LookupResult(registration, null, null, null, message);
+    }
+
+    /**
+     * Parses a line of the output file, as written by {@link #toRow()}. A row is a registration the site did not
+     * recognise, with everything after the registration as the message, unless it has the form of a recognised row:
+     * the make follows the registration, the year is the last field, and the model is everything in between,
+     * since models may contain commas. Site messages may contain commas too, so the known not recognised message
+     * and any row whose last field is not a year are read as not recognised.
+     *
+     * @param row the output row, without line separator
+     * @return the lookup result
+     * @throws IllegalArgumentException if the row has only one field
+     */
+    public static LookupResult fromRow(String row) {
+        int first = row.indexOf(',');
+        if (first < 0) {
+            throw new IllegalArgumentException("Not an output row: " + row);
+        }
+        String rest = row.substring(first + 1);
+        int second = row.indexOf(',', first + 1);
+        int last = row.lastIndexOf(',');
+        if (rest.equals(NOT_RECOGNISED_MESSAGE) || second < 0 || second == last || !isYear(row.substring(last + 1))) {
+            return notRecognised(row.substring(0, first), rest);
+        }
+        return found(row.substring(0, first), row.substring(first + 1, second), row.substring(second + 1, last),
+                row.substring(last + 1));
+    }
+
+    /**
+     * Returns whether the site returned car details for the registration.
+     *
+     * @return true if car details were found, false otherwise
+     */
+    public boolean isRecognised() {
+        return message == null;
+    }
+
+    /**
+     * Formats the result as a line of the output file, without line separator.
+     *
+     * @return the output row
+     */
+    public String toRow() {
+        return isRecognised()
+                ? String.format("%s,%s,%s,%s", registration, make, model, year)
+                : String.format("%s,%s", registration, message);
+    }
+
+    private static boolean isYear(String field) {
+        if (field.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            if (!Character.isDigit(field.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
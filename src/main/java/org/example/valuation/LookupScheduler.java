@@ -0,0 +1,279 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.TimeoutException;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Paces lookups against the car checking site.
+ * Every attempt takes a token from a token bucket, which caps the request rate, and a slot under an adaptive
+ * concurrency limit. The limit follows AIMD: it grows by one slot per limit's worth of fast, successful lookups,
+ * and halves when a lookup is slower than the latency target, the site throttles us, or the recent transient error
+ * rate passes its maximum. Transient failures are retried after a jittered exponential backoff.
+ * Waits, retries and limit changes are recorded in the lookup metrics.
+ */
+public class LookupScheduler implements VehicleLookup {
+    private static final Logger logger = LogManager.getLogger(LookupScheduler.class);
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double ERROR_RATE_WEIGHT = 0.1;
+
+    /**
+     * The scheduler's limits.
+     *
+     * @param ratePerSecond      the sustained lookup attempts per second, or 0 for no rate limit
+     * @param burst              the attempts that may start at once after an idle spell
+     * @param minConcurrency     the lowest concurrency limit
+     * @param initialConcurrency the concurrency limit at the start
+     * @param maxConcurrency     the highest concurrency limit
+     * @param latencyTarget      the lookup latency above which the limit is cut
+     * @param maxErrorRate       the recent transient error rate above which the limit is cut, between 0 and 1
+     * @param maxAttempts        the attempts per lookup, including the first
+     * @param backoffBase        the backoff ceiling after the first failed attempt, doubled for each further one
+     * @param backoffCap         the highest backoff ceiling
+     */
+    public record Limits(double ratePerSecond, int burst, int minConcurrency, int initialConcurrency, int maxConcurrency,
+                         Duration latencyTarget, double maxErrorRate, int maxAttempts, Duration backoffBase, Duration backoffCap) {
+
+        /**
+         * Reads the limits from the {@code scheduler.*} configuration keys.
+         *
+         * @param config         the configuration settings
+         * @param maxConcurrency the highest concurrency limit, usually the number of lookup workers
+         * @return the limits
+         */
+        public static Limits fromConfig(Settings config, int maxConcurrency) {
+            return new Limits(
+                    config.getDouble("scheduler.ratePerSecond", 0),
+                    config.getInt("scheduler.burst", maxConcurrency),
+                    config.getInt("scheduler.minConcurrency", 1),
+                    Math.min(maxConcurrency, config.getInt("scheduler.initialConcurrency", maxConcurrency)),
+                    maxConcurrency,
+                    Duration.ofMillis(config.getLong("scheduler.latencyTargetMillis", 10000)),
+                    config.getDouble("scheduler.maxErrorRate", 0.2),
+                    config.getInt("scheduler.maxAttempts", 3),
+                    Duration.ofMillis(config.getLong("scheduler.backoffBaseMillis", 500)),
+                    Duration.ofMillis(config.getLong("scheduler.backoffCapMillis", 10000)));
+        }
+    }
+
+    private final VehicleLookup delegate;
+    private final Limits limits;
+    private final LookupMetrics metrics;
+    private final TokenBucket tokenBucket;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private double concurrencyLimit;
+    private int inFlight;
+    private double errorRate;
+    private long lastDecreaseNanos;
+
+    /**
+     * Constructor to initialize the LookupScheduler.
+     *
+     * @param delegate the lookup to pace
+     * @param limits   the rate, concurrency and retry limits
+     * @param metrics  records waits, retries and limit changes
+     */
+    public LookupScheduler(VehicleLookup delegate, Limits limits, LookupMetrics metrics) {
+        this.delegate = delegate;
+        this.limits = limits;
+        this.metrics = metrics;
+        this.tokenBucket = limits.ratePerSecond() > 0 ? new TokenBucket(limits.ratePerSecond(), limits.burst()) : null;
+        this.concurrencyLimit = limits.initialConcurrency();
+        this.lastDecreaseNanos = System.nanoTime() - limits.latencyTarget().toNanos();
+        logger.info("Scheduling lookups with " + limits);
+    }
+
+    /**
+     * Looks up a registration number once a token and a concurrency slot are free, retrying transient failures.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     * @throws RuntimeException the last failure, once it is not transient or the attempts are used up
+     */
+    @Override
+    public LookupResult lookup(String registrationNumber) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            if (tokenBucket != null) {
+                sleep(tokenBucket.reserve());
+            }
+            acquireSlot();
+            metrics.recordSince(LookupMetrics.Phase.THROTTLE, start);
+            long attemptStart = System.nanoTime();
+            RuntimeException failure;
+            try {
+                LookupResult result = delegate.lookup(registrationNumber);
+                onSuccess(System.nanoTime() - attemptStart);
+                return result;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                onTransientFailure(e instanceof TransientLookupException && ((TransientLookupException) e).isThrottled());
+                if (attempt >= limits.maxAttempts()) {
+                    throw e;
+                }
+                failure = e;
+            } finally {
+                releaseSlot();
+            }
+            metrics.count(LookupMetrics.Event.RETRY);
+            logger.warn("Retrying " + registrationNumber + " after attempt " + attempt + " failed: " + failure.getMessage());
+            sleep(backoff(attempt, failure).toNanos());
+        }
+    }
+
+    /**
+     * Returns the current concurrency limit.
+     *
+     * @return the number of lookups that may run at once
+     */
+    public int getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return (int) concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientLookupException || e instanceof TimeoutException || e instanceof UncheckedIOException;
+    }
+
+    /**
+     * Returns a random backoff between zero and the ceiling for the attempt, so that retries of lookups
+     * that failed together do not arrive together. A wait the site asked for is always honoured.
+     */
+    private Duration backoff(int attempt, RuntimeException failure) {
+        long ceiling = Math.min(limits.backoffCap().toNanos(), limits.backoffBase().toNanos() << Math.min(attempt - 1, 30));
+        Duration backoff = Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        if (failure instanceof TransientLookupException) {
+            Duration retryAfter = ((TransientLookupException) failure).getRetryAfter();
+            if (retryAfter != null && retryAfter.compareTo(backoff) > 0) {
+                return retryAfter;
+            }
+        }
+        return backoff;
+    }
+
+    private void acquireSlot() {
+        lock.lock();
+        try {
+            while (inFlight >= (int) concurrencyLimit) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a lookup slot", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            errorRate *= 1 - ERROR_RATE_WEIGHT;
+            if (latencyNanos > limits.latencyTarget().toNanos()) {
+                decrease("lookup took " + latencyNanos / 1_000_000 + " ms");
+            } else if (concurrencyLimit < limits.maxConcurrency()) {
+                int before = (int) concurrencyLimit;
+                concurrencyLimit = Math.min(limits.maxConcurrency(), concurrencyLimit + 1 / concurrencyLimit);
+                if ((int) concurrencyLimit > before) {
+                    metrics.count(LookupMetrics.Event.LIMIT_INCREASE);
+                    logger.info("Raised lookup concurrency limit to " + (int) concurrencyLimit);
+                    slotFreed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onTransientFailure(boolean throttled) {
+        lock.lock();
+        try {
+            errorRate = errorRate * (1 - ERROR_RATE_WEIGHT) + ERROR_RATE_WEIGHT;
+            if (throttled) {
+                metrics.count(LookupMetrics.Event.THROTTLED);
+                decrease("site is throttling");
+            } else if (errorRate > limits.maxErrorRate()) {
+                decrease("transient error rate is " + String.format("%.2f", errorRate));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Halves the limit, at most once per latency target, so that the lookups caught in one overload
+     * cut the limit once rather than each on their own. Called with the lock held.
+     */
+    private void decrease(String reason) {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < limits.latencyTarget().toNanos() || concurrencyLimit <= limits.minConcurrency()) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        concurrencyLimit = Math.max(limits.minConcurrency(), Math.floor(concurrencyLimit * DECREASE_FACTOR));
+        metrics.count(LookupMetrics.Event.LIMIT_DECREASE);
+        logger.warn("Cut lookup concurrency limit to " + (int) concurrencyLimit + ": " + reason);
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while pacing lookups", e);
+        }
+    }
+
+    /**
+     * Token bucket that hands out reservations: a caller takes a token even when none is left and waits
+     * until the bucket would have refilled it, so callers are served in arrival order at the configured rate.
+     */
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefillNanos;
+
+        private TokenBucket(double ratePerSecond, int burst) {
+            this.tokensPerNano = ratePerSecond / 1e9;
+            this.capacity = Math.max(1, burst);
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WindowType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up registration numbers in several tabs of one browser session, so page loads overlap without
+ * a browser per concurrent lookup.
+ * Callers on any thread queue their lookups; one driver thread checks a WebDriver out of a pool and visits the tabs
+ * in turn.
+ * An idle tab takes the next queued lookup and starts loading the car checking page; a loaded tab gets the
+ * registration number entered and the form submitted without waiting for the next page; a submitted tab is probed
+ * for its outcome and, once there is one, its result is read and handed to the caller that queued it.
+ * Before a tab navigates, its old page is marked stale, so a step never acts on the page being left.
+ */
+public class MultiTabVehicleLookup implements VehicleLookup, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(MultiTabVehicleLookup.class);
+    private static final Duration FORM_TIMEOUT = Duration.ofSeconds(5);
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long BUSY_POLL_MILLIS = 20;
+    private static final String NAVIGATE_SCRIPT = "document.documentElement.setAttribute('data-stale', '1');"
+            + "var url = arguments[0]; setTimeout(function () { window.location.href = url; }, 0);";
+    private static final String MARK_STALE_SCRIPT = "document.documentElement.setAttribute('data-stale', '1');";
+    private static final String IS_STALE_SCRIPT = "return document.documentElement.hasAttribute('data-stale')"
+            + " || document.readyState === 'loading';";
+    private static final String FORM_READY_SCRIPT = "return !document.documentElement.hasAttribute('data-stale')"
+            + " && document.readyState !== 'loading' && !!document.getElementById('subForm1');";
+    private static final PendingLookup END_OF_INPUT = new PendingLookup(null);
+
+    private final String carCheckingUrl;
+    private final DriverPool pool;
+    private final OutcomeDetector outcomeDetector;
+    private final LookupMetrics metrics;
+    private final int tabCount;
+    private final BlockingQueue<PendingLookup> queue = new LinkedBlockingQueue<>();
+    private final Thread driverThread;
+    private WebDriver session;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to initialize the MultiTabVehicleLookup on the shared driver pool, with an outcome detector configured
+     * from the shared settings, recording phase timings in the run's lookup metrics, and start its driver thread.
+     *
+     * @param carCheckingUrl the URL of the car checking page
+     * @param tabs           the number of tabs to run lookups in
+     */
+    public MultiTabVehicleLookup(String carCheckingUrl, int tabs) {
+        this(carCheckingUrl, tabs, DriverSingleton.getPool(), OutcomeDetector.fromConfig(DriverSingleton.getSettings()),
+                DriverSingleton.getMetrics());
+    }
+
+    /**
+     * Constructor to initialize the MultiTabVehicleLookup and start its driver thread.
+     *
+     * @param carCheckingUrl  the URL of the car checking page
+     * @param tabs            the number of tabs to run lookups in
+     * @param pool            the pool the browser session is checked out of
+     * @param outcomeDetector probes each tab for the page its lookup ended on
+     * @param metrics         records how long each phase of a lookup takes
+     */
+    public MultiTabVehicleLookup(String carCheckingUrl, int tabs, DriverPool pool, OutcomeDetector outcomeDetector,
+                                 LookupMetrics metrics) {
+        this.carCheckingUrl = carCheckingUrl;
+        this.pool = pool;
+        this.tabCount = tabs;
+        this.outcomeDetector = outcomeDetector;
+        this.metrics = metrics;
+        this.driverThread = new Thread(this::driveTabs, "multi-tab-driver");
+        driverThread.setDaemon(true);
+        driverThread.start();
+    }
+
+    /**
+     * Queues a lookup for the next free tab and waits for its result.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     * @throws TimeoutException         if the page or its outcome does not appear in time
+     * @throws TransientLookupException if the site returns a 429 page
+     * @throws IllegalStateException    if the site returns a 404 page or a report for another registration,
+     *                                  or the lookup is closed
+     */
+    @Override
+    public LookupResult lookup(String registrationNumber) {
+        if (closed) {
+            throw new IllegalStateException("Multi-tab lookup is closed");
+        }
+        PendingLookup pending = new PendingLookup(registrationNumber);
+        queue.add(pending);
+        if (closed && queue.remove(pending)) {
+            // Closed while queuing: the driver thread may already have drained the queue, so nobody else will fail it
+            pending.result.completeExceptionally(new IllegalStateException("Multi-tab lookup is closed"));
+        }
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Lets the lookups already queued finish, then closes the extra tabs and returns the WebDriver to the pool.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(END_OF_INPUT);
+        try {
+            driverThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void driveTabs() {
+        WebDriver driver;
+        try {
+            long start = System.nanoTime();
+            driver = pool.checkout();
+            metrics.recordSince(LookupMetrics.Phase.ACQUIRE, start);
+            session = driver;
+        } catch (RuntimeException e) {
+            logger.error("Could not start a browser for multi-tab lookups", e);
+            closed = true;
+            failQueued(new IllegalStateException("Multi-tab lookup could not start a browser", e));
+            return;
+        }
+        List<Tab> tabs = new ArrayList<>(tabCount);
+        try {
+            tabs.add(new Tab(driver.getWindowHandle()));
+            for (int i = 1; i < tabCount; i++) {
+                tabs.add(new Tab(driver.switchTo().newWindow(WindowType.TAB).getWindowHandle()));
+            }
+            logger.info("Driving lookups in " + tabCount + " tabs of one browser session");
+            boolean endOfInput = false;
+            while (!endOfInput || tabs.stream().anyMatch(tab -> tab.pending != null)) {
+                boolean progressed = false;
+                for (Tab tab : tabs) {
+                    if (tab.pending == null && !endOfInput) {
+                        PendingLookup next = queue.poll();
+                        if (next == END_OF_INPUT) {
+                            endOfInput = true;
+                        } else if (next != null) {
+                            start(driver, tab, next);
+                            progressed = true;
+                        }
+                    } else if (tab.pending != null) {
+                        progressed |= step(driver, tab);
+                    }
+                }
+                if (!progressed) {
+                    Tab idle = endOfInput ? null : tabs.stream().filter(tab -> tab.pending == null).findFirst().orElse(null);
+                    if (idle == null) {
+                        Thread.sleep(BUSY_POLL_MILLIS);
+                        continue;
+                    }
+                    boolean allIdle = tabs.stream().allMatch(tab -> tab.pending == null);
+                    PendingLookup next = queue.poll(allIdle ? IDLE_POLL_MILLIS : BUSY_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (next == END_OF_INPUT) {
+                        endOfInput = true;
+                    } else if (next != null) {
+                        start(driver, idle, next);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Multi-tab driver thread failed", e);
+        } finally {
+            closed = true;
+            RuntimeException failure = new IllegalStateException("Multi-tab lookup stopped");
+            tabs.stream().filter(tab -> tab.pending != null).forEach(tab -> tab.pending.result.completeExceptionally(failure));
+            failQueued(failure);
+            closeExtraTabs(driver, tabs);
+            pool.release(driver);
+        }
+    }
+
+    private void failQueued(RuntimeException failure) {
+        for (PendingLookup pending = queue.poll(); pending != null; pending = queue.poll()) {
+            if (pending != END_OF_INPUT) {
+                pending.result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void start(WebDriver driver, Tab tab, PendingLookup pending) {
+        tab.pending = pending;
+        tab.state = TabState.LOADING;
+        tab.phaseStart = System.nanoTime();
+        tab.lookupStart = tab.phaseStart;
+        tab.deadline = tab.phaseStart + FORM_TIMEOUT.toNanos();
+        try {
+            driver.switchTo().window(tab.handle);
+            ((JavascriptExecutor) driver).executeScript(NAVIGATE_SCRIPT, carCheckingUrl);
+        } catch (WebDriverException e) {
+            finish(tab, null, e);
+        }
+    }
+
+    /**
+     * Moves a busy tab on by one step if its page is ready for it.
+     *
+     * @return whether the tab made progress
+     */
+    private boolean step(WebDriver driver, Tab tab) {
+        long now = System.nanoTime();
+        try {
+            driver.switchTo().window(tab.handle);
+            JavascriptExecutor script = (JavascriptExecutor) driver;
+            if (tab.state == TabState.LOADING) {
+                if (!Boolean.TRUE.equals(script.executeScript(FORM_READY_SCRIPT))) {
+                    return timeOut(tab, now, "The car checking page did not load within " + FORM_TIMEOUT.toMillis() + " ms");
+                }
+                metrics.recordSince(LookupMetrics.Phase.NAVIGATE, tab.phaseStart);
+                long submitStart = System.nanoTime();
+                CarCheckingPage carCheckingPage = new CarCheckingPage(driver);
+                carCheckingPage.enterRegistrationNumber(tab.pending.registrationNumber);
+                script.executeScript(MARK_STALE_SCRIPT);
+                carCheckingPage.submitFormWithoutWaiting();
+                metrics.recordSince(LookupMetrics.Phase.SUBMIT, submitStart);
+                tab.state = TabState.SUBMITTED;
+                tab.phaseStart = System.nanoTime();
+                tab.deadline = tab.phaseStart + outcomeDetector.currentTimeout().toNanos();
+                return true;
+            }
+            OutcomeDetector.Outcome outcome = Boolean.TRUE.equals(script.executeScript(IS_STALE_SCRIPT))
+                    ? null : outcomeDetector.probe(driver);
+            if (outcome == null) {
+                if (now >= tab.deadline) {
+                    // A timed-out lookup counts as a response as slow as the timeout, as in OutcomeDetector.await
+                    outcomeDetector.recordResponse(tab.deadline - tab.phaseStart);
+                }
+                return timeOut(tab, now, "No outcome appeared within " + (tab.deadline - tab.phaseStart) / 1_000_000 + " ms");
+            }
+            outcomeDetector.recordResponse(now - tab.phaseStart);
+            metrics.recordSince(LookupMetrics.Phase.OUTCOME_WAIT, tab.phaseStart);
+            long extractStart = System.nanoTime();
+            try {
+                finish(tab, harvest(driver, tab.pending.registrationNumber, outcome), null);
+            } finally {
+                metrics.recordSince(LookupMetrics.Phase.EXTRACT, extractStart);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            finish(tab, null, e);
+            return true;
+        }
+    }
+
+    private boolean timeOut(Tab tab, long now, String message) {
+        if (now < tab.deadline) {
+            return false;
+        }
+        logger.warn(message + " for " + tab.pending.registrationNumber);
+        finish(tab, null, new TimeoutException(message));
+        return true;
+    }
+
+    /**
+     * Reads the result of the page a tab's lookup ended on, checking that a report is for the registration
+     * the tab looked up.
+     */
+    private static LookupResult harvest(WebDriver driver, String registrationNumber, OutcomeDetector.Outcome outcome) {
+        switch (outcome) {
+            case THROTTLED:
+                throw new TransientLookupException("Car checking site is rate limiting lookups, at " + registrationNumber, true, null);
+            case NOT_FOUND:
+                throw new IllegalStateException("Car checking site returned a 404 page for " + registrationNumber);
+            case ERROR_ALERT:
+                String alertMessage = new CarCheckingPage(driver).getErrorMessage();
+                if (alertMessage != null) {
+                    logger.info("Entered Registration Number: " + registrationNumber);
+                    return LookupResult.notRecognised(registrationNumber, alertMessage);
+                }
+                break;
+            default:
+                break;
+        }
+        VehicleReport report = new CarReportPage(driver).readReport();
+        if (!Registrations.canonical(report.registrationNumber()).equals(Registrations.canonical(registrationNumber))) {
+            throw new IllegalStateException("Tab showed the report for " + report.registrationNumber() + " while looking up "
+                    + registrationNumber);
+        }
+        logger.info("Extracted details - RegNumber: " + report.registrationNumber() + ", Make: " + report.make()
+                + ", Model: " + report.model() + ", Year: " + report.yearOfManufacture());
+        return report.toLookupResult();
+    }
+
+    private void finish(Tab tab, LookupResult result, RuntimeException failure) {
+        pool.recordLookup(session, System.nanoTime() - tab.lookupStart);
+        PendingLookup pending = tab.pending;
+        tab.pending = null;
+        tab.state = TabState.IDLE;
+        if (failure != null) {
+            pending.result.completeExceptionally(failure);
+        } else {
+            pending.result.complete(result);
+        }
+    }
+
+    private static void closeExtraTabs(WebDriver driver, List<Tab> tabs) {
+        try {
+            for (int i = tabs.size() - 1; i > 0; i--) {
+                driver.switchTo().window(tabs.get(i).handle);
+                driver.close();
+            }
+            if (!tabs.isEmpty()) {
+                driver.switchTo().window(tabs.get(0).handle);
+            }
+        } catch (WebDriverException e) {
+            logger.warn("Could not close the extra tabs", e);
+        }
+    }
+
+    private enum TabState {
+        IDLE,
+        LOADING,
+        SUBMITTED
+    }
+
+    private static final class Tab {
+        private final String handle;
+        private TabState state = TabState.IDLE;
+        private PendingLookup pending;
+        private long phaseStart;
+        private long lookupStart;
+        private long deadline;
+
+        private Tab(String handle) {
+            this.handle = handle;
+        }
+    }
+
+    private static final class PendingLookup {
+        private final String registrationNumber;
+        private final CompletableFuture<LookupResult> result = new CompletableFuture<>();
+
+        private PendingLookup(String registrationNumber) {
+            this.registrationNumber = registrationNumber;
+        }
+    }
+}
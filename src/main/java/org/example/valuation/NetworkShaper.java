@@ -0,0 +1,187 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.devtools.v85.fetch.Fetch;
+import org.openqa.selenium.devtools.v85.fetch.model.RequestPattern;
+import org.openqa.selenium.devtools.v85.fetch.model.RequestStage;
+import org.openqa.selenium.devtools.v85.network.Network;
+import org.openqa.selenium.devtools.v85.network.model.ErrorReason;
+import org.openqa.selenium.devtools.v85.network.model.ResourceType;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.remote.AbstractDriverOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps browser sessions from downloading what the lookups never read.
+ * Sessions can run headless and with an eager or no page-load strategy, and on Chromium browsers requests for
+ * blocked resource types and URL patterns are failed through the DevTools Fetch domain before they are sent.
+ * Page loads, bytes received and requests blocked are counted across all sessions.
+ */
+public class NetworkShaper {
+    private static final Logger logger = LogManager.getLogger(NetworkShaper.class);
+
+    private final boolean headless;
+    private final PageLoadStrategy pageLoadStrategy;
+    private final List<ResourceType> blockedResourceTypes;
+    private final List<String> blockedUrlPatterns;
+    private final AtomicLong pageLoads = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong requestsBlocked = new AtomicLong();
+
+    /**
+     * Constructor to initialize the NetworkShaper.
+     *
+     * @param headless             whether browsers run without a window
+     * @param pageLoadStrategy     when navigation returns: after the load event, after DOMContentLoaded, or at once
+     * @param blockedResourceTypes the resource types to block, by their DevTools names such as {@code Image}
+     * @param blockedUrlPatterns   the URL patterns to block, with {@code *} wildcards
+     */
+    public NetworkShaper(boolean headless, PageLoadStrategy pageLoadStrategy, List<String> blockedResourceTypes, List<String> blockedUrlPatterns) {
+        this.headless = headless;
+        this.pageLoadStrategy = pageLoadStrategy;
+        this.blockedResourceTypes = blockedResourceTypes.stream().map(ResourceType::fromString).collect(Collectors.toList());
+        this.blockedUrlPatterns = List.copyOf(blockedUrlPatterns);
+    }
+
+    /**
+     * Creates a NetworkShaper from the {@code browser.*} and {@code network.*} configuration keys.
+     *
+     * @param config the configuration settings
+     * @return the network shaper
+     */
+    public static NetworkShaper fromConfig(Settings config) {
+        return new NetworkShaper(
+                config.getBoolean("browser.headless", false),
+                PageLoadStrategy.fromString(config.getString("browser.pageLoadStrategy", "normal")),
+                config.getList("network.blockedResourceTypes"),
+                config.getList("network.blockedUrlPatterns"));
+    }
+
+    /**
+     * Applies the headless mode and page-load strategy to Chrome options.
+     *
+     * @param options the options to configure
+     * @return the same options
+     */
+    public ChromeOptions configure(ChromeOptions options) {
+        if (headless) {
+            options.addArguments("--headless=new");
+        }
+        return withPageLoadStrategy(options);
+    }
+
+    /**
+     * Applies the headless mode and page-load strategy to Firefox options.
+     *
+     * @param options the options to configure
+     * @return the same options
+     */
+    public FirefoxOptions configure(FirefoxOptions options) {
+        if (headless) {
+            options.addArguments("-headless");
+        }
+        return withPageLoadStrategy(options);
+    }
+
+    /**
+     * Applies the page-load strategy to other browser options.
+     *
+     * @param options the options to configure
+     * @param <T>     the options type
+     * @return the same options
+     */
+    public <T extends AbstractDriverOptions<?>> T withPageLoadStrategy(T options) {
+        options.setPageLoadStrategy(pageLoadStrategy);
+        return options;
+    }
+
+    /**
+     * Starts blocking requests and counting traffic in a new browser session.
+     * Browsers without DevTools support keep their full traffic.
+     *
+     * @param driver the new browser session
+     */
+    public void attach(WebDriver driver) {
+        if (!(driver instanceof HasDevTools)) {
+            if (!blockedResourceTypes.isEmpty() || !blockedUrlPatterns.isEmpty()) {
+                logger.warn("Request blocking needs DevTools, which " + driver.getClass().getSimpleName() + " does not support");
+            }
+            return;
+        }
+        DevTools devTools = ((HasDevTools) driver).getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+        devTools.send(Network.enable(Optional.empty(), Optional.empty(), Optional.empty()));
+        devTools.addListener(Network.responseReceived(), response -> {
+            if (response.getType() == ResourceType.DOCUMENT) {
+                pageLoads.incrementAndGet();
+            }
+        });
+        devTools.addListener(Network.loadingFinished(), finished -> bytesReceived.addAndGet(finished.getEncodedDataLength().longValue()));
+
+        List<RequestPattern> patterns = new ArrayList<>();
+        for (ResourceType resourceType : blockedResourceTypes) {
+            patterns.add(new RequestPattern(Optional.of("*"), Optional.of(resourceType), Optional.of(RequestStage.REQUEST)));
+        }
+        for (String urlPattern : blockedUrlPatterns) {
+            patterns.add(new RequestPattern(Optional.of(urlPattern), Optional.empty(), Optional.of(RequestStage.REQUEST)));
+        }
+        if (!patterns.isEmpty()) {
+            // Only blocked requests match the patterns, so every paused request is failed
+            devTools.addListener(Fetch.requestPaused(), paused -> {
+                requestsBlocked.incrementAndGet();
+                devTools.send(Fetch.failRequest(paused.getRequestId(), ErrorReason.BLOCKEDBYCLIENT));
+            });
+            devTools.send(Fetch.enable(Optional.of(patterns), Optional.of(false)));
+        }
+    }
+
+    /**
+     * Returns the number of documents loaded by attached sessions.
+     *
+     * @return the number of page loads
+     */
+    public long getPageLoads() {
+        return pageLoads.get();
+    }
+
+    /**
+     * Returns the number of bytes attached sessions received over the network.
+     *
+     * @return the number of bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Returns the number of requests attached sessions blocked.
+     *
+     * @return the number of requests blocked
+     */
+    public long getRequestsBlocked() {
+        return requestsBlocked.get();
+    }
+
+    /**
+     * Logs the traffic counted so far, per page load.
+     */
+    public void logStats() {
+        long loads = pageLoads.get();
+        logger.info("Network: " + loads + " page loads, " + bytesReceived.get() + " bytes received"
+                + (loads > 0 ? " (" + bytesReceived.get() / loads + " per page load)" : "")
+                + ", " + requestsBlocked.get() + " requests blocked"
+                + (loads > 0 ? " (" + String.format(Locale.ROOT, "%.1f", (double) requestsBlocked.get() / loads) + " per page load)" : ""));
+    }
+}
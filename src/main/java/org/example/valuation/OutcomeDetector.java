@@ -0,0 +1,160 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.FluentWait;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Waits for whichever outcome of a page load appears first: the car report, the error alert, a 429 page or a 404 page.
+ * All three are probed together by one script per poll, so no lookup waits out the timeout of an outcome that
+ * did not happen. The timeout follows the observed response times: once enough have been seen it is a percentile
+ * of the recent ones times a headroom factor, kept between a minimum and a maximum.
+ */
+public class OutcomeDetector {
+    private static final Logger logger = LogManager.getLogger(OutcomeDetector.class);
+    private static final Duration POLLING_INTERVAL = Duration.ofMillis(50);
+    private static final int SAMPLE_WINDOW = 200;
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * Returns the first outcome present, or null. A page counts as a 429 or 404 page when its title or main heading says so.
+     */
+    private static final String PROBE_SCRIPT =
+            "if (document.querySelector('.alert.alert-danger')) { return 'ERROR_ALERT'; }"
+            + "if (document.getElementById('subForm')) { return 'REPORT'; }"
+            + "var heading = document.querySelector('h1');"
+            + "var text = document.title + ' ' + (heading ? heading.textContent : '');"
+            + "if (/\\b429\\b|too many requests/i.test(text)) { return 'THROTTLED'; }"
+            + "if (/\\b404\\b|not found/i.test(text)) { return 'NOT_FOUND'; }"
+            + "return null;";
+
+    /**
+     * The page a lookup ended on.
+     */
+    public enum Outcome {
+        /** The car report page. */
+        REPORT,
+        /** The car checking page with its error alert. */
+        ERROR_ALERT,
+        /** A 429 page: the site is rate limiting us. */
+        THROTTLED,
+        /** A 404 page. */
+        NOT_FOUND
+    }
+
+    private final Duration initialTimeout;
+    private final Duration minTimeout;
+    private final Duration maxTimeout;
+    private final double percentile;
+    private final double headroom;
+    private final long[] samples = new long[SAMPLE_WINDOW];
+    private int sampleCount;
+    private int nextSample;
+
+    /**
+     * Constructor to initialize the OutcomeDetector.
+     *
+     * @param initialTimeout the timeout used until enough response times have been observed
+     * @param minTimeout     the shortest timeout
+     * @param maxTimeout     the longest timeout
+     * @param percentile     the response time percentile the timeout is based on, between 0 and 1
+     * @param headroom       the factor the percentile is multiplied by
+     */
+    public OutcomeDetector(Duration initialTimeout, Duration minTimeout, Duration maxTimeout, double percentile, double headroom) {
+        this.initialTimeout = initialTimeout;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.percentile = percentile;
+        this.headroom = headroom;
+    }
+
+    /**
+     * Creates an OutcomeDetector from the {@code outcome.*} configuration keys.
+     *
+     * @param config the configuration settings
+     * @return the outcome detector
+     */
+    public static OutcomeDetector fromConfig(Settings config) {
+        return new OutcomeDetector(
+                Duration.ofMillis(config.getLong("outcome.initialTimeoutMillis", 3000)),
+                Duration.ofMillis(config.getLong("outcome.minTimeoutMillis", 500)),
+                Duration.ofMillis(config.getLong("outcome.maxTimeoutMillis", 10000)),
+                config.getDouble("outcome.timeoutPercentile", 0.99),
+                config.getDouble("outcome.timeoutHeadroom", 2.0));
+    }
+
+    /**
+     * Waits for the first outcome to appear and records how long it took.
+     *
+     * @param driver the WebDriver instance, which must be able to execute scripts
+     * @return the outcome
+     * @throws TimeoutException if no outcome appears within the current timeout
+     */
+    public Outcome await(WebDriver driver) {
+        Duration timeout = currentTimeout();
+        long start = System.nanoTime();
+        try {
+            String outcome = new FluentWait<>(driver)
+                    .withTimeout(timeout)
+                    .pollingEvery(POLLING_INTERVAL)
+                    .until(d -> (String) ((JavascriptExecutor) d).executeScript(PROBE_SCRIPT));
+            record(System.nanoTime() - start);
+            return Outcome.valueOf(outcome);
+        } catch (TimeoutException e) {
+            // A timed-out wait counts as a response at least as slow as the timeout, so a slowing site raises it
+            record(timeout.toNanos());
+            logger.warn("No outcome appeared within " + timeout.toMillis() + " ms");
+            throw e;
+        }
+    }
+
+    /**
+     * Checks once, without waiting, which outcome the page shows, for callers that poll several pages in turn.
+     * The caller records the response time with {@link #recordResponse(long)} once an outcome appears.
+     *
+     * @param driver the WebDriver instance, which must be able to execute scripts
+     * @return the outcome, or null if none has appeared yet
+     */
+    public Outcome probe(WebDriver driver) {
+        String outcome = (String) ((JavascriptExecutor) driver).executeScript(PROBE_SCRIPT);
+        return outcome == null ? null : Outcome.valueOf(outcome);
+    }
+
+    /**
+     * Records how long a page took to show its outcome, or the timeout if it never did.
+     *
+     * @param nanos the response time
+     */
+    public void recordResponse(long nanos) {
+        record(nanos);
+    }
+
+    /**
+     * Returns the timeout the next wait will use.
+     *
+     * @return the current timeout
+     */
+    public synchronized Duration currentTimeout() {
+        if (sampleCount < MIN_SAMPLES) {
+            return initialTimeout;
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * sampleCount) - 1;
+        long percentileNanos = sorted[Math.max(0, Math.min(sampleCount - 1, rank))];
+        long timeoutNanos = (long) (percentileNanos * headroom);
+        return Duration.ofNanos(Math.max(minTimeout.toNanos(), Math.min(maxTimeout.toNanos(), timeoutNanos)));
+    }
+
+    private synchronized void record(long nanos) {
+        samples[nextSample] = nanos;
+        nextSample = (nextSample + 1) % SAMPLE_WINDOW;
+        sampleCount = Math.min(sampleCount + 1, SAMPLE_WINDOW);
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.valuation;
+
+/**
+ * The structural formats of UK registration numbers, judged on the letters and digits alone.
+ * A registration that fits none of them cannot have been issued, so there is no need to look it up.
+ */
+public enum PlateFormat {
+    /** Two letters, a two digit age identifier and three letters, e.g. {@code AD58 VNF} (2001 onwards). */
+    CURRENT,
+    /** An age letter, a number from 1 to 999 and three letters, e.g. {@code A123 BCD} (1983 to 2001). */
+    PREFIX,
+    /** Three letters, a number from 1 to 999 and an age letter, e.g. {@code ABC 123D} (1963 to 1983). */
+    SUFFIX,
+    /** One to three letters and a number from 1 to 9999 in either order, e.g. {@code ABC 123} or {@code 1234 AB}. */
+    DATELESS,
+    /** Not a possible registration number. */
+    NONE;
+
+    private static final int MAX_LENGTH = 7;
+
+    /**
+     * Returns the format of a registration number, ignoring spaces and letter case.
+     *
+     * @param registrationNumber the registration number
+     * @return the format, or {@link #NONE}
+     */
+    public static PlateFormat of(CharSequence registrationNumber) {
+        return of(registrationNumber, 0, registrationNumber.length());
+    }
+
+    /**
+     * Returns the format of the registration number in a range of text, ignoring spaces and letter case.
+     * Nothing is allocated, so this is cheap enough to run on every token of a large input.
+     *
+     * @param text  the text holding the registration number
+     * @param start the start of the range, inclusive
+     * @param end   the end of the range, exclusive
+     * @return the format, or {@link #NONE}
+     */
+    public static PlateFormat of(CharSequence text, int start, int end) {
+        // Count the runs of a letters-digits-letters shape; anything else is impossible
+        int leadingLetters = 0;
+        int digits = 0;
+        int trailingLetters = 0;
+        boolean leadingZero = false;
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = Character.toUpperCase(text.charAt(i));
+            if (c == ' ') {
+                continue;
+            }
+            if (++length > MAX_LENGTH) {
+                return NONE;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                if (digits == 0) {
+                    leadingLetters++;
+                } else {
+                    trailingLetters++;
+                }
+            } else if (c >= '0' && c <= '9') {
+                if (trailingLetters > 0) {
+                    return NONE;
+                }
+                if (digits++ == 0) {
+                    leadingZero = c == '0';
+                }
+            } else {
+                return NONE;
+            }
+        }
+        if (leadingLetters == 2 && digits == 2 && trailingLetters == 3) {
+            return CURRENT;
+        }
+        if (digits == 0 || leadingZero) {
+            return NONE;
+        }
+        if (leadingLetters == 1 && digits <= 3 && trailingLetters == 3) {
+            return PREFIX;
+        }
+        if (leadingLetters == 3 && digits <= 3 && trailingLetters == 1) {
+            return SUFFIX;
+        }
+        if ((leadingLetters == 0) != (trailingLetters == 0) && digits <= 4
+                && leadingLetters <= 3 && trailingLetters <= 3) {
+            return DATELESS;
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns whether a space is where plates in this format put it.
+     *
+     * @param text  the text holding the registration number
+     * @param start the start of the registration number, inclusive
+     * @param space the index of the space
+     * @param end   the end of the registration number, exclusive
+     * @return true if the space separates the registration number as it is written on the plate
+     */
+    boolean isSpacedAt(CharSequence text, int start, int space, int end) {
+        switch (this) {
+            case CURRENT:
+                return space - start == 4;
+            case SUFFIX:
+                return space - start == 3;
+            case PREFIX:
+                return end - space - 1 == 3;
+            case DATELESS:
+                return space > start && space + 1 < end
+                        && Character.isDigit(text.charAt(space - 1)) != Character.isDigit(text.charAt(space + 1));
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers registration numbers that fit no UK plate format as not recognised without calling the wrapped lookup.
+ * In verification mode a sample of those answers is checked against the wrapped lookup, and any registration
+ * the site does recognise is logged and returned as the site reports it. Registrations that must be answered by the
+ * site, such as test cases that check its own answer, can be passed through unconditionally.
+ */
+public class PrevalidatingVehicleLookup implements VehicleLookup {
+    private static final Logger logger = LogManager.getLogger(PrevalidatingVehicleLookup.class);
+
+    private final VehicleLookup delegate;
+    private final double verifySampleRate;
+    private final Set<String> passThrough;
+    private final AtomicLong answeredLocally = new AtomicLong();
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong mismatches = new AtomicLong();
+
+    /**
+     * Constructor to initialize the PrevalidatingVehicleLookup.
+     *
+     * @param delegate         the lookup to call for possible registration numbers
+     * @param verifySampleRate the fraction of local answers to check against the delegate, 0 to never check
+     */
+    public PrevalidatingVehicleLookup(VehicleLookup delegate, double verifySampleRate) {
+        this(delegate, verifySampleRate, Set.of());
+    }
+
+    /**
+     * Constructor to initialize the PrevalidatingVehicleLookup with registrations that always go to the delegate.
+     *
+     * @param delegate         the lookup to call for possible registration numbers
+     * @param verifySampleRate the fraction of local answers to check against the delegate, 0 to never check
+     * @param passThrough      canonical registration numbers to always look up, whatever their format
+     */
+    public PrevalidatingVehicleLookup(VehicleLookup delegate, double verifySampleRate, Set<String> passThrough) {
+        this.delegate = delegate;
+        this.verifySampleRate = verifySampleRate;
+        this.passThrough = Set.copyOf(passThrough);
+    }
+
+    /**
+     * Creates the lookup for a validation mode.
+     *
+     * @param mode             {@code off}, {@code on} or {@code verify}
+     * @param delegate         the lookup to wrap
+     * @param verifySampleRate the fraction of local answers to check in {@code verify} mode
+     * @return the delegate itself when validation is off, otherwise a validating lookup
+     */
+    public static VehicleLookup forMode(String mode, VehicleLookup delegate, double verifySampleRate) {
+        return forMode(mode, delegate, verifySampleRate, Set.of());
+    }
+
+    /**
+     * Creates the lookup for a validation mode, always looking up some registrations.
+     *
+     * @param mode             {@code off}, {@code on} or {@code verify}
+     * @param delegate         the lookup to wrap
+     * @param verifySampleRate the fraction of local answers to check in {@code verify} mode
+     * @param passThrough      canonical registration numbers to always look up, whatever their format
+     * @return the delegate itself when validation is off, otherwise a validating lookup
+     */
+    public static VehicleLookup forMode(String mode, VehicleLookup delegate, double verifySampleRate, Set<String> passThrough) {
+        switch (mode.toLowerCase()) {
+            case "off":
+                return delegate;
+            case "on":
+                return new PrevalidatingVehicleLookup(delegate, 0, passThrough);
+            case "verify":
+                return new PrevalidatingVehicleLookup(delegate, verifySampleRate, passThrough);
+            default:
+                throw new IllegalArgumentException("Unsupported validation mode: " + mode);
+        }
+    }
+
+    /**
+     * Looks up a registration number, answering impossible ones locally unless they are passed through.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     */
+    @Override
+    public LookupResult lookup(String registrationNumber) {
+        if (PlateFormat.of(registrationNumber) != PlateFormat.NONE
+                || passThrough.contains(Registrations.canonical(registrationNumber))) {
+            return delegate.lookup(registrationNumber);
+        }
+        if (verifySampleRate > 0 && ThreadLocalRandom.current().nextDouble() < verifySampleRate) {
+            verified.incrementAndGet();
+            LookupResult result = delegate.lookup(registrationNumber);
+            if (result.isRecognised()) {
+                mismatches.incrementAndGet();
+                logger.warn("Registration number " + registrationNumber + " fits no plate format but was recognised as " + result.toRow());
+            }
+            return result;
+        }
+        answeredLocally.incrementAndGet();
+        logger.debug("Answering " + registrationNumber + " locally: it fits no plate format");
+        return LookupResult.notRecognised(registrationNumber, LookupResult.NOT_RECOGNISED_MESSAGE);
+    }
+
+    /**
+     * Returns the number of lookups answered without calling the delegate.
+     *
+     * @return the number of local answers
+     */
+    public long getAnsweredLocally() {
+        return answeredLocally.get();
+    }
+
+    /**
+     * Returns the number of impossible registration numbers checked against the delegate.
+     *
+     * @return the number of verified lookups
+     */
+    public long getVerified() {
+        return verified.get();
+    }
+
+    /**
+     * Returns the number of verified registration numbers the delegate recognised after all.
+     *
+     * @return the number of mismatches
+     */
+    public long getMismatches() {
+        return mismatches.get();
+    }
+}
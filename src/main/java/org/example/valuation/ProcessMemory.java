@@ -0,0 +1,96 @@
+package org.example.valuation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Reads the resident memory and open file handles of processes from {@code /proc}, so the cost of browser sessions
+ * can be reported. Only Linux has {@code /proc}; elsewhere the sizes are reported as unknown.
+ */
+public final class ProcessMemory {
+    private static final Path PROC = Paths.get("/proc");
+
+    private ProcessMemory() {}
+
+    /**
+     * Returns the resident set size of a process.
+     *
+     * @param pid the process id
+     * @return the resident set size in bytes, or -1 if it cannot be read
+     */
+    public static long rssBytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(PROC.resolve(Long.toString(pid)).resolve("status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim()) * 1024;
+                }
+            }
+            return -1;
+        } catch (IOException | NumberFormatException e) {
+            // The process has exited, or there is no /proc
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the combined resident set size of this JVM's descendant processes, such as driver servers and the
+     * browsers they start.
+     *
+     * @return the combined resident set size in bytes, or -1 if it cannot be read
+     */
+    public static long descendantsRssBytes() {
+        if (!Files.isDirectory(PROC)) {
+            return -1;
+        }
+        return ProcessHandle.current().descendants()
+                .mapToLong(process -> Math.max(0, rssBytes(process.pid())))
+                .sum();
+    }
+
+    /**
+     * Returns the number of open file handles of a process, sockets and pipes included.
+     *
+     * @param pid the process id
+     * @return the number of open handles, or -1 if they cannot be read
+     */
+    public static long openFiles(long pid) {
+        try (Stream<Path> handles = Files.list(PROC.resolve(Long.toString(pid)).resolve("fd"))) {
+            return handles.count();
+        } catch (IOException e) {
+            // The process has exited, or there is no /proc
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the combined resident set size of a process and its descendants.
+     *
+     * @param root the process
+     * @return the combined resident set size in bytes, or -1 if it cannot be read
+     */
+    public static long treeRssBytes(ProcessHandle root) {
+        return sumOverTree(root, ProcessMemory::rssBytes);
+    }
+
+    /**
+     * Returns the combined number of open file handles of a process and its descendants.
+     *
+     * @param root the process
+     * @return the combined number of open handles, or -1 if they cannot be read
+     */
+    public static long treeOpenFiles(ProcessHandle root) {
+        return sumOverTree(root, ProcessMemory::openFiles);
+    }
+
+    private static long sumOverTree(ProcessHandle root, LongUnaryOperator measure) {
+        long rootValue = measure.applyAsLong(root.pid());
+        if (rootValue < 0) {
+            return -1;
+        }
+        return rootValue + root.descendants().mapToLong(process -> Math.max(0, measure.applyAsLong(process.pid()))).sum();
+    }
+}
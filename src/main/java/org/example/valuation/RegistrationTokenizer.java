@@ -0,0 +1,88 @@
+package org.example.valuation;
+
+/**
+ * Finds registration number candidates in free text with a hand-written state machine, without allocating per token.
+ * A candidate is either a plate written with its space, such as {@code AD58 VNF} or {@code ABC 123D},
+ * or a single run of 1 to 7 upper case letters and digits. Candidates start and end at word boundaries,
+ * so tokens never span a line break and any text that ends on a line boundary can be scanned on its own.
+ */
+public final class RegistrationTokenizer {
+    private static final int MAX_TOKEN_LENGTH = 7;
+
+    /**
+     * Receives the candidates found by {@link #tokenize(CharSequence, TokenListener)}.
+     * The canonical form of a candidate is its characters without the space.
+     */
+    @FunctionalInterface
+    public interface TokenListener {
+        /**
+         * Called for each candidate, in text order.
+         *
+         * @param text   the scanned text
+         * @param start  the start of the candidate, inclusive
+         * @param space  the index of the space in a spaced plate, or -1 for a single run
+         * @param end    the end of the candidate, exclusive
+         * @param format the format of the candidate, {@link PlateFormat#NONE} for a run that is not a possible plate
+         */
+        void onToken(CharSequence text, int start, int space, int end, PlateFormat format);
+    }
+
+    private RegistrationTokenizer() {
+    }
+
+    /**
+     * Scans text for registration number candidates.
+     *
+     * @param text     the text to scan
+     * @param listener receives each candidate
+     */
+    public static void tokenize(CharSequence text, TokenListener listener) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isTokenChar(text.charAt(i)) || (i > 0 && isWordChar(text.charAt(i - 1)))) {
+                i++;
+                continue;
+            }
+            int runEnd = endOfRun(text, i, length);
+            if (runEnd < length - 1 && text.charAt(runEnd) == ' ') {
+                int secondEnd = endOfRun(text, runEnd + 1, length);
+                if (secondEnd > runEnd + 1 && isBoundary(text, secondEnd, length)) {
+                    PlateFormat format = PlateFormat.of(text, i, secondEnd);
+                    if (format.isSpacedAt(text, i, runEnd, secondEnd)) {
+                        listener.onToken(text, i, runEnd, secondEnd, format);
+                        i = secondEnd;
+                        continue;
+                    }
+                }
+            }
+            if (runEnd - i <= MAX_TOKEN_LENGTH && isBoundary(text, runEnd, length)) {
+                listener.onToken(text, i, -1, runEnd, PlateFormat.of(text, i, runEnd));
+            }
+            i = runEnd;
+        }
+    }
+
+    private static int endOfRun(CharSequence text, int from, int length) {
+        int end = from;
+        while (end < length && isTokenChar(text.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isBoundary(CharSequence text, int index, int length) {
+        return index == length || !isWordChar(text.charAt(index));
+    }
+
+    private static boolean isTokenChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * The word characters of a regex word boundary, so candidates end where {@code \b} would end them.
+     */
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+}
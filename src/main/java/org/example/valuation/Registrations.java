@@ -0,0 +1,27 @@
+package org.example.valuation;
+
+/**
+ * Helpers for working with vehicle registration numbers.
+ */
+public final class Registrations {
+
+    private Registrations() {}
+
+    /**
+     * Returns the canonical form of a registration number: upper case, without whitespace,
+     * so that {@code AD58 VNF}, {@code ad58vnf} and {@code AD58VNF} are the same key.
+     *
+     * @param registrationNumber the registration number as entered
+     * @return the canonical registration number
+     */
+    public static String canonical(String registrationNumber) {
+        StringBuilder canonical = new StringBuilder(registrationNumber.length());
+        for (int i = 0; i < registrationNumber.length(); i++) {
+            char c = registrationNumber.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                canonical.append(Character.toUpperCase(c));
+            }
+        }
+        return canonical.toString();
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.valuation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads car details and error alerts from the HTML of the car checking site,
+ * mirroring the locators used by {@link CarCheckingPage} and {@link CarReportPage}.
+ */
+public final class ReportHtmlParser {
+    private static final Pattern ALERT_TAG_PATTERN = Pattern.compile("<(/?)(div|p|span)\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+    private static final String[] ALERT_CLASSES = {"alert", "alert-danger"};
+    private static final Pattern ROW_PATTERN = Pattern.compile("<tr\\b[^>]*>(.*?)</tr>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern CELL_PATTERN = Pattern.compile("<td\\b[^>]*>(.*?)</td>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern INPUT_PATTERN = Pattern.compile("<input\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile(
+            "([\\w:-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))");
+    private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+    private static final Pattern ENTITY_PATTERN = Pattern.compile("&(#[0-9]+|#[xX][0-9a-fA-F]+|amp|lt|gt|quot|apos|nbsp);");
+    private static final String REG_NUMBER_ELEMENT_ID = "subForm";
+
+    private ReportHtmlParser() {}
+
+    /**
+     * Retrieves the text of the {@code .alert.alert-danger} element. The element ends at its own closing tag,
+     * counting nested elements of the same name, so markup inside the alert does not cut its text short.
+     *
+     * @param html the page HTML
+     * @return the error message, or null if the page has no error alert
+     */
+    public static String parseErrorMessage(String html) {
+        Matcher matcher = ALERT_TAG_PATTERN.matcher(html);
+        while (matcher.find()) {
+            if (matcher.group(1).isEmpty() && hasClasses(parseAttributes(matcher.group(3)).get("class"), ALERT_CLASSES)) {
+                String tagName = matcher.group(2);
+                int contentStart = matcher.end();
+                return text(html.substring(contentStart, closingTagStart(matcher, tagName, html.length())));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the value of the registration number element of the report page.
+     *
+     * @param html the page HTML
+     * @return the registration number, or null if the page is not a report page
+     */
+    public static String parseRegistrationNumber(String html) {
+        Matcher matcher = INPUT_PATTERN.matcher(html);
+        while (matcher.find()) {
+            Map<String, String> attributes = parseAttributes(matcher.group(1));
+            if (REG_NUMBER_ELEMENT_ID.equals(attributes.get("id"))) {
+                return attributes.getOrDefault("value", "");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves every label/value pair of the report tables, such as Make, Model and Year of manufacture.
+     * Each table row contributes its first cell as label and the following cell as value.
+     *
+     * @param html the page HTML
+     * @return the report fields by label, in page order
+     */
+    public static Map<String, String> parseReportFields(String html) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        Matcher rows = ROW_PATTERN.matcher(html);
+        while (rows.find()) {
+            Matcher cells = CELL_PATTERN.matcher(rows.group(1));
+            if (cells.find()) {
+                String label = text(cells.group(1));
+                if (cells.find()) {
+                    fields.putIfAbsent(label, text(cells.group(1)));
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Parses the attributes of an HTML start tag.
+     *
+     * @param tagAttributes the text between the tag name and the closing angle bracket
+     * @return the attribute values by lower-case name, with entities decoded
+     */
+    static Map<String, String> parseAttributes(String tagAttributes) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        Matcher matcher = ATTRIBUTE_PATTERN.matcher(tagAttributes);
+        while (matcher.find()) {
+            String value = matcher.group(2) != null ? matcher.group(2)
+                    : matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+            attributes.putIfAbsent(matcher.group(1).toLowerCase(), decodeEntities(value));
+        }
+        return attributes;
+    }
+
+    /**
+     * Returns whether a class attribute lists every one of the given classes, as a CSS class selector requires.
+     */
+    private static boolean hasClasses(String classAttribute, String... classes) {
+        if (classAttribute == null) {
+            return false;
+        }
+        List<String> listed = Arrays.asList(WHITESPACE_PATTERN.split(classAttribute.trim()));
+        for (String name : classes) {
+            if (!listed.contains(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Advances the matcher past an element's content to its closing tag and returns where that tag starts, or the end
+     * of the HTML if the element is never closed.
+     */
+    private static int closingTagStart(Matcher matcher, String tagName, int end) {
+        int depth = 1;
+        while (matcher.find()) {
+            if (!matcher.group(2).equalsIgnoreCase(tagName)) {
+                continue;
+            }
+            if (!matcher.group(1).isEmpty()) {
+                if (--depth == 0) {
+                    return matcher.start();
+                }
+            } else if (!matcher.group(3).endsWith("/")) {
+                depth++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Converts an HTML fragment to its visible text, as WebElement.getText() would.
+     */
+    private static String text(String html) {
+        String withoutTags = TAG_PATTERN.matcher(html).replaceAll(" ");
+        return WHITESPACE_PATTERN.matcher(decodeEntities(withoutTags)).replaceAll(" ").trim();
+    }
+
+    private static String decodeEntities(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        Matcher matcher = ENTITY_PATTERN.matcher(text);
+        StringBuilder decoded = new StringBuilder(text.length());
+        while (matcher.find()) {
+            String entity = matcher.group(1);
+            String replacement;
+            switch (entity) {
+                case "amp": replacement = "&"; break;
+                case "lt": replacement = "<"; break;
+                case "gt": replacement = ">"; break;
+                case "quot": replacement = "\""; break;
+                case "apos": replacement = "'"; break;
+                case "nbsp": replacement = " "; break;
+                default:
+                    int codePoint = entity.startsWith("#x") || entity.startsWith("#X")
+                            ? Integer.parseInt(entity.substring(2), 16)
+                            : Integer.parseInt(entity.substring(1));
+                    replacement = new String(Character.toChars(codePoint));
+            }
+            matcher.appendReplacement(decoded, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(decoded);
+        return decoded.toString();
+    }
+}
@@ -0,0 +1,216 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-writer sink for output rows.
+ * Producers hand rows to a bounded queue; one writer thread drains it, restores input order
+ * by sequence number and flushes in batches, so producers never wait on disk I/O.
+ */
+public class ResultSink implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ResultSink.class);
+    private static final SequencedRow END_OF_INPUT = new SequencedRow(Long.MAX_VALUE, null);
+
+    private final Path outputFile;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<SequencedRow> queue;
+    private final FileOutputStream outputStream;
+    private final BufferedWriter writer;
+    private final Thread writerThread;
+    private final PriorityQueue<SequencedRow> pendingRows = new PriorityQueue<>();
+    private long nextSequence;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to initialize the ResultSink. The output file is truncated and the header written.
+     *
+     * @param outputFile    the file to write rows to
+     * @param header        the header line, without line separator
+     * @param queueCapacity the maximum number of rows waiting to be written
+     * @param batchSize     the number of rows written between flushes
+     * @param flushInterval the maximum time written rows stay unflushed
+     * @throws IOException if the output file cannot be opened
+     */
+    public ResultSink(Path outputFile, String header, int queueCapacity, int batchSize, Duration flushInterval) throws IOException {
+        this(outputFile, header, queueCapacity, batchSize, flushInterval, false);
+    }
+
+    /**
+     * Constructor to initialize the ResultSink, optionally appending to an existing output file.
+     * When appending, the header is only written if the file is new or empty.
+     *
+     * @param outputFile    the file to write rows to
+     * @param header        the header line, without line separator
+     * @param queueCapacity the maximum number of rows waiting to be written
+     * @param batchSize     the number of rows written between flushes
+     * @param flushInterval the maximum time written rows stay unflushed
+     * @param append        whether to append to the file rather than truncate it
+     * @throws IOException if the output file cannot be opened
+     */
+    public ResultSink(Path outputFile, String header, int queueCapacity, int batchSize, Duration flushInterval,
+                      boolean append) throws IOException {
+        this.outputFile = outputFile;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.outputStream = new FileOutputStream(outputFile.toFile(), append);
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (outputStream.getChannel().size() == 0) {
+            writer.write(header);
+            writer.newLine();
+        }
+        this.writerThread = new Thread(this::drain, "result-sink-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Hands a row to the writer thread. Rows are written in ascending sequence order, starting at 0;
+     * a row is held back until all rows with lower sequence numbers have arrived.
+     *
+     * @param sequence the position of the row in the output
+     * @param row      the row, without line separator
+     * @throws UncheckedIOException if the writer thread has failed
+     */
+    public void submit(long sequence, String row) {
+        if (closed) {
+            throw new IllegalStateException("Result sink is closed");
+        }
+        checkFailure();
+        try {
+            queue.put(new SequencedRow(sequence, row));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while submitting row " + sequence, e);
+        }
+    }
+
+    /**
+     * Writes all submitted rows, including any still waiting for a missing sequence number,
+     * then forces the output file to disk and closes it.
+     *
+     * @throws IOException if writing or syncing the output file fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(END_OF_INPUT);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing result sink", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        logger.info("Closed result sink for " + outputFile);
+    }
+
+    private void drain() {
+        List<SequencedRow> batch = new ArrayList<>(batchSize);
+        int unflushedRows = 0;
+        long lastFlush = System.nanoTime();
+        boolean endOfInput = false;
+        try {
+            while (!endOfInput) {
+                SequencedRow first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                for (SequencedRow row : batch) {
+                    if (row == END_OF_INPUT) {
+                        endOfInput = true;
+                    } else {
+                        pendingRows.add(row);
+                    }
+                }
+                batch.clear();
+                while (!pendingRows.isEmpty() && (endOfInput || pendingRows.peek().sequence <= nextSequence)) {
+                    SequencedRow row = pendingRows.poll();
+                    writer.write(row.row);
+                    writer.newLine();
+                    nextSequence = Math.max(nextSequence, row.sequence + 1);
+                    unflushedRows++;
+                }
+                long now = System.nanoTime();
+                if (unflushedRows >= batchSize || (unflushedRows > 0 && now - lastFlush >= flushIntervalNanos)) {
+                    writer.flush();
+                    unflushedRows = 0;
+                    lastFlush = now;
+                }
+            }
+            writer.flush();
+            outputStream.getChannel().force(true);
+        } catch (IOException e) {
+            failure = e;
+            logger.error("Error writing to output file: " + outputFile, e);
+            if (!endOfInput) {
+                discardUntilEndOfInput();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    private void discardUntilEndOfInput() {
+        try {
+            while (queue.take() != END_OF_INPUT) {
+                // Keep producers from blocking on a queue that will never be written
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Result sink failed writing " + outputFile, failure);
+        }
+    }
+
+    private static final class SequencedRow implements Comparable<SequencedRow> {
+        private final long sequence;
+        private final String row;
+
+        private SequencedRow(long sequence, String row) {
+            this.sequence = sequence;
+            this.row = row;
+        }
+
+        @Override
+        public int compareTo(SequencedRow other) {
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package org.example.valuation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a result store written by {@link ResultStoreWriter} front to back, mapping one block at a time into memory.
+ * Results can be read one by one, exported to the CSV output format, or loaded into compact {@link Columns}, which
+ * keep the columns as primitive arrays and share each dictionary string between all rows that use it.
+ */
+public class ResultStoreReader implements AutoCloseable {
+    private final Path file;
+    private final FileChannel channel;
+    private final List<String> makes = new ArrayList<>(List.of(""));
+    private final List<String> models = new ArrayList<>(List.of(""));
+    private final List<String> statuses = new ArrayList<>(List.of(""));
+    private final List<String> stringRegistrations = new ArrayList<>();
+    private long position = Integer.BYTES;
+    private MappedByteBuffer block;
+    private int rowsInBlock;
+    private int nextRow;
+    private int registrationsOffset;
+
+    /**
+     * Constructor to initialize the ResultStoreReader.
+     *
+     * @param file the result store file
+     * @throws IOException if the file cannot be opened or is not a result store
+     */
+    public ResultStoreReader(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+        channel.read(magic, 0);
+        if (magic.flip().remaining() < Integer.BYTES || magic.getInt() != ResultStoreWriter.MAGIC) {
+            channel.close();
+            throw new IOException("Not a result store: " + file);
+        }
+    }
+
+    /**
+     * Loads a whole result store into columns.
+     *
+     * @param file the result store file
+     * @return the columns
+     * @throws IOException if the file cannot be read
+     */
+    public static Columns load(Path file) throws IOException {
+        try (ResultStoreReader reader = new ResultStoreReader(file)) {
+            Columns columns = new Columns(reader.makes, reader.models, reader.statuses);
+            while (reader.nextBlock()) {
+                columns.append(reader);
+            }
+            return columns.trim();
+        }
+    }
+
+    /**
+     * Writes the results of a result store as an output file, byte for byte as the result sink writes it.
+     *
+     * @param storeFile the result store file
+     * @param csvFile   the output file to write
+     * @param header    the header line, without line separator
+     * @return the number of rows written
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long exportCsv(Path storeFile, Path csvFile, String header) throws IOException {
+        long rows = 0;
+        try (ResultStoreReader reader = new ResultStoreReader(storeFile);
+             BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            writer.write(header);
+            writer.newLine();
+            for (LookupResult result = reader.next(); result != null; result = reader.next()) {
+                writer.write(result.toRow());
+                writer.newLine();
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the next result.
+     *
+     * @return the result, or null at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    public LookupResult next() throws IOException {
+        while (nextRow == rowsInBlock) {
+            if (!nextBlock()) {
+                return null;
+            }
+        }
+        LookupResult result = result(nextRow);
+        nextRow++;
+        return result;
+    }
+
+    /**
+     * Closes the file. Mapped blocks are released once their buffers are collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        block = null;
+        channel.close();
+    }
+
+    /**
+     * Maps the next block and reads its new dictionary entries and registration strings.
+     *
+     * @return false at the end of the file
+     */
+    private boolean nextBlock() throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        if (channel.read(length, position) < Integer.BYTES) {
+            return false;
+        }
+        int blockLength = length.flip().getInt();
+        if (position + Integer.BYTES + blockLength > channel.size()) {
+            throw new IOException("Truncated result store block at " + position + " in " + file);
+        }
+        block = channel.map(FileChannel.MapMode.READ_ONLY, position + Integer.BYTES, blockLength);
+        position += Integer.BYTES + blockLength;
+        rowsInBlock = block.getInt();
+        readStrings(makes);
+        readStrings(models);
+        readStrings(statuses);
+        stringRegistrations.clear();
+        readStrings(stringRegistrations);
+        registrationsOffset = block.position();
+        nextRow = 0;
+        return true;
+    }
+
+    private void readStrings(List<String> strings) {
+        int count = block.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[block.getShort() & 0xFFFF];
+            block.get(bytes);
+            strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private long registration(int row) {
+        return block.getLong(registrationsOffset + row * Long.BYTES);
+    }
+
+    private int makeCode(int row) {
+        return block.getShort(registrationsOffset + rowsInBlock * Long.BYTES + row * Short.BYTES) & 0xFFFF;
+    }
+
+    private int modelCode(int row) {
+        return block.getInt(registrationsOffset + rowsInBlock * (Long.BYTES + Short.BYTES) + row * Integer.BYTES);
+    }
+
+    private int statusCode(int row) {
+        return block.get(registrationsOffset + rowsInBlock * (Long.BYTES + Short.BYTES + Integer.BYTES) + row) & 0xFF;
+    }
+
+    private short year(int row) {
+        return block.getShort(registrationsOffset + rowsInBlock * (Long.BYTES + Short.BYTES + Integer.BYTES + Byte.BYTES)
+                + row * Short.BYTES);
+    }
+
+    private LookupResult result(int row) {
+        long registration = registration(row);
+        return new LookupResult(
+                (registration & ResultStoreWriter.STRING_REGISTRATION) == ResultStoreWriter.STRING_REGISTRATION
+                        ? stringRegistrations.get((int) (registration & ~ResultStoreWriter.STRING_REGISTRATION))
+                        : unpack(registration),
+                entry(makes, makeCode(row)), entry(models, modelCode(row)), year(year(row)), entry(statuses, statusCode(row)));
+    }
+
+    private static String entry(List<String> dictionary, int code) {
+        return code == 0 ? null : dictionary.get(code);
+    }
+
+    private static String year(short year) {
+        return year == ResultStoreWriter.NULL_YEAR ? null : Short.toString(year);
+    }
+
+    /**
+     * Unpacks a registration packed by {@link ResultStoreWriter}, which is not a string registration.
+     */
+    static String unpack(long packed) {
+        if (packed == ResultStoreWriter.NULL_REGISTRATION) {
+            return null;
+        }
+        int length = (int) (packed >>> 60);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ResultStoreWriter.ALPHABET.charAt((int) ((packed >>> (6 * i)) & 0x3F) - 1);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * A whole result store in memory: about {@value ResultStoreWriter#ROW_BYTES} bytes a row plus the dictionaries,
+     * where a list of results would hold several objects and strings a row.
+     */
+    public static final class Columns {
+        private final List<String> makes;
+        private final List<String> models;
+        private final List<String> statuses;
+        private final List<String> stringRegistrations = new ArrayList<>();
+        private long[] registrations = new long[1024];
+        private short[] makeCodes = new short[1024];
+        private int[] modelCodes = new int[1024];
+        private byte[] statusCodes = new byte[1024];
+        private short[] years = new short[1024];
+        private int size;
+
+        private Columns(List<String> makes, List<String> models, List<String> statuses) {
+            this.makes = makes;
+            this.models = models;
+            this.statuses = statuses;
+        }
+
+        /**
+         * Returns the number of results.
+         *
+         * @return the rows
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns a result.
+         *
+         * @param row the row, from 0
+         * @return the lookup result
+         */
+        public LookupResult get(int row) {
+            long registration = registrations[row];
+            return new LookupResult(
+                    (registration & ResultStoreWriter.STRING_REGISTRATION) == ResultStoreWriter.STRING_REGISTRATION
+                            ? stringRegistrations.get((int) (registration & ~ResultStoreWriter.STRING_REGISTRATION))
+                            : unpack(registration),
+                    entry(makes, makeCodes[row] & 0xFFFF), entry(models, modelCodes[row]), year(years[row]),
+                    entry(statuses, statusCodes[row] & 0xFF));
+        }
+
+        private void append(ResultStoreReader reader) {
+            int rows = reader.rowsInBlock;
+            if (size + rows > registrations.length) {
+                int capacity = Math.max(size + rows, registrations.length * 2);
+                registrations = Arrays.copyOf(registrations, capacity);
+                makeCodes = Arrays.copyOf(makeCodes, capacity);
+                modelCodes = Arrays.copyOf(modelCodes, capacity);
+                statusCodes = Arrays.copyOf(statusCodes, capacity);
+                years = Arrays.copyOf(years, capacity);
+            }
+            for (int row = 0; row < rows; row++) {
+                long registration = reader.registration(row);
+                if ((registration & ResultStoreWriter.STRING_REGISTRATION) == ResultStoreWriter.STRING_REGISTRATION) {
+                    stringRegistrations.add(reader.stringRegistrations.get((int) (registration & ~ResultStoreWriter.STRING_REGISTRATION)));
+                    registration = ResultStoreWriter.STRING_REGISTRATION | (stringRegistrations.size() - 1);
+                }
+                registrations[size + row] = registration;
+                makeCodes[size + row] = (short) reader.makeCode(row);
+                modelCodes[size + row] = reader.modelCode(row);
+                statusCodes[size + row] = (byte) reader.statusCode(row);
+                years[size + row] = reader.year(row);
+            }
+            size += rows;
+        }
+
+        private Columns trim() {
+            registrations = Arrays.copyOf(registrations, size);
+            makeCodes = Arrays.copyOf(makeCodes, size);
+            modelCodes = Arrays.copyOf(modelCodes, size);
+            statusCodes = Arrays.copyOf(statusCodes, size);
+            years = Arrays.copyOf(years, size);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes lookup results to a binary columnar result store, one block of rows at a time.
+ * Within a block each field is stored as its own column: the registration packed into a long, the make, model and
+ * status (the error message, or none for a recognised car) as codes into dictionaries that grow across the file,
+ * and the year as a short. A block starts with the dictionary entries it adds, so the file can be read front to
+ * back without an index, and each block is prefixed with its length so a reader can map it on its own.
+ * Registrations of up to ten characters from A-Z, 0-9 and space are packed six bits a character; others are
+ * kept as strings in the block.
+ *
+ * <pre>
+ * file:  int MAGIC, block*
+ * block: int length, int rows,
+ *        new makes, new models, new statuses, registration strings (each int count, then short length + UTF-8 bytes),
+ *        long[rows] registrations, short[rows] make codes, int[rows] model codes, byte[rows] status codes, short[rows] years
+ * </pre>
+ */
+public class ResultStoreWriter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ResultStoreWriter.class);
+    static final int MAGIC = 0x52535431; // "RST1"
+    static final String ALPHABET = " 0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    static final int MAX_PACKED_LENGTH = 10;
+    static final long NULL_REGISTRATION = 14L << 60;
+    static final long STRING_REGISTRATION = 15L << 60;
+    static final short NULL_YEAR = Short.MIN_VALUE;
+    static final int ROW_BYTES = Long.BYTES + Short.BYTES + Integer.BYTES + Byte.BYTES + Short.BYTES;
+    private static final int MAX_MAKES = 0xFFFF;
+    private static final int MAX_STATUSES = 0xFF;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int blockRows;
+    private final Dictionary makes = new Dictionary();
+    private final Dictionary models = new Dictionary();
+    private final Dictionary statuses = new Dictionary();
+    private final long[] registrations;
+    private final short[] makeCodes;
+    private final int[] modelCodes;
+    private final byte[] statusCodes;
+    private final short[] years;
+    private final List<String> stringRegistrations = new ArrayList<>();
+    private int rowsInBlock;
+    private long rows;
+
+    /**
+     * Constructor to initialize the ResultStoreWriter. The file is truncated and the header written.
+     *
+     * @param file      the result store file
+     * @param blockRows the number of rows per block
+     * @throws IOException if the file cannot be opened
+     */
+    public ResultStoreWriter(Path file, int blockRows) throws IOException {
+        this.file = file;
+        this.blockRows = blockRows;
+        this.registrations = new long[blockRows];
+        this.makeCodes = new short[blockRows];
+        this.modelCodes = new int[blockRows];
+        this.statusCodes = new byte[blockRows];
+        this.years = new short[blockRows];
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writeFully(ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).flip());
+    }
+
+    /**
+     * Converts an output file to a result store.
+     *
+     * @param csvFile   the output file, with a header line
+     * @param storeFile the result store file to write
+     * @param blockRows the number of rows per block
+     * @return the number of rows converted
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long importCsv(Path csvFile, Path storeFile, int blockRows) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8);
+             ResultStoreWriter writer = new ResultStoreWriter(storeFile, blockRows)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(LookupResult.fromRow(line));
+            }
+            return writer.getRows();
+        }
+    }
+
+    /**
+     * Appends a result.
+     *
+     * @param result the lookup result
+     * @throws IOException              if a full block cannot be written
+     * @throws IllegalArgumentException if the year is not a whole number that fits a short
+     * @throws IllegalStateException    if a dictionary is full
+     */
+    public void write(LookupResult result) throws IOException {
+        registrations[rowsInBlock] = pack(result.registration());
+        makeCodes[rowsInBlock] = (short) code(makes, result.make(), MAX_MAKES);
+        modelCodes[rowsInBlock] = code(models, result.model(), Integer.MAX_VALUE);
+        statusCodes[rowsInBlock] = (byte) code(statuses, result.message(), MAX_STATUSES);
+        years[rowsInBlock] = year(result.year());
+        rowsInBlock++;
+        rows++;
+        if (rowsInBlock == blockRows) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Returns the number of rows written.
+     *
+     * @return the rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Writes the last block and closes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsInBlock > 0) {
+                writeBlock();
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+        logger.info("Wrote " + rows + " results to " + file + ": " + makes.size() + " makes, " + models.size()
+                + " models, " + statuses.size() + " statuses");
+    }
+
+    private void writeBlock() throws IOException {
+        List<byte[]> newStrings = new ArrayList<>();
+        int stringBytes = 0;
+        for (List<String> strings : List.of(makes.unwritten(), models.unwritten(), statuses.unwritten(), stringRegistrations)) {
+            stringBytes += Integer.BYTES;
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                newStrings.add(bytes);
+                stringBytes += Short.BYTES + bytes.length;
+            }
+        }
+        int length = Integer.BYTES + stringBytes + rowsInBlock * ROW_BYTES;
+        ByteBuffer block = ByteBuffer.allocate(Integer.BYTES + length);
+        block.putInt(length).putInt(rowsInBlock);
+        int next = 0;
+        for (List<String> strings : List.of(makes.unwritten(), models.unwritten(), statuses.unwritten(), stringRegistrations)) {
+            block.putInt(strings.size());
+            for (int i = 0; i < strings.size(); i++) {
+                byte[] bytes = newStrings.get(next++);
+                block.putShort((short) bytes.length).put(bytes);
+            }
+        }
+        block.asLongBuffer().put(registrations, 0, rowsInBlock);
+        block.position(block.position() + rowsInBlock * Long.BYTES);
+        block.asShortBuffer().put(makeCodes, 0, rowsInBlock);
+        block.position(block.position() + rowsInBlock * Short.BYTES);
+        block.asIntBuffer().put(modelCodes, 0, rowsInBlock);
+        block.position(block.position() + rowsInBlock * Integer.BYTES);
+        block.put(statusCodes, 0, rowsInBlock);
+        block.asShortBuffer().put(years, 0, rowsInBlock);
+        block.position(block.position() + rowsInBlock * Short.BYTES);
+        writeFully(block.flip());
+
+        makes.markWritten();
+        models.markWritten();
+        statuses.markWritten();
+        stringRegistrations.clear();
+        rowsInBlock = 0;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Packs a registration into a long: the length in the top four bits and six bits per character below.
+     * Registrations that do not fit are stored as strings in the block, and the long holds their index.
+     */
+    private long pack(String registration) {
+        if (registration == null) {
+            return NULL_REGISTRATION;
+        }
+        if (registration.length() <= MAX_PACKED_LENGTH) {
+            long packed = (long) registration.length() << 60;
+            boolean packable = true;
+            for (int i = 0; i < registration.length() && packable; i++) {
+                int symbol = ALPHABET.indexOf(registration.charAt(i));
+                packable = symbol >= 0;
+                packed |= (long) (symbol + 1) << (6 * i);
+            }
+            if (packable) {
+                return packed;
+            }
+        }
+        stringRegistrations.add(registration);
+        return STRING_REGISTRATION | (stringRegistrations.size() - 1);
+    }
+
+    private static int code(Dictionary dictionary, String value, int maxCode) {
+        int code = dictionary.code(value);
+        if (code > maxCode) {
+            throw new IllegalStateException("Result store dictionary is full at " + maxCode + " entries: " + value);
+        }
+        return code;
+    }
+
+    private static short year(String year) {
+        if (year == null) {
+            return NULL_YEAR;
+        }
+        try {
+            short value = Short.parseShort(year);
+            if (value != NULL_YEAR && Short.toString(value).equals(year)) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Not a year: " + year);
+    }
+
+    /**
+     * Maps strings to codes from 1 in order of first appearance; null is code 0.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> entries = new ArrayList<>();
+        private int written;
+
+        private int code(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                entries.add(value);
+                code = entries.size();
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        private List<String> unwritten() {
+            return entries.subList(written, entries.size());
+        }
+
+        private void markWritten() {
+            written = entries.size();
+        }
+
+        private int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Looks up a registration number by driving the car checking site in a browser.
+ */
+public class SeleniumVehicleLookup implements VehicleLookup {
+    private static final Logger logger = LogManager.getLogger(SeleniumVehicleLookup.class);
+
+    private final String carCheckingUrl;
+    private final OutcomeDetector outcomeDetector;
+    private final LookupMetrics metrics;
+
+    /**
+     * Constructor to initialize the SeleniumVehicleLookup with an outcome detector configured from the shared settings,
+     * recording phase timings in the run's lookup metrics.
+     *
+     * @param carCheckingUrl the URL of the car checking page
+     */
+    public SeleniumVehicleLookup(String carCheckingUrl) {
+        this(carCheckingUrl, OutcomeDetector.fromConfig(DriverSingleton.getSettings()), DriverSingleton.getMetrics());
+    }
+
+    /**
+     * Constructor to initialize the SeleniumVehicleLookup.
+     *
+     * @param carCheckingUrl  the URL of the car checking page
+     * @param outcomeDetector waits for the page each lookup ends on
+     * @param metrics         records how long each phase of a lookup takes
+     */
+    public SeleniumVehicleLookup(String carCheckingUrl, OutcomeDetector outcomeDetector, LookupMetrics metrics) {
+        this.carCheckingUrl = carCheckingUrl;
+        this.outcomeDetector = outcomeDetector;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Looks up a registration number with the calling thread's pooled WebDriver, recording the lookup time
+     * for the session's health. A session that has crossed a health threshold is released first, so the pool
+     * recycles it, and a fresh one is checked out; threads that hold their session across many lookups would
+     * otherwise never give it up.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     */
+    @Override
+    public LookupResult lookup(String registrationNumber) {
+        DriverPool pool = DriverSingleton.getPool();
+        WebDriver driver = DriverSingleton.getDriver();
+        if (pool.needsRecycling(driver)) {
+            DriverSingleton.closeDriver();
+            driver = DriverSingleton.getDriver();
+        }
+        long start = System.nanoTime();
+        try {
+            return lookup(driver, registrationNumber);
+        } finally {
+            pool.recordLookup(driver, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Submits the registration number and reads either the car report or the error alert.
+     *
+     * @param driver             the WebDriver instance to use
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     * @throws org.openqa.selenium.TimeoutException if neither the report nor the error alert appears
+     * @throws IllegalStateException                if the site returns a 404 page
+     * @throws TransientLookupException             if the site returns a 429 page
+     */
+    public LookupResult lookup(WebDriver driver, String registrationNumber) {
+        long start = System.nanoTime();
+        driver.get(carCheckingUrl);
+        metrics.recordSince(LookupMetrics.Phase.NAVIGATE, start);
+
+        start = System.nanoTime();
+        CarCheckingPage carCheckingPage = new CarCheckingPage(driver);
+        carCheckingPage.enterRegistrationNumber(registrationNumber);
+        carCheckingPage.submitForm();
+        metrics.recordSince(LookupMetrics.Phase.SUBMIT, start);
+
+        start = System.nanoTime();
+        OutcomeDetector.Outcome outcome;
+        try {
+            outcome = outcomeDetector.await(driver);
+        } finally {
+            metrics.recordSince(LookupMetrics.Phase.OUTCOME_WAIT, start);
+        }
+        if (outcome == OutcomeDetector.Outcome.THROTTLED) {
+            throw new TransientLookupException("Car checking site is rate limiting lookups, at " + registrationNumber, true, null);
+        }
+        if (outcome == OutcomeDetector.Outcome.NOT_FOUND) {
+            throw new IllegalStateException("Car checking site returned a 404 page for " + registrationNumber);
+        }
+        start = System.nanoTime();
+        try {
+            if (outcome == OutcomeDetector.Outcome.ERROR_ALERT) {
+                String alertMessage = carCheckingPage.getErrorMessage();
+                if (alertMessage != null) {
+                    logger.info("Entered Registration Number: " + registrationNumber);
+                    return LookupResult.notRecognised(registrationNumber, alertMessage);
+                }
+            }
+            return readCarDetails(driver);
+        } finally {
+            metrics.recordSince(LookupMetrics.Phase.EXTRACT, start);
+        }
+    }
+
+    private LookupResult readCarDetails(WebDriver driver) {
+        VehicleReport report = new CarReportPage(driver).readReport();
+        logger.info("Extracted details - RegNumber: " + report.registrationNumber() + ", Make: " + report.make()
+                + ", Model: " + report.model() + ", Year: " + report.yearOfManufacture());
+        return report.toLookupResult();
+    }
+}
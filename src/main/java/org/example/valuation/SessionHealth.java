@@ -0,0 +1,135 @@
+package org.example.valuation;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Health of one browser session: the lookups it served, how its lookup latency drifted from its own first lookups,
+ * and the resident memory and open file handles of its driver and browser processes as last sampled.
+ * Lookups are recorded by the thread that holds the session, samples by the pool's monitor.
+ */
+public class SessionHealth {
+    private static final int BASELINE_LOOKUPS = 20;
+    private static final double RECENT_WEIGHT = 0.1;
+
+    private final List<ProcessHandle> processes;
+    private final long startedNanos = System.nanoTime();
+    private long lookups;
+    private long baselineNanos;
+    private double recentNanos;
+    private volatile long rssBytes = -1;
+    private volatile long openFiles = -1;
+
+    /**
+     * Constructor to initialize the SessionHealth.
+     *
+     * @param processes the driver processes the session started, whose descendants include its browser; may be empty
+     */
+    public SessionHealth(List<ProcessHandle> processes) {
+        this.processes = processes;
+    }
+
+    /**
+     * Records how long a lookup with the session took. The first lookups set the session's baseline; later ones
+     * feed an exponentially weighted average of its recent latency.
+     *
+     * @param nanos the lookup time
+     */
+    public synchronized void recordLookup(long nanos) {
+        lookups++;
+        if (lookups <= BASELINE_LOOKUPS) {
+            baselineNanos += nanos;
+            recentNanos = (double) baselineNanos / lookups;
+        } else {
+            recentNanos += RECENT_WEIGHT * (nanos - recentNanos);
+        }
+    }
+
+    /**
+     * Reads the resident memory and open file handles of the session's processes from {@code /proc}.
+     */
+    public void sample() {
+        long rss = 0;
+        long files = 0;
+        for (ProcessHandle process : processes) {
+            long processRss = ProcessMemory.treeRssBytes(process);
+            long processFiles = ProcessMemory.treeOpenFiles(process);
+            if (processRss < 0 || processFiles < 0) {
+                continue;
+            }
+            rss += processRss;
+            files += processFiles;
+        }
+        rssBytes = processes.isEmpty() ? -1 : rss;
+        openFiles = processes.isEmpty() ? -1 : files;
+    }
+
+    /**
+     * Returns the number of lookups the session served.
+     *
+     * @return the lookups
+     */
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Returns how many times slower the session's recent lookups are than its first ones.
+     *
+     * @return the latency drift, 1.0 until the baseline is complete and the recent average has had as many lookups
+     */
+    public synchronized double getLatencyDrift() {
+        if (lookups < 2 * BASELINE_LOOKUPS || baselineNanos == 0) {
+            return 1.0;
+        }
+        return recentNanos / ((double) baselineNanos / BASELINE_LOOKUPS);
+    }
+
+    /**
+     * Returns the resident memory of the session's processes as last sampled.
+     *
+     * @return the resident set size in bytes, or -1 if unknown
+     */
+    public long getRssBytes() {
+        return rssBytes;
+    }
+
+    /**
+     * Returns the open file handles of the session's processes as last sampled.
+     *
+     * @return the open handles, or -1 if unknown
+     */
+    public long getOpenFiles() {
+        return openFiles;
+    }
+
+    /**
+     * Returns why the session should be recycled under a policy, if it should.
+     *
+     * @param policy the thresholds
+     * @return the first threshold crossed, or null if the session is healthy
+     */
+    public String reasonToRecycle(SessionHealthPolicy policy) {
+        long served = getLookups();
+        if (policy.maxLookups() > 0 && served >= policy.maxLookups()) {
+            return "served " + served + " lookups";
+        }
+        Duration age = Duration.ofNanos(System.nanoTime() - startedNanos);
+        if (!policy.maxAge().isZero() && age.compareTo(policy.maxAge()) >= 0) {
+            return "is " + age.toMinutes() + " minutes old";
+        }
+        double drift = getLatencyDrift();
+        if (policy.maxLatencyDrift() > 0 && drift >= policy.maxLatencyDrift()) {
+            return String.format("lookups are %.1f times slower than at the start", drift);
+        }
+        long rss = rssBytes;
+        if (policy.maxRssBytes() > 0 && rss >= policy.maxRssBytes()) {
+            return "uses " + rss / (1024 * 1024) + " MB";
+        }
+        long files = openFiles;
+        if (policy.maxOpenFiles() > 0 && files >= policy.maxOpenFiles()) {
+            return "holds " + files + " open handles";
+        }
+        return null;
+    }
+}
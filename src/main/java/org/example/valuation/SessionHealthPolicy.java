@@ -0,0 +1,58 @@
+package org.example.valuation;
+
+import java.time.Duration;
+
+/**
+ * Thresholds past which a browser session is recycled: quit and replaced in the background before it slows lookups
+ * down. A threshold of 0 is not checked.
+ *
+ * @param maxLookups      the lookups a session serves before it is recycled
+ * @param maxAge          how long a session lives before it is recycled
+ * @param maxLatencyDrift how many times slower than its own first lookups a session may become
+ * @param maxRssBytes     the resident memory a session's driver and browser processes may use
+ * @param maxOpenFiles    the open file handles a session's driver and browser processes may hold
+ * @param sampleInterval  how often the processes of every session are read from {@code /proc}
+ */
+public record SessionHealthPolicy(long maxLookups, Duration maxAge, double maxLatencyDrift, long maxRssBytes,
+                                  long maxOpenFiles, Duration sampleInterval) {
+
+    /** Never recycles a session. */
+    public static final SessionHealthPolicy DISABLED = new SessionHealthPolicy(0, Duration.ZERO, 0, 0, 0, Duration.ZERO);
+
+    /**
+     * Reads the policy from the {@code driver.health.*} settings.
+     *
+     * @param config the settings
+     * @return the policy, or {@link #DISABLED} if health monitoring is off
+     */
+    public static SessionHealthPolicy fromConfig(Settings config) {
+        if (!config.getBoolean("driver.health.enabled", false)) {
+            return DISABLED;
+        }
+        return new SessionHealthPolicy(
+                config.getLong("driver.health.maxLookups", 500),
+                Duration.ofMinutes(config.getLong("driver.health.maxAgeMinutes", 60)),
+                config.getDouble("driver.health.maxLatencyDrift", 2.0),
+                config.getLong("driver.health.maxRssMb", 1536) * 1024 * 1024,
+                config.getLong("driver.health.maxOpenFiles", 4096),
+                Duration.ofSeconds(config.getLong("driver.health.sampleIntervalSeconds", 30)));
+    }
+
+    /**
+     * Returns whether any threshold is checked.
+     *
+     * @return true if sessions may be recycled
+     */
+    public boolean isEnabled() {
+        return maxLookups > 0 || !maxAge.isZero() || maxLatencyDrift > 0 || maxRssBytes > 0 || maxOpenFiles > 0;
+    }
+
+    /**
+     * Returns whether the processes of sessions need to be sampled.
+     *
+     * @return true if a process threshold is checked
+     */
+    boolean samplesProcesses() {
+        return (maxRssBytes > 0 || maxOpenFiles > 0) && !sampleInterval.isZero();
+    }
+}
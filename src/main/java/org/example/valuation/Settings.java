@@ -0,0 +1,131 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable view of the configuration, read from disk once and shared by every component that needs it.
+ */
+public final class Settings {
+    private static final Logger logger = LogManager.getLogger(Settings.class);
+
+    private final Map<String, String> values;
+
+    private Settings(Map<String, String> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Reads settings from a properties file, logging and falling back to defaults if it cannot be read.
+     *
+     * @param file the properties file
+     * @return the settings
+     */
+    public static Settings load(Path file) {
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            properties.load(input);
+        } catch (IOException e) {
+            logger.error("Error loading configuration file", e);
+        }
+        return of(properties);
+    }
+
+    /**
+     * Creates settings from properties.
+     *
+     * @param properties the properties to copy
+     * @return the settings
+     */
+    public static Settings of(Properties properties) {
+        Map<String, String> values = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, properties.getProperty(key).trim());
+        }
+        return new Settings(values);
+    }
+
+    /**
+     * Returns a string setting.
+     *
+     * @param key          the setting key
+     * @param defaultValue the value to return if the setting is absent
+     * @return the setting value
+     */
+    public String getString(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Returns an integer setting.
+     *
+     * @param key          the setting key
+     * @param defaultValue the value to return if the setting is absent
+     * @return the setting value
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * Returns a long setting.
+     *
+     * @param key          the setting key
+     * @param defaultValue the value to return if the setting is absent
+     * @return the setting value
+     */
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    /**
+     * Returns a decimal setting.
+     *
+     * @param key          the setting key
+     * @param defaultValue the value to return if the setting is absent
+     * @return the setting value
+     */
+    public double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * Returns a boolean setting.
+     *
+     * @param key          the setting key
+     * @param defaultValue the value to return if the setting is absent
+     * @return the setting value
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Returns a comma-separated list setting.
+     *
+     * @param key the setting key
+     * @return the non-empty list items, or an empty list if the setting is absent
+     */
+    public List<String> getList(String key) {
+        return Arrays.stream(values.getOrDefault(key, "").split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,375 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Command line entry point for runs split across several worker processes, each with its own browsers.
+ * The registrations of the cleaned test data are assigned to shards by a hash of their canonical form, so a
+ * registration always lands in the same shard. Each worker looks up its shard's registrations in input order and
+ * writes them to its own shard file, each row prefixed with its position in the input. A failed lookup does not abort
+ * the shard: it is left out of the shard file and listed in the shard's failure file instead, and the worker exits
+ * with 1 once the rest of its shard is done. The coordinator then merges the shard files into one output file ordered
+ * by input position, reading one row per shard at a time, and refuses to merge shards with failed lookups.
+ *
+ * <pre>
+ * run    --shards N [--input FILE] [--output FILE] [--work DIR] [--engine ENGINE] [--base-url URL] [--concurrency N]
+ * worker --shard I --shards N [--input FILE] [--work DIR] [--engine ENGINE] [--base-url URL] [--concurrency N]
+ * merge  --shards N [--output FILE] [--work DIR]
+ * </pre>
+ * {@code run} launches the workers as child processes of the same JVM and class path, waits for them and merges.
+ * Options that are left out are taken from the configuration file.
+ */
+public final class ShardedRun {
+    private static final Logger logger = LogManager.getLogger(ShardedRun.class);
+    private static final String OUTPUT_HEADER = "VARIANT_REG,MAKE,MODEL,YEAR";
+    private static final char SEQUENCE_SEPARATOR = '\t';
+
+    private ShardedRun() {}
+
+    /**
+     * Runs the command given on the command line and exits with 0 on success and 1 on failure.
+     *
+     * @param args the command and its options
+     */
+    public static void main(String[] args) {
+        try {
+            run(args);
+            System.exit(0);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Sharded run failed", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the command given on the command line.
+     *
+     * @param args the command and its options
+     * @throws IOException              if a file cannot be read or written
+     * @throws IllegalArgumentException if the command or an option is not recognised
+     * @throws IllegalStateException    if a worker fails
+     */
+    public static void run(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: ShardedRun run|worker|merge [--option value]...");
+        }
+        Map<String, String> options = parseOptions(args);
+        Settings config = DriverSingleton.getSettings();
+        int shards = Integer.parseInt(required(options, "shards"));
+        Path input = Paths.get(options.getOrDefault("input", config.getString("shard.input", "src/test/resources/cleaned_test_data.txt")));
+        Path output = Paths.get(options.getOrDefault("output", config.getString("shard.output", "target/car_output.txt")));
+        Path workDir = Paths.get(options.getOrDefault("work", config.getString("shard.workDir", "target/shards")));
+        String engine = options.getOrDefault("engine", config.getString("lookup.engine", "selenium"));
+        String baseUrl = options.getOrDefault("base-url", config.getString("site.baseUrl", "https://car-checking.com/"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", Integer.toString(config.getInt("lookup.parallelism", 1))));
+
+        switch (args[0]) {
+            case "run":
+                coordinate(shards, input, output, workDir, engine, baseUrl, concurrency);
+                break;
+            case "worker":
+                runWorker(Integer.parseInt(required(options, "shard")), shards, input, workDir,
+                        VehicleLookup.forEngine(engine, baseUrl), concurrency);
+                break;
+            case "merge":
+                merge(shards, workDir, output);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+    }
+
+    /**
+     * Returns the shard of a registration number.
+     *
+     * @param registrationNumber the registration number as entered
+     * @param shards             the number of shards
+     * @return the shard, from 0
+     */
+    public static int shardOf(String registrationNumber, int shards) {
+        int hash = Registrations.canonical(registrationNumber).hashCode();
+        // Spread the bits, since registrations that differ only in their last characters have close hash codes
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return Math.floorMod(hash, shards);
+    }
+
+    /**
+     * Launches one worker process per shard, waits for all of them and merges their shard files.
+     *
+     * @param shards      the number of shards
+     * @param input       the cleaned test data
+     * @param output      the output file to write
+     * @param workDir     the directory for the shard files and worker logs
+     * @param engine      the lookup engine of the workers
+     * @param baseUrl     the URL of the car checking page
+     * @param concurrency the concurrent lookups per worker
+     * @throws IOException           if a worker cannot be started or the shards cannot be merged
+     * @throws IllegalStateException if a worker fails
+     */
+    public static void coordinate(int shards, Path input, Path output, Path workDir, String engine, String baseUrl,
+                                  int concurrency) throws IOException {
+        Files.createDirectories(workDir);
+        long start = System.nanoTime();
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<Process> workers = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            List<String> command = List.of(java, "-cp", System.getProperty("java.class.path"), ShardedRun.class.getName(),
+                    "worker", "--shard", Integer.toString(shard), "--shards", Integer.toString(shards),
+                    "--input", input.toString(), "--work", workDir.toString(), "--engine", engine,
+                    "--base-url", baseUrl, "--concurrency", Integer.toString(concurrency));
+            File log = workDir.resolve("worker-" + shard + ".log").toFile();
+            workers.add(new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start());
+        }
+        logger.info("Started " + shards + " workers for " + input);
+
+        List<Integer> failed = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            try {
+                if (workers.get(shard).waitFor() != 0) {
+                    failed.add(shard);
+                }
+            } catch (InterruptedException e) {
+                workers.forEach(Process::destroy);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for workers", e);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("Workers for shards " + failed + " failed, see their logs and failure files in " + workDir);
+        }
+        long rows = merge(shards, workDir, output);
+        logger.info("Sharded run of " + rows + " rows over " + shards + " workers took " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Looks up the registrations of one shard and writes them to its shard file in input order.
+     * Up to {@code concurrency} lookups run at once; rows are written as soon as every earlier one is done.
+     * A lookup that fails is logged and written to the shard's failure file, with its input position, registration
+     * and cause, rather than to the shard file.
+     *
+     * @param shard       the shard, from 0
+     * @param shards      the number of shards
+     * @param input       the cleaned test data
+     * @param workDir     the directory for the shard file
+     * @param lookup      the lookup to use
+     * @param concurrency the concurrent lookups
+     * @return the number of rows written
+     * @throws IOException           if a file cannot be read or written
+     * @throws IllegalStateException if any lookup failed, once the rest of the shard has been written
+     */
+    public static long runWorker(int shard, int shards, Path input, Path workDir, VehicleLookup lookup, int concurrency)
+            throws IOException {
+        Files.createDirectories(workDir);
+        Path shardFile = shardFile(workDir, shard);
+        Path partFile = shardFile.resolveSibling(shardFile.getFileName() + ".part");
+        Path failedFile = failedFile(workDir, shard);
+        long rows = 0;
+        long failed = 0;
+        Deque<PendingRow> pending = new ArrayDeque<>();
+        try (LookupPipeline pipeline = new LookupPipeline(lookup, concurrency, concurrency * 4, true);
+             BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(partFile, StandardCharsets.UTF_8);
+             BufferedWriter failures = Files.newBufferedWriter(failedFile, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            for (long sequence = 0; (line = reader.readLine()) != null; sequence++) {
+                String registrationNumber = line.substring(0, line.indexOf(','));
+                if (shardOf(registrationNumber, shards) != shard) {
+                    continue;
+                }
+                pending.add(new PendingRow(sequence, registrationNumber, pipeline.submit(registrationNumber)));
+                while (pending.size() > concurrency * 4 || (!pending.isEmpty() && pending.peek().result.isDone())) {
+                    if (writeRow(writer, failures, pending.poll())) {
+                        rows++;
+                    } else {
+                        failed++;
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                if (writeRow(writer, failures, pending.poll())) {
+                    rows++;
+                } else {
+                    failed++;
+                }
+            }
+        }
+        // Only a complete shard gets its final name, so the merge never reads half a shard
+        Files.move(partFile, shardFile, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Shard " + shard + " of " + shards + ": wrote " + rows + " rows to " + shardFile + ", " + failed + " lookups failed");
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " lookups of shard " + shard + " failed, see " + failedFile);
+        }
+        Files.delete(failedFile);
+        return rows;
+    }
+
+    /**
+     * Merges the shard files into one output file ordered by input position.
+     *
+     * @param shards  the number of shards
+     * @param workDir the directory holding the shard files
+     * @param output  the output file to write
+     * @return the number of rows written
+     * @throws IOException           if a file cannot be read or written
+     * @throws IllegalStateException if a shard has failed lookups, which would be missing from the output
+     */
+    public static long merge(int shards, Path workDir, Path output) throws IOException {
+        List<Path> failedFiles = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            Path failedFile = failedFile(workDir, shard);
+            if (Files.exists(failedFile) && Files.size(failedFile) > 0) {
+                failedFiles.add(failedFile);
+            }
+        }
+        if (!failedFiles.isEmpty()) {
+            throw new IllegalStateException("Not merging shards with failed lookups, rerun their workers: " + failedFiles);
+        }
+        List<BufferedReader> readers = new ArrayList<>(shards);
+        PriorityQueue<ShardRow> heads = new PriorityQueue<>();
+        long rows = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            for (int shard = 0; shard < shards; shard++) {
+                BufferedReader reader = Files.newBufferedReader(shardFile(workDir, shard), StandardCharsets.UTF_8);
+                readers.add(reader);
+                ShardRow head = ShardRow.read(reader, shard);
+                if (head != null) {
+                    heads.add(head);
+                }
+            }
+            writer.write(OUTPUT_HEADER);
+            writer.newLine();
+            long expectedSequence = 0;
+            while (!heads.isEmpty()) {
+                ShardRow head = heads.poll();
+                if (head.sequence != expectedSequence) {
+                    logger.warn("Row " + expectedSequence + " is missing from the shards, next row is " + head.sequence);
+                }
+                writer.write(head.row);
+                writer.newLine();
+                rows++;
+                expectedSequence = head.sequence + 1;
+                ShardRow next = ShardRow.read(readers.get(head.shard), head.shard);
+                if (next != null) {
+                    heads.add(next);
+                }
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+        logger.info("Merged " + rows + " rows from " + shards + " shards into " + output);
+        return rows;
+    }
+
+    private static Path shardFile(Path workDir, int shard) {
+        return workDir.resolve("shard-" + shard + ".txt");
+    }
+
+    static Path failedFile(Path workDir, int shard) {
+        return workDir.resolve("shard-" + shard + ".failed");
+    }
+
+    /**
+     * Writes a row to the shard file, or the failure of its lookup to the failure file.
+     *
+     * @return false if the lookup failed and its failure was written instead of a row
+     */
+    private static boolean writeRow(BufferedWriter writer, BufferedWriter failures, PendingRow pendingRow) throws IOException {
+        LookupResult result;
+        try {
+            result = pendingRow.result.join();
+        } catch (CompletionException e) {
+            logger.error("Lookup of " + pendingRow.registrationNumber + " at input row " + pendingRow.sequence + " failed", e.getCause());
+            String reason = String.valueOf(e.getCause().getMessage()).replaceAll("\\s+", " ");
+            failures.write(pendingRow.sequence + "" + SEQUENCE_SEPARATOR + pendingRow.registrationNumber + SEQUENCE_SEPARATOR + reason);
+            failures.newLine();
+            return false;
+        }
+        writer.write(Long.toString(pendingRow.sequence));
+        writer.write(SEQUENCE_SEPARATOR);
+        writer.write(result.toRow());
+        writer.newLine();
+        return true;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing option --" + name);
+        }
+        return value;
+    }
+
+    private static final class PendingRow {
+        private final long sequence;
+        private final String registrationNumber;
+        private final CompletableFuture<LookupResult> result;
+
+        private PendingRow(long sequence, String registrationNumber, CompletableFuture<LookupResult> result) {
+            this.sequence = sequence;
+            this.registrationNumber = registrationNumber;
+            this.result = result;
+        }
+    }
+
+    private static final class ShardRow implements Comparable<ShardRow> {
+        private final long sequence;
+        private final String row;
+        private final int shard;
+
+        private ShardRow(long sequence, String row, int shard) {
+            this.sequence = sequence;
+            this.row = row;
+            this.shard = shard;
+        }
+
+        private static ShardRow read(BufferedReader reader, int shard) throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            int separator = line.indexOf(SEQUENCE_SEPARATOR);
+            return new ShardRow(Long.parseLong(line.substring(0, separator)), line.substring(separator + 1), shard);
+        }
+
+        @Override
+        public int compareTo(ShardRow other) {
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
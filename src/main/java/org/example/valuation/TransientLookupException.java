@@ -0,0 +1,43 @@
+package org.example.valuation;
+
+import java.time.Duration;
+
+/**
+ * Thrown when the car checking site turns a lookup away for now, for example with a 429 or 503 response,
+ * so that the same lookup is expected to succeed if it is retried later.
+ */
+public class TransientLookupException extends RuntimeException {
+    private final boolean throttled;
+    private final Duration retryAfter;
+
+    /**
+     * Constructor to initialize the TransientLookupException.
+     *
+     * @param message    the detail message
+     * @param throttled  whether the site said it is rate limiting us
+     * @param retryAfter how long the site asked us to wait, or null if it did not say
+     */
+    public TransientLookupException(String message, boolean throttled, Duration retryAfter) {
+        super(message);
+        this.throttled = throttled;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns whether the site said it is rate limiting us.
+     *
+     * @return true for a 429 response or page
+     */
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    /**
+     * Returns how long the site asked us to wait before retrying.
+     *
+     * @return the wait, or null if the site did not say
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.valuation;
+
+import java.net.URI;
+
+/**
+ * Looks up the car details for a registration number on the car checking site.
+ */
+public interface VehicleLookup {
+
+    /**
+     * Looks up a registration number.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     */
+    LookupResult lookup(String registrationNumber);
+
+    /**
+     * Creates the lookup engine selected by the {@code lookup.engine} setting.
+     *
+     * @param engine         {@code selenium} to drive a browser, or {@code http} to submit the form directly
+     * @param carCheckingUrl the URL of the car checking page
+     * @return the lookup engine
+     */
+    static VehicleLookup forEngine(String engine, String carCheckingUrl) {
+        switch (engine.toLowerCase()) {
+            case "selenium":
+                return new SeleniumVehicleLookup(carCheckingUrl);
+            case "http":
+                return new VehicleLookupClient(URI.create(carCheckingUrl));
+            default:
+                throw new IllegalArgumentException("Unsupported lookup engine: " + engine);
+        }
+    }
+}
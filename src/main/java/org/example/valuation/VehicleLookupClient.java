@@ -0,0 +1,191 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Looks up registration numbers without a browser, by submitting the registration form of the
+ * car checking page over HTTP and parsing the response HTML.
+ * One HttpClient is shared by all lookups, so connections are reused (and multiplexed over HTTP/2 where the site supports it).
+ */
+public class VehicleLookupClient implements VehicleLookup {
+    private static final Logger logger = LogManager.getLogger(VehicleLookupClient.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+    private static final String REG_NUMBER_INPUT_ID = "subForm1";
+    private static final Pattern FORM_PATTERN = Pattern.compile("<form\\b([^>]*)>(.*?)</form>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern FIELD_PATTERN = Pattern.compile("<(input|button)\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+
+    private final URI carCheckingUri;
+    private final HttpClient httpClient;
+    private volatile RegistrationForm registrationForm;
+
+    /**
+     * Constructor to initialize the VehicleLookupClient.
+     *
+     * @param carCheckingUri the URI of the car checking page that holds the registration form
+     */
+    public VehicleLookupClient(URI carCheckingUri) {
+        this.carCheckingUri = carCheckingUri;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .cookieHandler(new CookieManager())
+                .build();
+    }
+
+    /**
+     * Submits the registration form and reads either the car report or the error alert from the response.
+     * If the response is neither, the form is fetched again (it may carry an expired token) and the lookup retried once.
+     *
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
+     * @throws UncheckedIOException     if the site cannot be reached
+     * @throws IllegalStateException     if the site responds with an unexpected page
+     * @throws TransientLookupException if the site responds with 429 or 503
+     */
+    @Override
+    public LookupResult lookup(String registrationNumber) {
+        LookupResult result = submit(getRegistrationForm(false), registrationNumber);
+        if (result == null) {
+            result = submit(getRegistrationForm(true), registrationNumber);
+        }
+        if (result == null) {
+            throw new IllegalStateException("Neither a report nor an error alert was returned for " + registrationNumber);
+        }
+        return result;
+    }
+
+    private LookupResult submit(RegistrationForm form, String registrationNumber) {
+        Map<String, String> fields = new LinkedHashMap<>(form.fields);
+        fields.put(form.registrationField, registrationNumber);
+        String encodedFields = fields.entrySet().stream()
+                .map(field -> URLEncoder.encode(field.getKey(), StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(field.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+
+        HttpRequest.Builder request = HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT);
+        if ("post".equals(form.method)) {
+            request.uri(form.action)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(encodedFields));
+        } else {
+            request.uri(URI.create(form.action + (form.action.getRawQuery() == null ? "?" : "&") + encodedFields)).GET();
+        }
+
+        String html = send(request.build());
+        String alertMessage = ReportHtmlParser.parseErrorMessage(html);
+        if (alertMessage != null) {
+            logger.info("Entered Registration Number: " + registrationNumber);
+            return LookupResult.notRecognised(registrationNumber, alertMessage);
+        }
+        VehicleReport report = VehicleReport.fromHtml(html);
+        if (report == null) {
+            return null;
+        }
+        logger.info("Extracted details - RegNumber: " + report.registrationNumber() + ", Make: " + report.make()
+                + ", Model: " + report.model() + ", Year: " + report.yearOfManufacture());
+        return report.toLookupResult();
+    }
+
+    private RegistrationForm getRegistrationForm(boolean refresh) {
+        RegistrationForm form = registrationForm;
+        if (form == null || refresh) {
+            String html = send(HttpRequest.newBuilder(carCheckingUri).timeout(REQUEST_TIMEOUT).GET().build());
+            form = RegistrationForm.parse(carCheckingUri, html);
+            registrationForm = form;
+            logger.info("Read registration form: " + form.method.toUpperCase() + " " + form.action);
+        }
+        return form;
+    }
+
+    private String send(HttpRequest request) {
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 429 || response.statusCode() == 503) {
+                throw new TransientLookupException("HTTP " + response.statusCode() + " from " + request.uri(),
+                        response.statusCode() == 429, retryAfter(response));
+            }
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("HTTP " + response.statusCode() + " from " + request.uri());
+            }
+            return response.body();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error requesting " + request.uri(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while requesting " + request.uri(), e);
+        }
+    }
+
+    /**
+     * Reads the Retry-After header, in its delay-seconds form.
+     */
+    private static Duration retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+                .filter(value -> value.matches("\\d+"))
+                .map(value -> Duration.ofSeconds(Long.parseLong(value)))
+                .orElse(null);
+    }
+
+    /**
+     * The registration form as the page submits it: target, method, the registration input name
+     * and any other named fields (hidden tokens, the submit button) sent along with it.
+     */
+    private static final class RegistrationForm {
+        private final URI action;
+        private final String method;
+        private final String registrationField;
+        private final Map<String, String> fields;
+
+        private RegistrationForm(URI action, String method, String registrationField, Map<String, String> fields) {
+            this.action = action;
+            this.method = method;
+            this.registrationField = registrationField;
+            this.fields = fields;
+        }
+
+        private static RegistrationForm parse(URI pageUri, String html) {
+            Matcher forms = FORM_PATTERN.matcher(html);
+            while (forms.find()) {
+                String registrationField = null;
+                Map<String, String> fields = new LinkedHashMap<>();
+                Matcher formFields = FIELD_PATTERN.matcher(forms.group(2));
+                while (formFields.find()) {
+                    Map<String, String> attributes = ReportHtmlParser.parseAttributes(formFields.group(2));
+                    String name = attributes.get("name");
+                    String type = attributes.getOrDefault("type", "input".equalsIgnoreCase(formFields.group(1)) ? "text" : "submit");
+                    if (REG_NUMBER_INPUT_ID.equals(attributes.get("id"))) {
+                        registrationField = name != null ? name : REG_NUMBER_INPUT_ID;
+                    } else if (name != null && (type.equalsIgnoreCase("hidden") || type.equalsIgnoreCase("submit"))) {
+                        fields.put(name, attributes.getOrDefault("value", ""));
+                    }
+                }
+                if (registrationField != null) {
+                    Map<String, String> formAttributes = ReportHtmlParser.parseAttributes(forms.group(1));
+                    String action = formAttributes.getOrDefault("action", "");
+                    String method = formAttributes.getOrDefault("method", "get").toLowerCase();
+                    return new RegistrationForm(action.isEmpty() ? pageUri : pageUri.resolve(action), method, registrationField, fields);
+                }
+            }
+            throw new IllegalStateException("No registration form with input #" + REG_NUMBER_INPUT_ID + " found at " + pageUri);
+        }
+    }
+}
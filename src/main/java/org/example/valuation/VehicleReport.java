@@ -0,0 +1,97 @@
+package org.example.valuation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The contents of a car report page, read in one go.
+ * Every label/value row of the report table is kept, so further fields such as colour, fuel type or engine size
+ * are read with {@link #field(String)} and cost no extra round trips.
+ *
+ * @param registrationNumber the registration number shown on the report, or null if absent
+ * @param fields             the report table values by row label, in page order
+ */
+public record VehicleReport(String registrationNumber, Map<String, String> fields) {
+
+    public static final String MAKE = "Make";
+    public static final String MODEL = "Model";
+    public static final String YEAR_OF_MANUFACTURE = "Year of manufacture";
+
+    /**
+     * Constructor that takes an unmodifiable copy of the fields.
+     *
+     * @param registrationNumber the registration number shown on the report, or null if absent
+     * @param fields             the report table values by row label, in page order
+     */
+    public VehicleReport {
+        fields = Collections.unmodifiableMap(new LinkedHashMap<>(fields));
+    }
+
+    /**
+     * Reads a report from a snapshot of the page HTML.
+     *
+     * @param html the page HTML
+     * @return the report, or null if the page is not a report page
+     */
+    public static VehicleReport fromHtml(String html) {
+        String registrationNumber = ReportHtmlParser.parseRegistrationNumber(html);
+        if (registrationNumber == null) {
+            return null;
+        }
+        return new VehicleReport(registrationNumber, ReportHtmlParser.parseReportFields(html));
+    }
+
+    /**
+     * Returns the value of a report table row.
+     *
+     * @param label the row label, as shown on the page
+     * @return the value, or null if the report has no such row
+     */
+    public String field(String label) {
+        return fields.get(label);
+    }
+
+    /**
+     * Returns the make of the car.
+     *
+     * @return the make, or null if absent
+     */
+    public String make() {
+        return field(MAKE);
+    }
+
+    /**
+     * Returns the model of the car.
+     *
+     * @return the model, or null if absent
+     */
+    public String model() {
+        return field(MODEL);
+    }
+
+    /**
+     * Returns the year of manufacture of the car.
+     *
+     * @return the year of manufacture, or null if absent
+     */
+    public String yearOfManufacture() {
+        return field(YEAR_OF_MANUFACTURE);
+    }
+
+    /**
+     * Converts the report to an output row: recognised if the registration number, make, model and year are all present.
+     *
+     * @return the lookup result
+     */
+    public LookupResult toLookupResult() {
+        if (isPresent(registrationNumber) && isPresent(make()) && isPresent(model()) && isPresent(yearOfManufacture())) {
+            return LookupResult.found(registrationNumber, make(), model(), yearOfManufacture());
+        }
+        return LookupResult.notRecognised(registrationNumber != null ? registrationNumber : "", LookupResult.NOT_RECOGNISED_MESSAGE);
+    }
+
+    private static boolean isPresent(String value) {
+        return value != null && !value.isEmpty();
+    }
+}
@@ -0,0 +1,310 @@
+package org.example.valuation;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded stand-in for car-checking.com, serving the registration form, report pages and error alerts for
+ * a fixed set of cars, so lookups can be run fast, repeatably and at any volume without touching the live site.
+ * The pages carry the same elements the Selenium and HTTP lookups read. Report requests can be given a
+ * log-normal latency, an extra delay once more than a given number are in flight, random 503 and 429 responses,
+ * a 429 on every Nth request and a request rate cap. Random draws come from a seeded source so a run can be repeated;
+ * tests that need exact fault counts use the every-Nth throttle, which does not depend on request timing.
+ */
+public class CarCheckingStubServer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(CarCheckingStubServer.class);
+    static final String FORM_TOKEN = "abc&123";
+    private static final String FORM = "<form action=\"/report\" method=\"post\">"
+            + "<input type=\"hidden\" name=\"token\" value=\"abc&amp;123\">"
+            + "<input id=\"subForm1\" name=\"reg\" type=\"text\">"
+            + "<button type=\"submit\">Check</button></form>";
+    private static final String FORM_PAGE = "<html><head><title>Car checking</title></head><body><h1>Car checking</h1>"
+            + FORM + "</body></html>";
+    private static final String NOT_FOUND_PAGE = "<html><head><title>404 Not Found</title></head><body>"
+            + "<h1>404 Not Found</h1></body></html>";
+    private static final String THROTTLED_PAGE = "<html><head><title>429 Too Many Requests</title></head><body>"
+            + "<h1>429 Too Many Requests</h1></body></html>";
+    private static final String UNAVAILABLE_PAGE = "<html><head><title>503 Service Unavailable</title></head><body>"
+            + "<h1>503 Service Unavailable</h1></body></html>";
+
+    /**
+     * How the stub behaves under load.
+     *
+     * @param medianLatency        the median time to answer a report request
+     * @param latencySpread        the standard deviation of the logarithm of the latency, 0 for a fixed latency
+     * @param errorRate            the share of report requests answered with a 503, between 0 and 1
+     * @param throttleRate         the share of report requests answered with a 429, between 0 and 1
+     * @param throttleEvery        answers every Nth report request with a 429, or 0 for none
+     * @param maxRequestsPerSecond the report requests per second above which requests get a 429, or 0 for no cap
+     * @param concurrencyKnee      the report requests in flight above which each one is slowed down, or 0 for no knee
+     * @param overloadDelay        the extra delay of a report request above the knee
+     * @param seed                 the seed of the random source behind latencies and injected faults
+     */
+    public record Profile(Duration medianLatency, double latencySpread, double errorRate, double throttleRate,
+                          int throttleEvery, double maxRequestsPerSecond, int concurrencyKnee, Duration overloadDelay, long seed) {
+
+        /**
+         * A stub that answers every request at once and never fails.
+         */
+        public static final Profile IDEAL = new Profile(Duration.ZERO, 0, 0, 0, 0, 0, 0, Duration.ZERO, 1);
+
+        /**
+         * Reads the profile from the {@code stub.*} configuration keys.
+         *
+         * @param config the configuration settings
+         * @return the profile
+         */
+        public static Profile fromConfig(Settings config) {
+            return new Profile(
+                    Duration.ofMillis(config.getLong("stub.medianLatencyMillis", 0)),
+                    config.getDouble("stub.latencySpread", 0),
+                    config.getDouble("stub.errorRate", 0),
+                    config.getDouble("stub.throttleRate", 0),
+                    config.getInt("stub.throttleEvery", 0),
+                    config.getDouble("stub.maxRequestsPerSecond", 0),
+                    config.getInt("stub.concurrencyKnee", 0),
+                    Duration.ofMillis(config.getLong("stub.overloadDelayMillis", 0)),
+                    config.getLong("stub.seed", 1));
+        }
+    }
+
+    private final Map<String, LookupResult> cars;
+    private final Profile profile;
+    private final Random random;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "car-checking-stub");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong reportRequests = new AtomicLong();
+    private final AtomicLong admittedRequests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long windowStartNanos = System.nanoTime();
+    private int windowRequests;
+
+    /**
+     * Constructor to initialize the CarCheckingStubServer and start it on a free local port.
+     *
+     * @param cars    the recognised cars, keyed by registration number without spaces
+     * @param profile the latency and fault profile
+     * @throws IOException if the server cannot be started
+     */
+    public CarCheckingStubServer(Map<String, LookupResult> cars, Profile profile) throws IOException {
+        this.cars = cars;
+        this.profile = profile;
+        this.random = new Random(profile.seed());
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if ("/".equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 200, FORM_PAGE);
+            } else {
+                respond(exchange, 404, NOT_FOUND_PAGE);
+            }
+        });
+        server.createContext("/report", this::handleReport);
+        server.start();
+        logger.info("Started car checking stub at " + getBaseUrl() + " with " + cars.size() + " cars and " + profile);
+    }
+
+    /**
+     * Starts a stub that recognises the cars of an expected output file and no others.
+     *
+     * @param expectedOutput the expected output file, whose four-column rows are the recognised cars
+     * @param profile        the latency and fault profile
+     * @return the started stub
+     * @throws IOException if the file cannot be read or the server cannot be started
+     */
+    public static CarCheckingStubServer fromExpectedOutput(Path expectedOutput, Profile profile) throws IOException {
+        List<String> lines = Files.readAllLines(expectedOutput, StandardCharsets.UTF_8);
+        Map<String, LookupResult> cars = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(",");
+            if (fields.length == 4) {
+                cars.put(fields[0], LookupResult.found(fields[0], fields[1], fields[2], fields[3]));
+            }
+        }
+        return new CarCheckingStubServer(cars, profile);
+    }
+
+    /**
+     * Returns the URL of the stub's car checking page.
+     *
+     * @return the base URL, ending with a slash
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Returns the number of report requests received.
+     *
+     * @return the report requests
+     */
+    public long getReportRequests() {
+        return reportRequests.get();
+    }
+
+    /**
+     * Returns the number of report requests answered with a 429.
+     *
+     * @return the throttled requests
+     */
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    /**
+     * Returns the number of report requests answered with a 503.
+     *
+     * @return the failed requests
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Stops the stub.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        logger.info("Stopped car checking stub after " + reportRequests.get() + " report requests, "
+                + throttled.get() + " throttled, " + failed.get() + " failed");
+    }
+
+    private void handleReport(HttpExchange exchange) throws IOException {
+        int concurrent = inFlight.incrementAndGet();
+        try {
+            Map<String, String> form = parseForm(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            reportRequests.incrementAndGet();
+            if (!FORM_TOKEN.equals(form.get("token"))) {
+                respond(exchange, 403, "missing token");
+                return;
+            }
+            if (!takeRequestSlot()) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, THROTTLED_PAGE);
+                return;
+            }
+            if (profile.throttleEvery() > 0 && admittedRequests.incrementAndGet() % profile.throttleEvery() == 0) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "0");
+                respond(exchange, 429, THROTTLED_PAGE);
+                return;
+            }
+            double fault;
+            long delayNanos;
+            synchronized (random) {
+                fault = random.nextDouble();
+                delayNanos = (long) (profile.medianLatency().toNanos() * Math.exp(profile.latencySpread() * random.nextGaussian()));
+            }
+            if (fault < profile.throttleRate()) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "0");
+                respond(exchange, 429, THROTTLED_PAGE);
+                return;
+            }
+            if (fault < profile.throttleRate() + profile.errorRate()) {
+                failed.incrementAndGet();
+                respond(exchange, 503, UNAVAILABLE_PAGE);
+                return;
+            }
+            if (profile.concurrencyKnee() > 0 && concurrent > profile.concurrencyKnee()) {
+                delayNanos += profile.overloadDelay().toNanos();
+            }
+            Thread.sleep(delayNanos / 1_000_000, (int) (delayNanos % 1_000_000));
+            String registrationNumber = form.getOrDefault("reg", "");
+            LookupResult car = cars.get(registrationNumber.replace(" ", "").toUpperCase(Locale.ROOT));
+            respond(exchange, 200, car == null ? alertPage() : reportPage(car));
+        } catch (InterruptedException e) {
+            // The stub is shutting down: answer rather than leave the client waiting for a response that never comes
+            failed.incrementAndGet();
+            respond(exchange, 503, UNAVAILABLE_PAGE);
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Counts a request against the rate cap, in one-second windows.
+     */
+    private synchronized boolean takeRequestSlot() {
+        if (profile.maxRequestsPerSecond() <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= 1_000_000_000L) {
+            windowStartNanos = now;
+            windowRequests = 0;
+        }
+        return ++windowRequests <= profile.maxRequestsPerSecond();
+    }
+
+    private static String reportPage(LookupResult car) {
+        return "<html><head><title>Car report</title></head><body>"
+                + "<input id=\"subForm\" type=\"text\" value=\"" + escape(car.registration()) + "\">"
+                + "<table><tr><td>Make</td><td>" + escape(car.make()) + "</td></tr>"
+                + "<tr><td>Model</td><td>" + escape(car.model()) + "</td></tr>"
+                + "<tr><td>Year of manufacture</td><td>" + escape(car.year()) + "</td></tr></table>"
+                + "</body></html>";
+    }
+
+    private static String alertPage() {
+        return "<html><head><title>Car checking</title></head><body><h1>Car checking</h1>"
+                + "<div class=\"alert alert-danger\" role=\"alert\">\n  " + LookupResult.NOT_RECOGNISED_MESSAGE + "\n</div>"
+                + FORM + "</body></html>";
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> fields = new HashMap<>();
+        for (String field : body.split("&")) {
+            int separator = field.indexOf('=');
+            if (separator > 0) {
+                fields.put(URLDecoder.decode(field.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(field.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return fields;
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
@@ -2,30 +2,39 @@ package org.example.valuation;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
-import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * This class contains tests for the Car Valuation application.
@@ -37,10 +46,29 @@ public class CarValuationTest {
 
     private static final Logger logger = LogManager.getLogger(CarValuationTest.class);
     private static final String OUTPUT_FILE_PATH = "src/test/resources/car_output - V6.txt";
+    private static final String CLEANED_TEST_DATA_FILE_PATH = "src/test/resources/cleaned_test_data.txt";
+    private static final String OUTPUT_HEADER = "VARIANT_REG,MAKE,MODEL,YEAR";
     private static final String EXPECTED_OUTPUT_FILE_PATH = "src/test/resources/expected_output.txt";
-    private static final String CAR_CHECKING_URL = "https://car-checking.com/";
-    private static final String CAR_REPORT_URL = "https://car-checking.com/report";
-    private static WebDriver driver;
+    private static final String DIFF_FILE_PATH = "target/output-diff.jsonl";
+    private static final long COMPARE_PARTITION_SIZE_BYTES = 64L * 1024 * 1024;
+    private static final List<String> HARDCODED_INVALID_REGISTRATION_NUMBERS =
+            List.of("INVALID123", "1", "A", "A1A", "AAA", "AA00", "AA00 XXX");
+    private static final Map<String, CompletableFuture<LookupResult>> prefetchedLookups = new ConcurrentHashMap<>();
+    private static final List<CompletableFuture<Void>> pipelineWrites = new ArrayList<>();
+    private static VehicleLookup vehicleLookup;
+    private static LookupCache lookupCache;
+    private static PrevalidatingVehicleLookup prevalidatingLookup;
+    private static LookupScheduler lookupScheduler;
+    private static MultiTabVehicleLookup multiTabLookup;
+    private static LookupJournal lookupJournal;
+    private static LookupMetrics metrics;
+    private static LookupExecutor lookupExecutor;
+    private static LookupPipeline lookupPipeline;
+    private static CarCheckingStubServer stubServer;
+    private static String carCheckingUrl;
+    private static ResultSink resultSink;
+    private static CleanedTestData cleanedTestData;
+    private static boolean browserEngine;
 
     /**
      * Sets up the test environment by initializing the output file and extracting registration numbers.
@@ -49,22 +77,172 @@ public class CarValuationTest {
      */
     @BeforeAll
     public static void setup() throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(OUTPUT_FILE_PATH))) {
-            writer.write("VARIANT_REG,MAKE,MODEL,YEAR\n");
+        long coldStart = System.nanoTime();
+        Settings config = DriverSingleton.getSettings();
+        String engine = config.getString("lookup.engine", "selenium");
+        browserEngine = !engine.equalsIgnoreCase("http");
+        // Browsers start while the input is scanned, so neither waits for the other; the HTTP engine needs none
+        CompletableFuture<Void> browserReady = browserEngine
+                ? CompletableFuture.runAsync(() -> DriverSingleton.getPool().prewarm())
+                : CompletableFuture.completedFuture(null);
+        resultSink = new ResultSink(Paths.get(OUTPUT_FILE_PATH), OUTPUT_HEADER,
+                config.getInt("sink.queueCapacity", 1024),
+                config.getInt("sink.batchSize", 64),
+                Duration.ofMillis(config.getLong("sink.flushIntervalMillis", 200)));
+        if (config.getBoolean("site.stub.enabled", false)) {
+            stubServer = CarCheckingStubServer.fromExpectedOutput(Paths.get(EXPECTED_OUTPUT_FILE_PATH),
+                    CarCheckingStubServer.Profile.fromConfig(config));
+            carCheckingUrl = stubServer.getBaseUrl();
+        } else {
+            carCheckingUrl = config.getString("site.baseUrl", "https://car-checking.com/");
+        }
+
+        metrics = DriverSingleton.getMetrics();
+        int parallelism = config.getInt("lookup.parallelism", 1);
+        int tabs = config.getInt("lookup.tabs", 1);
+        if (tabs > 1 && engine.equalsIgnoreCase("selenium")) {
+            multiTabLookup = new MultiTabVehicleLookup(carCheckingUrl, tabs);
+            vehicleLookup = multiTabLookup;
+        } else {
+            vehicleLookup = VehicleLookup.forEngine(engine, carCheckingUrl);
+        }
+        if (config.getBoolean("scheduler.enabled", false)) {
+            lookupScheduler = new LookupScheduler(vehicleLookup, LookupScheduler.Limits.fromConfig(config, parallelism), metrics);
+            vehicleLookup = lookupScheduler;
+        }
+        if (config.getBoolean("cache.enabled", false)) {
+            lookupCache = new LookupCache(vehicleLookup, Paths.get(config.getString("cache.file", "target/lookup-cache.txt")),
+                    config.getInt("cache.maxEntries", 10000),
+                    Duration.ofHours(config.getLong("cache.ttlHours", 168)),
+                    Duration.ofHours(config.getLong("cache.negativeTtlHours", 24)));
+            vehicleLookup = lookupCache;
+        }
+        // The hardcoded invalid cases check the site's own answer, so they are never answered locally
+        vehicleLookup = PrevalidatingVehicleLookup.forMode(config.getString("validation.mode", "off"), vehicleLookup,
+                config.getDouble("validation.verifySampleRate", 0.05),
+                HARDCODED_INVALID_REGISTRATION_NUMBERS.stream().map(Registrations::canonical).collect(Collectors.toSet()));
+        if (vehicleLookup instanceof PrevalidatingVehicleLookup) {
+            prevalidatingLookup = (PrevalidatingVehicleLookup) vehicleLookup;
+        }
+        if (config.getBoolean("journal.enabled", false)) {
+            lookupJournal = new LookupJournal(vehicleLookup, Paths.get(config.getString("journal.file", "target/lookup-journal.bin")),
+                    config.getInt("journal.groupCommitSize", 64));
+            vehicleLookup = lookupJournal;
+        }
+        vehicleLookup = metrics.instrument(vehicleLookup);
+
+        if (config.getBoolean("pipeline.enabled", false)) {
+            if (config.getInt("extraction.parallelism", 0) != 1) {
+                // The parallel extractor only knows the row order once its chunks are merged, too late to stream lookups
+                logger.info("The lookup pipeline extracts in a single pass, so extraction.parallelism is not used");
+            }
+            lookupPipeline = new LookupPipeline(vehicleLookup, parallelism, config.getInt("pipeline.queueCapacity", 256),
+                    "virtual".equals(config.getString("pipeline.threads", "virtual")));
+            extractIntoPipeline(config.getString("extraction.indexFile", ""));
+        } else if (!config.getString("extraction.indexFile", "").isEmpty()) {
+            cleanedTestData = VehicleRegistrationExtractor.extractIncrementally(
+                    Paths.get(config.getString("extraction.indexFile", "")), null);
+        } else {
+            int extractionParallelism = config.getInt("extraction.parallelism", 0);
+            if (extractionParallelism <= 0) {
+                extractionParallelism = Runtime.getRuntime().availableProcessors();
+            }
+            if (extractionParallelism > 1) {
+                ParallelRegistrationExtractor.extractAndWriteRegistrationNumbers(extractionParallelism,
+                        config.getInt("extraction.chunkSizeBytes", 4194304));
+            } else {
+                VehicleRegistrationExtractor.extractAndWriteRegistrationNumbers();
+            }
+        }
+        long extracted = System.nanoTime();
+        try {
+            browserReady.join();
+        } catch (CompletionException e) {
+            // The first checkout starts a browser again and reports the failure where it matters
+            logger.warn("Could not prewarm the driver pool", e.getCause());
+        }
+        long ready = System.nanoTime();
+        logger.info("Cold start: extraction took " + (extracted - coldStart) / 1_000_000 + " ms, browsers were ready after "
+                + (ready - coldStart) / 1_000_000 + " ms");
+
+        if (lookupPipeline == null && parallelism > 1) {
+            prefetchLookups(parallelism);
         }
-        VehicleRegistrationExtractor.extractAndWriteRegistrationNumbers();
     }
 
     /**
-     * Initializes the WebDriver before each test.
+     * Extracts the registration numbers and queues each one on the lookup pipeline as soon as it is found,
+     * so lookups start while the input is still being scanned. Each result goes straight to the result sink;
+     * valid rows as soon as they arrive, invalid ones once the extraction has finished and their position is known.
+     * The tests then only collect the results.
+     *
+     * @param indexFile the extraction index file, or empty to scan every input file
+     * @throws IOException if an I/O error occurs
      */
-    @BeforeEach
-    public void setUp() {
-        driver = DriverSingleton.getDriver();
+    private static void extractIntoPipeline(String indexFile) throws IOException {
+        List<CompletableFuture<LookupResult>> invalidLookups = new ArrayList<>();
+        VehicleRegistrationExtractor.RegistrationListener listener = new VehicleRegistrationExtractor.RegistrationListener() {
+            @Override
+            public void onValid(long index, String registrationNumber) {
+                writeWhenDone(index, pipelineLookup(registrationNumber));
+            }
+
+            @Override
+            public void onInvalid(long index, String registrationNumber) {
+                invalidLookups.add(pipelineLookup(registrationNumber));
+            }
+        };
+        long validCount;
+        if (indexFile.isEmpty()) {
+            validCount = VehicleRegistrationExtractor.extractAndWriteRegistrationNumbers(listener);
+        } else {
+            cleanedTestData = VehicleRegistrationExtractor.extractIncrementally(Paths.get(indexFile), listener);
+            validCount = cleanedTestData.valid().size();
+        }
+        long sequence = validCount;
+        for (CompletableFuture<LookupResult> invalidLookup : invalidLookups) {
+            writeWhenDone(sequence++, invalidLookup);
+        }
+        try (Stream<Arguments> hardcoded = hardcodedInvalidRegistrationNumbersProvider()) {
+            hardcoded.forEach(arguments -> writeWhenDone((long) arguments.get()[0], pipelineLookup((String) arguments.get()[1])));
+        }
+        logger.info("Queued " + prefetchedLookups.size() + " lookups on the pipeline");
+    }
+
+    private static CompletableFuture<LookupResult> pipelineLookup(String registrationNumber) {
+        return prefetchedLookups.computeIfAbsent(registrationNumber, lookupPipeline::submit);
+    }
+
+    private static void writeWhenDone(long sequence, CompletableFuture<LookupResult> lookup) {
+        pipelineWrites.add(lookup.thenAccept(result -> {
+            long start = System.nanoTime();
+            resultSink.submit(sequence, result.toRow());
+            metrics.recordSince(LookupMetrics.Phase.WRITE, start);
+        }));
+    }
+
+    /**
+     * Starts looking up every registration number the tests will use on a pool of workers,
+     * so the tests only collect results in their usual order and the output stays deterministic.
+     *
+     * @param parallelism the number of concurrent lookups
+     * @throws IOException if an I/O error occurs
+     */
+    private static void prefetchLookups(int parallelism) throws IOException {
+        lookupExecutor = new LookupExecutor(parallelism);
+        try (Stream<Arguments> valid = validRegistrationNumbersProvider();
+             Stream<Arguments> invalid = invalidRegistrationNumbersProvider()) {
+            Stream.of(valid, invalid, hardcodedInvalidRegistrationNumbersProvider())
+                    .flatMap(arguments -> arguments)
+                    .map(arguments -> (String) arguments.get()[1])
+                    .forEach(registrationNumber -> prefetchedLookups.computeIfAbsent(registrationNumber,
+                            reg -> lookupExecutor.submit(() -> vehicleLookup.lookup(reg))));
+        }
+        logger.info("Prefetching " + prefetchedLookups.size() + " lookups with " + parallelism + " workers");
     }
 
     /**
-     * Closes the WebDriver after each test.
+     * Returns the WebDriver, if the test checked one out, to the pool after each test, keeping the browser warm for the next one.
      */
     @AfterEach
     public void tearDown() {
@@ -72,236 +250,249 @@ public class CarValuationTest {
     }
 
     /**
-     * Navigates to the car checking page and enters the given registration number.
-     *
-     * @param registrationNumber the registration number to enter
+     * Quits all pooled WebDriver instances after all tests.
+     */
+    @AfterAll
+    public static void tearDownAll() throws IOException {
+        finishPipeline();
+        resultSink.close();
+        Settings config = DriverSingleton.getSettings();
+        stopLookupWorkers();
+        if (lookupJournal != null) {
+            if (metrics.getCount(LookupMetrics.Outcome.ERROR) + metrics.getCount(LookupMetrics.Outcome.TIMEOUT) == 0) {
+                lookupJournal.delete();
+            } else {
+                // Some lookups failed, so the run is not complete: keep the journal for the next run to resume from
+                lookupJournal.close();
+                logger.warn("Keeping the lookup journal because some lookups failed");
+            }
+        }
+        if (lookupCache != null) {
+            lookupCache.close();
+        }
+        if (prevalidatingLookup != null) {
+            logger.info("Pre-validation: " + prevalidatingLookup.getAnsweredLocally() + " answered locally, "
+                    + prevalidatingLookup.getVerified() + " verified, " + prevalidatingLookup.getMismatches() + " mismatches");
+        }
+        if (lookupScheduler != null) {
+            logger.info("Lookup concurrency limit ended at " + lookupScheduler.getConcurrencyLimit());
+        }
+        metrics.logSummary();
+        metrics.writeJson(Paths.get(config.getString("metrics.jsonFile", "target/lookup-metrics.json")));
+        metrics.writeCsv(Paths.get(config.getString("metrics.csvFile", "target/lookup-metrics.csv")));
+        if (multiTabLookup != null) {
+            multiTabLookup.close();
+        }
+        DriverSingleton.shutdown();
+        if (stubServer != null) {
+            stubServer.close();
+        }
+        // Last, so a failed import cannot keep the browsers, journal or cache from being closed
+        String storeFile = config.getString("output.storeFile", "");
+        if (!storeFile.isEmpty()) {
+            long rows = ResultStoreWriter.importCsv(Paths.get(OUTPUT_FILE_PATH), Paths.get(storeFile),
+                    config.getInt("output.storeBlockRows", 4096));
+            logger.info("Stored " + rows + " results in " + storeFile);
+        }
+    }
+
+    /**
+     * Waits for the pipeline's lookups and for their results to reach the result sink. Failed lookups have
+     * already failed their tests, so their missing rows are left to the output comparison.
      */
-    private void navigateToCarCheckingPage(String registrationNumber) {
-        driver.get(CAR_CHECKING_URL);
-        CarCheckingPage carCheckingPage = new CarCheckingPage(driver);
-        carCheckingPage.enterRegistrationNumber(registrationNumber);
-        carCheckingPage.submitForm();
+    private static void finishPipeline() {
+        if (lookupPipeline == null) {
+            return;
+        }
+        lookupPipeline.close();
+        CompletableFuture.allOf(pipelineWrites.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
     }
 
     /**
-     * Checks for an error alert on the page and writes the alert message to the output file if found.
-     *
-     * @param wait               the WebDriverWait instance
-     * @param registrationNumber the registration number that was entered
-     * @return true if an error alert is found, false otherwise
-     * @throws IOException if an I/O error occurs
+     * Stops the lookup executor's workers, which hold a pooled WebDriver each until they exit.
      */
-    private boolean checkForErrorAlert(WebDriverWait wait, String registrationNumber) throws IOException {
-        WebElement errorAlert = wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(".alert.alert-danger")));
-        if (errorAlert != null && errorAlert.isDisplayed()) {
-            String alertMessage = errorAlert.getText();
-            logger.info("Entered Registration Number: " + registrationNumber);
-            logger.info("Alert Message: " + alertMessage);
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(OUTPUT_FILE_PATH, true))) {
-                writer.write(String.format("%s,%s%n", registrationNumber, alertMessage));
-            }
-            return true;
+    private static void stopLookupWorkers() {
+        if (lookupExecutor != null) {
+            lookupExecutor.close();
+            lookupExecutor = null;
         }
-        return false;
     }
 
     /**
-     * Checks for data elements on the car report page.
+     * Looks up a registration number, using the result prefetched by the lookup executor or pipeline if there is one.
      *
-     * @param wait               the WebDriverWait instance
-     * @param registrationNumber the registration number that was entered
-     * @return true if data elements are found, false otherwise
+     * @param registrationNumber the registration number to look up
+     * @return the lookup result
      */
-    private boolean checkForDataElements(WebDriverWait wait, String registrationNumber) {
+    private LookupResult lookup(String registrationNumber) {
+        CompletableFuture<LookupResult> prefetched = prefetchedLookups.remove(registrationNumber);
+        if (prefetched == null) {
+            return vehicleLookup.lookup(registrationNumber);
+        }
         try {
-            CarReportPage carReportPage = new CarReportPage(driver);
-            String regNumber = carReportPage.getRegistrationNumber();
-            return regNumber != null && !regNumber.isEmpty();
-        } catch (org.openqa.selenium.TimeoutException e) {
-            return false;
+            return prefetched.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 
     /**
-     * Extracts car details from the car report page and writes them to the output file.
+     * Hands a lookup result to the result sink, which writes it at its sequence position in the output file.
      *
-     * @throws IOException if an I/O error occurs
+     * @param sequence the position of the row in the output file
+     * @param result   the lookup result to write
      */
-    private void extractAndWriteCarDetails() throws IOException {
-        CarReportPage carReportPage = new CarReportPage(driver);
-        String regNumber = carReportPage.getRegistrationNumber();
-        String make = carReportPage.getMake();
-        String model = carReportPage.getModel();
-        String year = carReportPage.getYearOfManufacture();
-
-        logger.info("Extracted details - RegNumber: " + regNumber + ", Make: " + make + ", Model: " + model + ", Year: " + year);
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(OUTPUT_FILE_PATH, true))) {
-            if (regNumber != null && !regNumber.isEmpty() && make != null && !make.isEmpty() && model != null && !model.isEmpty() && year != null && !year.isEmpty()) {
-                writer.write(String.format("%s,%s,%s,%s%n", regNumber, make, model, year));
-                logger.info("Written valid details to file.");
-            } else {
-                writer.write(String.format("%s,The license plate number is not recognised%n", regNumber != null ? regNumber : ""));
-                logger.info("Written invalid details to file.");
-            }
+    private void writeResult(long sequence, LookupResult result) {
+        if (lookupPipeline != null) {
+            // The pipeline has already handed this result to the sink
+            return;
         }
+        long start = System.nanoTime();
+        resultSink.submit(sequence, result.toRow());
+        metrics.recordSince(LookupMetrics.Phase.WRITE, start);
+        logger.info("Written " + (result.isRecognised() ? "valid" : "invalid") + " details to file.");
     }
 
     /**
      * Tests valid registration numbers by navigating to the car checking page and extracting car details.
      *
+     * @param sequence                the position of the result in the output file
      * @param validRegistrationNumber the valid registration number to test
-     * @throws IOException if an I/O error occurs
      */
     @Order(1)
     @ParameterizedTest
     @MethodSource("validRegistrationNumbersProvider")
-    public void testValidRegistrationNumber(String validRegistrationNumber) throws IOException {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(2));
-        try {
-            navigateToCarCheckingPage(validRegistrationNumber);
-            if (checkForDataElements(wait, validRegistrationNumber)) {
-                extractAndWriteCarDetails();
-            }
-        } finally {
-            // driver.quit();
-        }
+    public void testValidRegistrationNumber(long sequence, String validRegistrationNumber) {
+        writeResult(sequence, lookup(validRegistrationNumber));
     }
 
     /**
      * Provides valid registration numbers for parameterized tests.
      *
-     * @return a stream of valid registration numbers
+     * @return a stream of output sequence numbers and valid registration numbers
      * @throws IOException if an I/O error occurs
      */
-    static Stream<String> validRegistrationNumbersProvider() throws IOException {
-        BufferedReader reader = Files.newBufferedReader(Paths.get("src/test/resources/cleaned_test_data.txt"));
-        return reader.lines()
-                .skip(1)
-                .map(line -> line.split(","))
-                .filter(fields -> fields.length == 2 && "VALID".equals(fields[1]))
-                .map(fields -> fields[0])
-                .onClose(() -> {
-                    try {
-                        reader.close();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                });
+    static Stream<Arguments> validRegistrationNumbersProvider() throws IOException {
+        List<String> valid = cleanedTestData().valid();
+        return IntStream.range(0, valid.size()).mapToObj(index -> Arguments.of((long) index, valid.get(index)));
+    }
+
+    /**
+     * Returns the cleaned test data, which every provider shares: as extracted, or read from the file once
+     * if the extractor only wrote the file.
+     *
+     * @return the cleaned test data
+     * @throws IOException if an I/O error occurs
+     */
+    private static synchronized CleanedTestData cleanedTestData() throws IOException {
+        if (cleanedTestData == null) {
+            cleanedTestData = CleanedTestData.read(Paths.get(CLEANED_TEST_DATA_FILE_PATH));
+        }
+        return cleanedTestData;
     }
 
     /**
      * Tests invalid registration numbers by navigating to the car checking page and checking for error alerts.
      *
+     * @param sequence                  the position of the result in the output file
      * @param invalidRegistrationNumber the invalid registration number to test
-     * @throws IOException if an I/O error occurs
      */
     @Order(2)
     @ParameterizedTest
     @MethodSource("invalidRegistrationNumbersProvider")
-    public void testInvalidRegistrationNumberDataDriven(String invalidRegistrationNumber) throws IOException {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(2));
-        try {
-            navigateToCarCheckingPage(invalidRegistrationNumber);
-            checkForErrorAlert(wait, invalidRegistrationNumber);
-        } finally {
-            // driver.quit();
-        }
+    public void testInvalidRegistrationNumberDataDriven(long sequence, String invalidRegistrationNumber) {
+        writeResult(sequence, lookup(invalidRegistrationNumber));
     }
 
     /**
      * Provides invalid registration numbers for parameterized tests.
      *
-     * @return a stream of invalid registration numbers
+     * @return a stream of output sequence numbers and invalid registration numbers
      * @throws IOException if an I/O error occurs
      */
-    static Stream<String> invalidRegistrationNumbersProvider() throws IOException {
-        BufferedReader reader = Files.newBufferedReader(Paths.get("src/test/resources/cleaned_test_data.txt"));
-        return reader.lines()
-                .skip(1)
-                .map(line -> line.split(","))
-                .filter(fields -> fields.length == 2 && "The license plate number is not recognised".equals(fields[1]))
-                .map(fields -> fields[0])
-                .onClose(() -> {
-                    try {
-                        reader.close();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                });
+    static Stream<Arguments> invalidRegistrationNumbersProvider() throws IOException {
+        CleanedTestData data = cleanedTestData();
+        List<String> invalid = data.invalid();
+        long firstSequence = data.valid().size();
+        return IntStream.range(0, invalid.size()).mapToObj(index -> Arguments.of(firstSequence + index, invalid.get(index)));
     }
 
     /**
      * Tests invalid registration numbers by navigating to the car checking page and checking for error alerts.
      *
+     * @param sequence           the position of the result in the output file
      * @param registrationNumber the invalid registration number to test
      * @param expectedMessage    the expected error message
-     * @throws IOException if an I/O error occurs
      */
 
     @Order(3)
     @ParameterizedTest
     @MethodSource("hardcodedInvalidRegistrationNumbersProvider")
-    public void testHardcodedInvalidRegistrationNumber(String registrationNumber, String expectedMessage) throws IOException {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(2));
-        try {
-            navigateToCarCheckingPage(registrationNumber);
-            boolean alertFound = checkForErrorAlert(wait, registrationNumber);
-            assertEquals(expectedMessage, alertFound ? "The license plate number is not recognised" : "");
-        } finally {
-            // driver.quit();
-        }
+    public void testHardcodedInvalidRegistrationNumber(long sequence, String registrationNumber, String expectedMessage) {
+        LookupResult result = lookup(registrationNumber);
+        writeResult(sequence, result);
+        assertEquals(expectedMessage, result.isRecognised() ? "" : result.message());
     }
 
-    static Stream<Arguments> hardcodedInvalidRegistrationNumbersProvider() {
-        return Stream.of(
-                Arguments.of("INVALID123", "The license plate number is not recognised"),
-                Arguments.of("1", "The license plate number is not recognised"),
-                Arguments.of("A", "The license plate number is not recognised"),
-                Arguments.of("A1A", "The license plate number is not recognised"),
-                Arguments.of("AAA", "The license plate number is not recognised"),
-                Arguments.of("AA00", "The license plate number is not recognised"),
-                Arguments.of("AA00 XXX", "The license plate number is not recognised")
-        );
+    /**
+     * Provides hard-coded invalid registration numbers, positioned in the output after the cleaned test data.
+     *
+     * @return a stream of output sequence numbers, registration numbers and expected messages
+     * @throws IOException if an I/O error occurs
+     */
+    static Stream<Arguments> hardcodedInvalidRegistrationNumbersProvider() throws IOException {
+        AtomicLong sequence = new AtomicLong(cleanedTestData().size());
+        return HARDCODED_INVALID_REGISTRATION_NUMBERS.stream()
+                .map(registrationNumber -> Arguments.of(sequence.getAndIncrement(), registrationNumber,
+                        "The license plate number is not recognised"));
     }
 
     /**
-     * Compares the actual output with the expected output.
+     * Compares the actual output with the expected output, joining rows on VARIANT_REG so that order does not matter.
+     * All differences are written to the diff file.
      *
      * @throws IOException if an I/O error occurs
      */
     @Order(4)
     @Test
     public void compareOutputWithExpected() throws IOException {
-        List<String> actualOutput = Files.readAllLines(Paths.get(OUTPUT_FILE_PATH));
-        List<String> expectedOutput = Files.readAllLines(Paths.get(EXPECTED_OUTPUT_FILE_PATH));
-        assertEquals(expectedOutput.size(), actualOutput.size(), "The number of lines in the actual output does not match the expected output.");
-        for (int i = 0; i < expectedOutput.size(); i++) {
-            String[] expectedFields = expectedOutput.get(i).split(",");
-            String[] actualFields = actualOutput.get(i).split(",");
-            assertEquals(expectedFields.length, actualFields.length, "The number of fields in line " + (i + 1) + " does not match.");
-            for (int j = 0; j < expectedFields.length; j++) {
-                assertEquals(expectedFields[j], actualFields[j], "Field " + (j + 1) + " in line " + (i + 1) + " does not match.");
-            }
-        }
+        finishPipeline();
+        resultSink.close();
+        OutputComparator.Summary summary = new OutputComparator(Paths.get(DIFF_FILE_PATH), COMPARE_PARTITION_SIZE_BYTES)
+                .compare(Paths.get(EXPECTED_OUTPUT_FILE_PATH), Paths.get(OUTPUT_FILE_PATH));
+        assertTrue(summary.isMatch(), "The actual output does not match the expected output (" + summary + "), see " + DIFF_FILE_PATH);
     }
 
     /**
      * Tests the website's response to a non-existent page by checking for a 404 error.
+     * With the HTTP engine the page is fetched without a browser.
+     *
+     * @throws IOException if the page cannot be fetched
+     * @throws InterruptedException if interrupted while fetching the page
      */
     @Order(5)
     @Test
-    public void testWebsiteDown() {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(2));
-        try {
-            driver.get("https://car-checking.com/nonexistentpage");
-            boolean is404 = wait.until(d -> {
-                String pageSource = driver.getPageSource();
-                return pageSource.contains("404") || pageSource.contains("Not Found");
-            });
-            assertEquals(true, is404, "Expected 404 Not Found error was not found.");
-        } finally {
-            // driver.quit();
+    public void testWebsiteDown() throws IOException, InterruptedException {
+        if (!browserEngine) {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create(carCheckingUrl + "nonexistentpage")).timeout(Duration.ofSeconds(2)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertTrue(response.body().contains("404") || response.body().contains("Not Found"),
+                    "Expected 404 Not Found error was not found.");
+            return;
         }
+        // Every prefetched lookup has been collected by now, so the workers' sessions can go back to the pool
+        stopLookupWorkers();
+        WebDriver driver = DriverSingleton.getDriver();
+        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(2));
+        driver.get(carCheckingUrl + "nonexistentpage");
+        boolean is404 = wait.until(d -> {
+            String pageSource = driver.getPageSource();
+            return pageSource.contains("404") || pageSource.contains("Not Found");
+        });
+        assertEquals(true, is404, "Expected 404 Not Found error was not found.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package org.example.valuation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The cleaned test data in memory: the distinct valid registration numbers followed by the distinct invalid ones,
+ * each in the order the extractor found them. A registration number's position in this order is also its position
+ * in the output file.
+ *
+ * @param valid   the valid registration numbers
+ * @param invalid the invalid registration numbers
+ */
+record CleanedTestData(List<String> valid, List<String> invalid) {
+
+    /**
+     * Reads the cleaned test data file written by the extractors.
+     *
+     * @param file the cleaned test data file
+     * @return the cleaned test data
+     * @throws IOException if the file cannot be read
+     */
+    static CleanedTestData read(Path file) throws IOException {
+        List<String> valid = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length != 2) {
+                    continue;
+                }
+                if (VehicleRegistrationExtractor.VALID_STATUS.equals(fields[1])) {
+                    valid.add(fields[0]);
+                } else if (LookupResult.NOT_RECOGNISED_MESSAGE.equals(fields[1])) {
+                    invalid.add(fields[0]);
+                }
+            }
+        }
+        return new CleanedTestData(valid, invalid);
+    }
+
+    /**
+     * Writes the cleaned test data file, in the format the extractors write it.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    void write(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(VehicleRegistrationExtractor.HEADER);
+            writer.newLine();
+            for (String registrationNumber : valid) {
+                writer.write(registrationNumber + "," + VehicleRegistrationExtractor.VALID_STATUS);
+                writer.newLine();
+            }
+            for (String registrationNumber : invalid) {
+                writer.write(registrationNumber + "," + LookupResult.NOT_RECOGNISED_MESSAGE);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of registration numbers, which is also the position in the output file of the row after them.
+     *
+     * @return the number of valid and invalid registration numbers
+     */
+    int size() {
+        return valid.size() + invalid.size();
+    }
+}
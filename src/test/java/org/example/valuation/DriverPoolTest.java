@@ -0,0 +1,116 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the driver pool's checkout and return semantics, with stand-in sessions in place of browsers.
+ */
+public class DriverPoolTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Tests that a released session is reset and handed out again, and that the pool only grows while none is idle.
+     */
+    @Test
+    public void testCheckoutReusesReleasedSession() {
+        Set<WebDriver> quit = ConcurrentHashMap.newKeySet();
+        try (DriverPool pool = new DriverPool(() -> FakeWebDriver.create(quit), 0, 2, Duration.ofMinutes(5), Duration.ofSeconds(5))) {
+            WebDriver first = pool.checkout();
+            pool.release(first);
+            assertEquals(1, pool.idleCount());
+
+            assertSame(first, pool.checkout());
+            WebDriver second = pool.checkout();
+            assertNotSame(first, second);
+            assertEquals(2, pool.size());
+            assertEquals(0, pool.idleCount());
+
+            pool.release(first);
+            pool.release(second);
+            assertEquals(2, pool.idleCount());
+            assertTrue(quit.isEmpty());
+        }
+        assertEquals(2, quit.size());
+    }
+
+    /**
+     * Tests that a checkout fails once the acquire timeout passes with every session checked out, and succeeds again
+     * once one is released.
+     */
+    @Test
+    public void testCheckoutTimesOutWhenExhausted() {
+        Set<WebDriver> quit = ConcurrentHashMap.newKeySet();
+        try (DriverPool pool = new DriverPool(() -> FakeWebDriver.create(quit), 0, 1, Duration.ofMinutes(5), Duration.ofMillis(100))) {
+            WebDriver driver = pool.checkout();
+
+            long start = System.nanoTime();
+            assertThrows(IllegalStateException.class, pool::checkout);
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(100).toNanos());
+
+            pool.release(driver);
+            assertSame(driver, pool.checkout());
+            assertEquals(1, pool.size());
+        }
+    }
+
+    /**
+     * Tests that sessions idle past the timeout are quit down to the minimum size, the longest idle first.
+     *
+     * @throws InterruptedException if interrupted while waiting for the evictor
+     */
+    @Test
+    public void testEvictsIdleSessionsAboveMinimum() throws InterruptedException {
+        Set<WebDriver> quit = ConcurrentHashMap.newKeySet();
+        try (DriverPool pool = new DriverPool(() -> FakeWebDriver.create(quit), 1, 2, Duration.ofMillis(100), Duration.ofSeconds(5))) {
+            WebDriver first = pool.checkout();
+            WebDriver second = pool.checkout();
+            pool.release(first);
+            pool.release(second);
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (pool.size() > 1) {
+                assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for an idle session to be evicted");
+                Thread.sleep(10);
+            }
+            Thread.sleep(300);
+            assertEquals(1, pool.size());
+            assertEquals(Set.of(first), quit);
+            assertSame(second, pool.checkout());
+        }
+    }
+
+    /**
+     * Tests that an invalidated session is quit instead of returned, and that its slot can be filled again.
+     */
+    @Test
+    public void testInvalidateQuitsSessionAndFreesSlot() {
+        Set<WebDriver> quit = ConcurrentHashMap.newKeySet();
+        try (DriverPool pool = new DriverPool(() -> FakeWebDriver.create(quit), 0, 1, Duration.ofMinutes(5), Duration.ofMillis(100))) {
+            WebDriver broken = pool.checkout();
+            pool.invalidate(broken);
+
+            assertEquals(Set.of(broken), quit);
+            assertEquals(0, pool.size());
+            assertEquals(0, pool.idleCount());
+            WebDriver replacement = pool.checkout();
+            assertNotSame(broken, replacement);
+
+            pool.release(broken);
+            assertEquals(0, pool.idleCount());
+            assertFalse(quit.contains(replacement));
+        }
+    }
+}
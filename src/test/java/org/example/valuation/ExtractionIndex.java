@@ -0,0 +1,278 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persisted index of what each input file yielded, so that only new or changed input files are scanned again.
+ * Each input file is recorded with its size, modification time and SHA-256 content hash, and the distinct valid and
+ * invalid registration numbers it contains in the order they first appear in it. A file whose size and modification
+ * time are unchanged is trusted as is; one that was only touched is recognised by its hash.
+ * Merging the entries in input file order gives exactly the cleaned test data a full scan produces. The hash of the
+ * cleaned test data last written is kept too, so an unchanged corpus does not rewrite it either.
+ */
+final class ExtractionIndex {
+
+    private static final Logger logger = LogManager.getLogger(ExtractionIndex.class);
+    // Changed whenever the indexed registration forms change, so that older indexes are rescanned
+    private static final int MAGIC = 0x58494459;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+    private Snapshot snapshot;
+    private boolean changed;
+
+    private ExtractionIndex(Path file, Map<String, Entry> entries, Snapshot snapshot) {
+        this.file = file;
+        this.entries = entries;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Loads the index, or starts an empty one if the file does not exist or cannot be read.
+     *
+     * @param file the index file
+     * @return the index
+     */
+    static ExtractionIndex load(Path file) {
+        Map<String, Entry> entries = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                logger.warn("Ignoring " + file + ", which is not an extraction index");
+                return new ExtractionIndex(file, new HashMap<>(), null);
+            }
+            Snapshot snapshot = in.readBoolean() ? new Snapshot(in.readLong(), in.readLong(), readBytes(in)) : null;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                entries.put(name, new Entry(in.readLong(), in.readLong(), readBytes(in), readStrings(in), readStrings(in)));
+            }
+            return new ExtractionIndex(file, entries, snapshot);
+        } catch (NoSuchFileException e) {
+            return new ExtractionIndex(file, entries, null);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable extraction index " + file, e);
+            return new ExtractionIndex(file, new HashMap<>(), null);
+        }
+    }
+
+    /**
+     * Brings the index up to date with the input files: new and changed files are scanned, and files that are no
+     * longer input files are dropped.
+     *
+     * @param inputFiles the input files, in the order they are extracted
+     * @return the number of files that were scanned
+     * @throws IOException if an input file cannot be read
+     */
+    int refresh(List<Path> inputFiles) throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        int scanned = 0;
+        for (Path inputFile : inputFiles) {
+            String name = inputFile.getFileName().toString();
+            names.add(name);
+            long size = Files.size(inputFile);
+            long modified = Files.getLastModifiedTime(inputFile).toMillis();
+            Entry entry = entries.get(name);
+            if (entry != null && entry.size == size && entry.modified == modified) {
+                continue;
+            }
+            if (entry != null && entry.size == size && Arrays.equals(entry.hash, hash(inputFile))) {
+                // Touched but not changed: keep what it yielded and remember the new time
+                entries.put(name, new Entry(size, modified, entry.hash, entry.valid, entry.invalid));
+            } else {
+                entries.put(name, scan(inputFile, size, modified));
+                scanned++;
+            }
+            changed = true;
+        }
+        changed |= entries.keySet().retainAll(names);
+        return scanned;
+    }
+
+    /**
+     * Merges the entries of the input files into the cleaned test data, keeping the first occurrence of each
+     * registration number and reporting each one to a listener as it is added.
+     *
+     * @param inputFiles the input files, in the order they are extracted, all of them refreshed
+     * @param listener   receives each distinct registration number, or null
+     * @return the cleaned test data
+     */
+    CleanedTestData merge(List<Path> inputFiles, VehicleRegistrationExtractor.RegistrationListener listener) {
+        Set<String> valid = new LinkedHashSet<>();
+        Set<String> invalid = new LinkedHashSet<>();
+        for (Path inputFile : inputFiles) {
+            Entry entry = entries.get(inputFile.getFileName().toString());
+            for (String registrationNumber : entry.valid) {
+                if (valid.add(registrationNumber) && listener != null) {
+                    listener.onValid(valid.size() - 1, registrationNumber);
+                }
+            }
+            for (String registrationNumber : entry.invalid) {
+                if (invalid.add(registrationNumber) && listener != null) {
+                    listener.onInvalid(invalid.size() - 1, registrationNumber);
+                }
+            }
+        }
+        return new CleanedTestData(new ArrayList<>(valid), new ArrayList<>(invalid));
+    }
+
+    /**
+     * Writes the cleaned test data file unless it already holds exactly this data, as last written through the index.
+     *
+     * @param data       the cleaned test data
+     * @param outputFile the cleaned test data file
+     * @return whether the file was written
+     * @throws IOException if the file cannot be written
+     */
+    boolean writeSnapshot(CleanedTestData data, Path outputFile) throws IOException {
+        byte[] hash = hash(data);
+        if (snapshot != null && Arrays.equals(snapshot.hash, hash) && Files.exists(outputFile)
+                && Files.size(outputFile) == snapshot.size
+                && Files.getLastModifiedTime(outputFile).toMillis() == snapshot.modified) {
+            return false;
+        }
+        data.write(outputFile);
+        snapshot = new Snapshot(Files.size(outputFile), Files.getLastModifiedTime(outputFile).toMillis(), hash);
+        changed = true;
+        return true;
+    }
+
+    /**
+     * Saves the index if anything in it changed, replacing the file in one move.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+            out.writeInt(MAGIC);
+            out.writeBoolean(snapshot != null);
+            if (snapshot != null) {
+                out.writeLong(snapshot.size);
+                out.writeLong(snapshot.modified);
+                writeBytes(out, snapshot.hash);
+            }
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> named : entries.entrySet()) {
+                Entry entry = named.getValue();
+                out.writeUTF(named.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                writeBytes(out, entry.hash);
+                writeStrings(out, entry.valid);
+                writeStrings(out, entry.invalid);
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        changed = false;
+    }
+
+    /**
+     * Scans one input file, hashing it in the same pass.
+     */
+    private static Entry scan(Path inputFile, long size, long modified) throws IOException {
+        Set<String> valid = new LinkedHashSet<>();
+        Set<String> invalid = new LinkedHashSet<>();
+        MessageDigest digest = newDigest();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new DigestInputStream(Files.newInputStream(inputFile), digest), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                VehicleRegistrationExtractor.scan(line, valid::add, invalid::add);
+            }
+        }
+        return new Entry(size, modified, digest.digest(), new ArrayList<>(valid), new ArrayList<>(invalid));
+    }
+
+    private static byte[] hash(Path inputFile) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(inputFile), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return digest.digest();
+    }
+
+    private static byte[] hash(CleanedTestData data) {
+        MessageDigest digest = newDigest();
+        for (String registrationNumber : data.valid()) {
+            digest.update((registrationNumber + "," + VehicleRegistrationExtractor.VALID_STATUS + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        for (String registrationNumber : data.invalid()) {
+            digest.update((registrationNumber + "," + LookupResult.NOT_RECOGNISED_MESSAGE + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private record Entry(long size, long modified, byte[] hash, List<String> valid, List<String> invalid) {
+    }
+
+    private record Snapshot(long size, long modified, byte[] hash) {
+    }
+}
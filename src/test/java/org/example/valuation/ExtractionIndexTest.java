@@ -0,0 +1,82 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that incremental extraction writes what a full extraction writes while scanning only what changed.
+ */
+public class ExtractionIndexTest {
+
+    private static final Logger logger = LogManager.getLogger(ExtractionIndexTest.class);
+
+    /**
+     * Tests a corpus through a first run, an unchanged run, a touched file, an edited file and a removed file,
+     * comparing the output with a full extraction each time.
+     *
+     * @param dir the directory to hold the corpus, outputs and index
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testIncrementalMatchesFullExtraction(@TempDir Path dir) throws IOException {
+        Path inputDir = Files.createDirectory(dir.resolve("input"));
+        Path a = Files.writeString(inputDir.resolve("a_input.txt"), "Sold AB12 CDE and BC34 DEF, then X1 ABC\n", StandardCharsets.UTF_8);
+        Path b = Files.writeString(inputDir.resolve("b_input.txt"), "Also AB12 CDE, CD56 EFG and DE78 FGH\n", StandardCharsets.UTF_8);
+        Files.writeString(inputDir.resolve("c_input.txt"), "Last EF90 GHI and BC34 DEF\n", StandardCharsets.UTF_8);
+        Path index = dir.resolve("index.bin");
+        Path output = dir.resolve("cleaned.csv");
+
+        assertEquals(3, refresh(inputDir, index));
+        assertMatchesFullExtraction(inputDir, output, index, dir);
+
+        long started = System.nanoTime();
+        assertEquals(0, refresh(inputDir, index));
+        FileTime written = Files.getLastModifiedTime(output);
+        CleanedTestData data = VehicleRegistrationExtractor.extractIncrementally(inputDir, output, index, null);
+        assertEquals(written, Files.getLastModifiedTime(output));
+        assertEquals(Files.readAllLines(output, StandardCharsets.UTF_8).size() - 1, data.size());
+        logger.info("Unchanged corpus took " + (System.nanoTime() - started) / 1_000_000 + " ms");
+
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 60_000));
+        assertEquals(0, refresh(inputDir, index));
+
+        Files.writeString(b, "Now GH12 JKL instead\n", StandardCharsets.UTF_8);
+        assertEquals(1, refresh(inputDir, index));
+        assertMatchesFullExtraction(inputDir, output, index, dir);
+
+        Files.delete(a);
+        assertEquals(0, refresh(inputDir, index));
+        assertMatchesFullExtraction(inputDir, output, index, dir);
+        assertTrue(Files.readAllLines(output).contains("GH12JKL," + VehicleRegistrationExtractor.VALID_STATUS));
+        assertFalse(Files.readString(output).contains("AB12CDE"));
+    }
+
+    private static int refresh(Path inputDir, Path index) throws IOException {
+        ExtractionIndex extractionIndex = ExtractionIndex.load(index);
+        int scanned = extractionIndex.refresh(VehicleRegistrationExtractor.listInputFiles(inputDir));
+        extractionIndex.save();
+        return scanned;
+    }
+
+    private static void assertMatchesFullExtraction(Path inputDir, Path output, Path index, Path dir) throws IOException {
+        Path fullOutput = dir.resolve("full.csv");
+        VehicleRegistrationExtractor.extractAndWriteRegistrationNumbers(inputDir, fullOutput);
+        CleanedTestData data = VehicleRegistrationExtractor.extractIncrementally(inputDir, output, index, null);
+        List<String> expected = Files.readAllLines(fullOutput, StandardCharsets.UTF_8);
+        assertEquals(expected, Files.readAllLines(output, StandardCharsets.UTF_8));
+        assertEquals(CleanedTestData.read(fullOutput), data);
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.valuation;
+
+import org.openqa.selenium.WebDriver;
+
+import java.lang.reflect.Proxy;
+import java.util.Set;
+
+/**
+ * Stand-in browser sessions for tests of the driver pool, so that no browser has to be started.
+ */
+final class FakeWebDriver {
+
+    private FakeWebDriver() {
+    }
+
+    /**
+     * Creates a stand-in session that answers every call with nothing, or with another stand-in for calls that
+     * return an interface, and records when it is quit.
+     *
+     * @param quit receives the session when it is quit
+     * @return the stand-in session
+     */
+    static WebDriver create(Set<WebDriver> quit) {
+        WebDriver[] driver = new WebDriver[1];
+        driver[0] = (WebDriver) stub(WebDriver.class, () -> quit.add(driver[0]));
+        return driver[0];
+    }
+
+    private static Object stub(Class<?> type, Runnable onQuit) {
+        return Proxy.newProxyInstance(FakeWebDriver.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                case "quit":
+                    onQuit.run();
+                    return null;
+                default:
+                    return method.getReturnType().isInterface() ? stub(method.getReturnType(), onQuit) : null;
+            }
+        });
+    }
+}
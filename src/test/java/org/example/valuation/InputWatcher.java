@@ -0,0 +1,267 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running mode that watches the input directory and streams registration numbers from input files as they are
+ * dropped or appended to into lookups, appending each result to the output as it arrives.
+ * Each input file is read from where the last read stopped, one complete line at a time, so only new bytes are scanned
+ * and a line still being written is left for the next read. Registration numbers already seen in any input file are
+ * not looked up again. New registration numbers are queued on a {@link LookupPipeline}, whose bounded queue blocks
+ * the watcher while lookups catch up, and results go to an appending {@link ResultSink} in the order they complete,
+ * so a burst of files holds at most a queue's worth of registration numbers in memory.
+ * The time from a file change being noticed to its result row being handed to the sink is recorded per row.
+ *
+ * <pre>
+ * InputWatcher [--input-dir DIR] [--output FILE] [--engine ENGINE] [--base-url URL] [--concurrency N] [--catch-up true|false]
+ * </pre>
+ * Options that are left out are taken from the configuration file.
+ */
+public class InputWatcher implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(InputWatcher.class);
+    private static final String OUTPUT_HEADER = "VARIANT_REG,MAKE,MODEL,YEAR";
+    private static final Duration FLUSH_INTERVAL = Duration.ofMillis(50);
+
+    private final Path inputDir;
+    private final WatchService watchService;
+    private final LookupPipeline pipeline;
+    private final ResultSink resultSink;
+    private final Map<Path, Long> offsets = new HashMap<>();
+    private final Set<String> seen = new HashSet<>();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final LatencyHistogram dropToRow = new LatencyHistogram();
+    private volatile boolean closed;
+
+    /**
+     * Constructor to initialize the InputWatcher. The input files already in the directory are either looked up
+     * in full, or only read to learn their registration numbers so that later lookups skip them.
+     *
+     * @param inputDir      the directory the {@code *_input*.txt} files are dropped into
+     * @param outputFile    the output file to append results to
+     * @param lookup        the lookup to run new registration numbers through
+     * @param concurrency   the maximum number of concurrent lookups
+     * @param queueCapacity the maximum number of registration numbers waiting for a lookup
+     * @param catchUp       whether to look up the registration numbers of the files already there
+     * @throws IOException if the directory cannot be watched or read, or the output file cannot be opened
+     */
+    public InputWatcher(Path inputDir, Path outputFile, VehicleLookup lookup, int concurrency, int queueCapacity,
+                        boolean catchUp) throws IOException {
+        this.inputDir = inputDir;
+        this.watchService = inputDir.getFileSystem().newWatchService();
+        inputDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.pipeline = new LookupPipeline(lookup, concurrency, queueCapacity, true);
+        this.resultSink = new ResultSink(outputFile, OUTPUT_HEADER, queueCapacity, 64, FLUSH_INTERVAL, true);
+        long start = System.nanoTime();
+        for (Path inputFile : VehicleRegistrationExtractor.listInputFiles(inputDir)) {
+            readNewLines(inputFile, start, catchUp);
+        }
+        logger.info("Watching " + inputDir + " after reading " + offsets.size() + " input files with " + seen.size()
+                + " registration numbers" + (catchUp ? "" : ", which are not looked up"));
+    }
+
+    /**
+     * Runs the watch mode from the command line until the JVM is stopped.
+     *
+     * @param args the options
+     * @throws IOException if the directory cannot be watched or read, or the output file cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        Settings config = DriverSingleton.getSettings();
+        Path inputDir = Paths.get(options.getOrDefault("input-dir", config.getString("watch.inputDir", "src/test/resources")));
+        Path output = Paths.get(options.getOrDefault("output", config.getString("watch.output", "target/watch_output.txt")));
+        String engine = options.getOrDefault("engine", config.getString("lookup.engine", "selenium"));
+        String baseUrl = options.getOrDefault("base-url", config.getString("site.baseUrl", "https://car-checking.com/"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", Integer.toString(config.getInt("lookup.parallelism", 1))));
+        boolean catchUp = Boolean.parseBoolean(options.getOrDefault("catch-up", Boolean.toString(config.getBoolean("watch.catchUp", false))));
+
+        InputWatcher watcher = new InputWatcher(inputDir, output, VehicleLookup.forEngine(engine, baseUrl), concurrency,
+                config.getInt("watch.queueCapacity", 256), catchUp);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                logger.error("Could not close the watcher", e);
+            }
+            DriverSingleton.shutdown();
+        }));
+        watcher.run();
+    }
+
+    /**
+     * Waits for input files to be dropped or appended to and queues their new registration numbers for lookup,
+     * until the watcher is closed.
+     *
+     * @throws IOException if an input file cannot be read
+     */
+    public void run() throws IOException {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                long noticed = System.nanoTime();
+                boolean overflow = false;
+                Set<Path> changed = new HashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                    } else {
+                        changed.add(inputDir.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+                if (overflow) {
+                    // Events were lost, so any input file may have changed
+                    changed.addAll(VehicleRegistrationExtractor.listInputFiles(inputDir));
+                }
+                for (Path inputFile : changed) {
+                    if (isInputFile(inputFile)) {
+                        readNewLines(inputFile, noticed, true);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed while waiting for changes
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops watching, waits for the queued lookups and their rows to be written, and logs the drop-to-row latency.
+     *
+     * @throws IOException if the output file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        watchService.close();
+        pipeline.close();
+        resultSink.close();
+        logger.info(String.format("Watch mode wrote %d rows, %d lookups failed; drop to row p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+                dropToRow.count(), failed.get(), dropToRow.percentile(0.5) / 1e6, dropToRow.percentile(0.99) / 1e6,
+                dropToRow.max() / 1e6));
+    }
+
+    /**
+     * Returns the time from each file change being noticed to its rows being handed to the result sink.
+     *
+     * @return the drop-to-row latency
+     */
+    public LatencyHistogram getDropToRowLatency() {
+        return dropToRow;
+    }
+
+    /**
+     * Reads the complete lines an input file gained since it was last read, and queues the registration numbers not
+     * seen before for lookup. A line without its line break yet is left for the next read. A file that shrank was
+     * replaced, so it is read again from the start.
+     */
+    private synchronized void readNewLines(Path inputFile, long noticed, boolean lookUp) throws IOException {
+        if (closed) {
+            return;
+        }
+        long offset = offsets.getOrDefault(inputFile, 0L);
+        long size;
+        try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size < offset) {
+                logger.info(inputFile + " shrank, reading it again from the start");
+                offset = 0;
+            }
+            if (size == offset) {
+                return;
+            }
+            int queued = 0;
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(offset)));
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = offset;
+            while (position < size) {
+                int b = in.read();
+                if (b < 0) {
+                    break;
+                }
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                queued += queueNew(line.toString(StandardCharsets.UTF_8), noticed, lookUp);
+                line.reset();
+                offset = position;
+            }
+            offsets.put(inputFile, offset);
+            if (lookUp) {
+                logger.info("Queued " + queued + " new registration numbers from " + inputFile.getFileName());
+            }
+        } catch (NoSuchFileException e) {
+            // Dropped and removed again before it could be read
+            offsets.remove(inputFile);
+        }
+    }
+
+    private int queueNew(String line, long noticed, boolean lookUp) {
+        int[] queued = {0};
+        VehicleRegistrationExtractor.scan(line,
+                registrationNumber -> queued[0] += queueIfNew(registrationNumber, noticed, lookUp),
+                registrationNumber -> queued[0] += queueIfNew(registrationNumber, noticed, lookUp));
+        return queued[0];
+    }
+
+    private int queueIfNew(String registrationNumber, long noticed, boolean lookUp) {
+        if (!seen.add(registrationNumber) || !lookUp) {
+            return 0;
+        }
+        pipeline.submit(registrationNumber).whenComplete((result, failure) -> {
+            if (failure != null) {
+                failed.incrementAndGet();
+                logger.error("Lookup failed for " + registrationNumber, failure);
+                return;
+            }
+            // Rows are written in the order their lookups finish, so a slow lookup holds back no other row
+            resultSink.submit(nextSequence.getAndIncrement(), result.toRow());
+            dropToRow.record(System.nanoTime() - noticed);
+        });
+        return 1;
+    }
+
+    private static boolean isInputFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".txt") && name.contains("_input") && Files.isRegularFile(path);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the watch mode against the embedded car checking stub.
+ */
+public class InputWatcherTest {
+
+    private static final String EXPECTED_OUTPUT_FILE_PATH = "src/test/resources/expected_output.txt";
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Tests that a file already there is skipped, and that a dropped file and an appended line, written in two parts,
+     * are each looked up once and appended to the output.
+     *
+     * @param dir the directory to watch and write the output to
+     * @throws Exception if the watcher fails
+     */
+    @Test
+    public void testStreamsDroppedAndAppendedLines(@TempDir Path dir) throws Exception {
+        List<String> expected = Files.readAllLines(Paths.get(EXPECTED_OUTPUT_FILE_PATH));
+        String first = expected.get(1);
+        String second = expected.get(2);
+        String third = expected.get(3);
+        Path inputDir = Files.createDirectory(dir.resolve("input"));
+        Path output = dir.resolve("output.txt");
+        Files.writeString(inputDir.resolve("old_input.txt"), "Already done: " + registration(first) + "\n", StandardCharsets.UTF_8);
+
+        try (CarCheckingStubServer server = CarCheckingStubServer.fromExpectedOutput(Paths.get(EXPECTED_OUTPUT_FILE_PATH),
+                CarCheckingStubServer.Profile.IDEAL)) {
+            InputWatcher watcher = new InputWatcher(inputDir, output, new VehicleLookupClient(URI.create(server.getBaseUrl())),
+                    4, 16, false);
+            CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+                try {
+                    watcher.run();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Path dropped = inputDir.resolve("new_input.txt");
+            Files.writeString(dropped, "New: " + registration(second) + " and again " + registration(first) + "\n",
+                    StandardCharsets.UTF_8);
+            awaitRequests(server, 1);
+            Files.writeString(dropped, "Later: " + registration(third).substring(0, 4), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            Files.writeString(dropped, registration(third).substring(4) + " and " + registration(second) + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            awaitRequests(server, 2);
+
+            watcher.close();
+            running.join();
+            List<String> written = Files.readAllLines(output, StandardCharsets.UTF_8);
+            assertEquals(expected.get(0), written.get(0));
+            assertEquals(Set.of(second, third), new HashSet<>(written.subList(1, written.size())));
+            assertEquals(3, written.size());
+            assertEquals(2, watcher.getDropToRowLatency().count());
+            assertEquals(2, server.getReportRequests());
+        }
+    }
+
+    private static String registration(String row) {
+        return row.substring(0, row.indexOf(','));
+    }
+
+    private static void awaitRequests(CarCheckingStubServer server, long requests) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (server.getReportRequests() < requests) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for " + requests + " lookups");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the lookup cache store: surviving a reopen, expiry, replay order and recovery from a torn write.
+ */
+public class LookupCacheTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    /**
+     * Tests that entries written by one cache are served by the next one opened on the same store.
+     *
+     * @param dir a directory for the store
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testEntriesSurviveReopen(@TempDir Path dir) throws IOException {
+        Path storeFile = dir.resolve("lookups.cache");
+        AtomicInteger calls = new AtomicInteger();
+        LookupCache cache = new LookupCache(countingLookup(calls), storeFile, 16, TTL, TTL);
+        assertEquals(found("AD58VNF"), cache.lookup("AD58 VNF"));
+        assertEquals(LookupResult.notRecognised("AA00", LookupResult.NOT_RECOGNISED_MESSAGE), cache.lookup("AA00"));
+        cache.close();
+
+        LookupCache reopened = new LookupCache(countingLookup(calls), storeFile, 16, TTL, TTL);
+        assertEquals(found("AD58VNF"), reopened.lookup("ad58vnf"));
+        assertEquals(LookupResult.notRecognised("aa00", LookupResult.NOT_RECOGNISED_MESSAGE), reopened.lookup("aa00"));
+        reopened.close();
+        assertEquals(2, calls.get());
+        assertEquals(2, reopened.getHits() + reopened.getNegativeHits());
+    }
+
+    /**
+     * Tests that an expired entry is looked up again, both in memory and after a reopen.
+     *
+     * @param dir a directory for the store
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testExpiredEntriesAreLookedUpAgain(@TempDir Path dir) throws IOException {
+        Path storeFile = dir.resolve("lookups.cache");
+        AtomicInteger calls = new AtomicInteger();
+        LookupCache cache = new LookupCache(countingLookup(calls), storeFile, 16, TTL, Duration.ZERO);
+        cache.lookup("AA00");
+        cache.lookup("AA00");
+        cache.lookup("AD58VNF");
+        cache.close();
+        assertEquals(3, calls.get());
+
+        LookupCache reopened = new LookupCache(countingLookup(calls), storeFile, 16, TTL, Duration.ZERO);
+        reopened.lookup("AA00");
+        reopened.lookup("AD58VNF");
+        reopened.close();
+        assertEquals(4, calls.get());
+        assertEquals(1, Files.readAllLines(storeFile).size());
+    }
+
+    /**
+     * Tests that when the store holds several entries for one registration, the last one written wins.
+     *
+     * @param dir a directory for the store
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testLaterEntryWins(@TempDir Path dir) throws IOException {
+        Path storeFile = dir.resolve("lookups.cache");
+        long expiresAt = System.currentTimeMillis() + TTL.toMillis();
+        Files.writeString(storeFile, "AD58VNF\t" + expiresAt + "\tF\tAD58VNF\tBMW\t120D\t2007\n"
+                + "AD58VNF\t" + expiresAt + "\tF\tAD58VNF\tBMW\t120D M SPORT\t2008\n", StandardCharsets.UTF_8);
+
+        AtomicInteger calls = new AtomicInteger();
+        LookupCache cache = new LookupCache(countingLookup(calls), storeFile, 16, TTL, TTL);
+        assertEquals(LookupResult.found("AD58VNF", "BMW", "120D M SPORT", "2008"), cache.lookup("AD58VNF"));
+        cache.close();
+        assertEquals(0, calls.get());
+    }
+
+    /**
+     * Tests that a last entry torn by a crash is cut off, so the next append is not joined onto it and survives
+     * a reopen.
+     *
+     * @param dir a directory for the store
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testTornLastLineIsRecovered(@TempDir Path dir) throws IOException {
+        Path storeFile = dir.resolve("lookups.cache");
+        AtomicInteger calls = new AtomicInteger();
+        LookupCache cache = new LookupCache(countingLookup(calls), storeFile, 16, TTL, TTL);
+        cache.lookup("AD58VNF");
+        cache.close();
+        long intact = Files.size(storeFile);
+        Files.writeString(storeFile, "KT17DLX\t" + System.currentTimeMillis() + "\tF\tKT1", StandardOpenOption.APPEND);
+
+        LookupCache recovered = new LookupCache(countingLookup(calls), storeFile, 16, TTL, TTL);
+        assertEquals(intact, Files.size(storeFile));
+        recovered.lookup("KT17DLX");
+        recovered.close();
+
+        LookupCache reopened = new LookupCache(countingLookup(calls), storeFile, 16, TTL, TTL);
+        assertEquals(found("AD58VNF"), reopened.lookup("AD58VNF"));
+        assertEquals(found("KT17DLX"), reopened.lookup("KT17DLX"));
+        reopened.close();
+        assertEquals(2, calls.get());
+    }
+
+    private static VehicleLookup countingLookup(AtomicInteger calls) {
+        return registrationNumber -> {
+            calls.incrementAndGet();
+            return registrationNumber.startsWith("AA")
+                    ? LookupResult.notRecognised(registrationNumber, LookupResult.NOT_RECOGNISED_MESSAGE)
+                    : found(Registrations.canonical(registrationNumber));
+        };
+    }
+
+    private static LookupResult found(String registration) {
+        return LookupResult.found(registration, "BMW", "120D M SPORT", "2008");
+    }
+}
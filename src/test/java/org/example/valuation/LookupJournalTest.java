@@ -0,0 +1,154 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the lookup journal: resuming after a crash, group commits and cutting off a corrupt tail.
+ */
+public class LookupJournalTest {
+
+    private static final String HEADER = "VARIANT_REG,MAKE,MODEL,YEAR";
+    private static final int REGISTRATIONS = 30;
+
+    /**
+     * Tests that a run that dies after 20 of 30 lookups, leaving a torn record behind, resumes by repeating
+     * only the missing lookups and writes the same bytes as a run that was not interrupted.
+     *
+     * @param dir a directory for the journals and outputs
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testResumedRunWritesIdenticalOutput(@TempDir Path dir) throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        VehicleLookup site = countingLookup(calls);
+
+        Path uninterruptedOutput = dir.resolve("uninterrupted.txt");
+        LookupJournal uninterrupted = new LookupJournal(site, dir.resolve("uninterrupted.journal"), 64);
+        writeOutput(uninterrupted, uninterruptedOutput);
+        uninterrupted.delete();
+
+        Path journalFile = dir.resolve("resumed.journal");
+        LookupJournal crashed = new LookupJournal(site, journalFile, 64);
+        for (int i = 0; i < 20; i++) {
+            crashed.lookup(registration(i));
+        }
+        crashed.close();
+        Files.write(journalFile, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        calls.set(0);
+        Path resumedOutput = dir.resolve("resumed.txt");
+        LookupJournal resumed = new LookupJournal(site, journalFile, 64);
+        writeOutput(resumed, resumedOutput);
+        resumed.close();
+
+        assertEquals(REGISTRATIONS - 20, calls.get());
+        assertEquals(20, resumed.getReplayed());
+        assertArrayEquals(Files.readAllBytes(uninterruptedOutput), Files.readAllBytes(resumedOutput));
+    }
+
+    /**
+     * Tests that concurrent lookups share fsyncs and that every one of them is replayed after a restart.
+     *
+     * @param dir a directory for the journal
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testConcurrentLookupsShareCommits(@TempDir Path dir) throws IOException {
+        Path journalFile = dir.resolve("lookups.journal");
+        LookupJournal journal = new LookupJournal(countingLookup(new AtomicInteger()), journalFile, 64);
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<LookupResult>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String registrationNumber = registration(i);
+                results.add(CompletableFuture.supplyAsync(() -> journal.lookup(registrationNumber), workers));
+            }
+            results.forEach(CompletableFuture::join);
+        } finally {
+            workers.shutdown();
+        }
+        journal.close();
+        assertEquals(400, journal.getAppended());
+        assertTrue(journal.getCommits() < journal.getAppended(), "Expected records to share commits, got " + journal.getCommits());
+
+        AtomicInteger calls = new AtomicInteger();
+        LookupJournal reopened = new LookupJournal(countingLookup(calls), journalFile, 64);
+        for (int i = 0; i < 400; i++) {
+            assertEquals(expectedResult(i), reopened.lookup(registration(i)));
+        }
+        reopened.close();
+        assertEquals(0, calls.get());
+    }
+
+    /**
+     * Tests that a record with a bad checksum and everything after it are cut off and looked up again.
+     *
+     * @param dir a directory for the journal
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCorruptRecordCutsTail(@TempDir Path dir) throws IOException {
+        Path journalFile = dir.resolve("lookups.journal");
+        LookupJournal journal = new LookupJournal(countingLookup(new AtomicInteger()), journalFile, 1);
+        long[] recordEnds = new long[3];
+        for (int i = 0; i < 3; i++) {
+            journal.lookup(registration(i));
+            recordEnds[i] = Files.size(journalFile);
+        }
+        journal.close();
+        byte[] bytes = Files.readAllBytes(journalFile);
+        bytes[(int) recordEnds[1] - 6] ^= 0x20;
+        Files.write(journalFile, bytes);
+
+        AtomicInteger calls = new AtomicInteger();
+        LookupJournal reopened = new LookupJournal(countingLookup(calls), journalFile, 1);
+        assertEquals(recordEnds[0], Files.size(journalFile));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expectedResult(i), reopened.lookup(registration(i)));
+        }
+        reopened.close();
+        assertEquals(2, calls.get());
+    }
+
+    private static void writeOutput(LookupJournal journal, Path outputFile) throws IOException {
+        try (ResultSink sink = new ResultSink(outputFile, HEADER, 16, 4, Duration.ofMillis(10))) {
+            for (int i = 0; i < REGISTRATIONS; i++) {
+                sink.submit(i, journal.lookup(registration(i)).toRow());
+            }
+        }
+    }
+
+    private static VehicleLookup countingLookup(AtomicInteger calls) {
+        return registrationNumber -> {
+            calls.incrementAndGet();
+            return expectedResult(Integer.parseInt(registrationNumber.substring(5)));
+        };
+    }
+
+    private static String registration(int index) {
+        return "AD58 " + index;
+    }
+
+    private static LookupResult expectedResult(int index) {
+        return index % 3 == 0
+                ? LookupResult.notRecognised(registration(index), LookupResult.NOT_RECOGNISED_MESSAGE)
+                : LookupResult.found(registration(index).replace(" ", ""), "BMW", "120D M SPORT", Integer.toString(2000 + index % 20));
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.TimeoutException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the latency histogram and the lookup metrics report.
+ */
+public class LookupMetricsTest {
+
+    /**
+     * Tests that percentiles read back from the histogram are within its bucket precision of the exact values.
+     */
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis * 1_000_000);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000_000L, histogram.max());
+        assertWithin(500_000_000L, histogram.percentile(0.50));
+        assertWithin(950_000_000L, histogram.percentile(0.95));
+        assertWithin(990_000_000L, histogram.percentile(0.99));
+        assertEquals(1_000_000_000L, histogram.percentile(1.0));
+    }
+
+    /**
+     * Tests that an instrumented lookup counts each outcome and times every call, failed ones included.
+     */
+    @Test
+    public void testInstrumentCountsOutcomes() {
+        LookupMetrics metrics = new LookupMetrics();
+        VehicleLookup lookup = metrics.instrument(registrationNumber -> {
+            switch (registrationNumber) {
+                case "AD58VNF":
+                    return LookupResult.found(registrationNumber, "BMW", "120D M SPORT", "2008");
+                case "SLOW":
+                    throw new TimeoutException("No outcome");
+                case "BROKEN":
+                    throw new IllegalStateException("404");
+                default:
+                    return LookupResult.notRecognised(registrationNumber, LookupResult.NOT_RECOGNISED_MESSAGE);
+            }
+        });
+
+        lookup.lookup("AD58VNF");
+        lookup.lookup("AA00");
+        assertThrows(TimeoutException.class, () -> lookup.lookup("SLOW"));
+        assertThrows(IllegalStateException.class, () -> lookup.lookup("BROKEN"));
+
+        assertEquals(1, metrics.getCount(LookupMetrics.Outcome.VALID));
+        assertEquals(1, metrics.getCount(LookupMetrics.Outcome.INVALID));
+        assertEquals(1, metrics.getCount(LookupMetrics.Outcome.TIMEOUT));
+        assertEquals(1, metrics.getCount(LookupMetrics.Outcome.ERROR));
+        assertEquals(4, metrics.histogram(LookupMetrics.Phase.LOOKUP).count());
+    }
+
+    /**
+     * Tests that the JSON and CSV reports hold every phase, outcome, decision and gauge.
+     *
+     * @param dir a directory for the reports
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testReportsListEveryPhaseAndOutcome(@TempDir Path dir) throws IOException {
+        LookupMetrics metrics = new LookupMetrics();
+        metrics.recordSince(LookupMetrics.Phase.NAVIGATE, System.nanoTime() - 2_000_000);
+        metrics.count(LookupMetrics.Outcome.VALID);
+        metrics.set(LookupMetrics.Gauge.BROWSER_SESSIONS, 3);
+
+        metrics.writeJson(dir.resolve("metrics.json"));
+        metrics.writeCsv(dir.resolve("metrics.csv"));
+
+        String json = Files.readString(dir.resolve("metrics.json"));
+        List<String> csv = Files.readAllLines(dir.resolve("metrics.csv"));
+        assertEquals("METRIC,COUNT,MEAN_MS,P50_MS,P95_MS,P99_MS,MAX_MS", csv.get(0));
+        assertEquals(1 + LookupMetrics.Phase.values().length + LookupMetrics.Outcome.values().length
+                + LookupMetrics.Event.values().length + LookupMetrics.Gauge.values().length + 1, csv.size());
+        for (LookupMetrics.Phase phase : LookupMetrics.Phase.values()) {
+            assertTrue(json.contains("\"" + phase + "\": {\"count\": "), "Missing phase " + phase);
+        }
+        assertTrue(json.contains("\"VALID\": 1"));
+        assertTrue(json.contains("\"BROWSER_SESSIONS\": 3"));
+        assertTrue(csv.stream().anyMatch(line -> line.startsWith("NAVIGATE,1,")));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 32, "Expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the lookup pipeline: bounded concurrency, backpressure on the producer and failures.
+ */
+public class LookupPipelineTest {
+
+    private static final int CONCURRENCY = 4;
+
+    /**
+     * Tests that every queued registration number is looked up, with no more lookups at once than there are slots.
+     */
+    @Test
+    public void testBoundsConcurrentLookups() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        LookupPipeline pipeline = new LookupPipeline(registrationNumber -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return LookupResult.found(registrationNumber, "BMW", "120D M SPORT", "2008");
+        }, CONCURRENCY, 8, true);
+
+        List<CompletableFuture<LookupResult>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(pipeline.submit("AD58 " + i));
+        }
+        pipeline.close();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("AD58 " + i, results.get(i).join().registration());
+        }
+        assertTrue(maxInFlight.get() <= CONCURRENCY, "Expected at most " + CONCURRENCY + " lookups at once, saw " + maxInFlight.get());
+        assertNotNull(pipeline.getTimeToFirstResult());
+    }
+
+    /**
+     * Tests that submitting blocks once the lookup slots and the queue are full, and resumes when lookups finish.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testBlocksProducerWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        LookupPipeline pipeline = new LookupPipeline(registrationNumber -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return LookupResult.notRecognised(registrationNumber, LookupResult.NOT_RECOGNISED_MESSAGE);
+        }, 1, 2, false);
+
+        CountDownLatch submittedAll = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                pipeline.submit("A" + i);
+            }
+            submittedAll.countDown();
+        });
+        producer.start();
+
+        assertFalse(submittedAll.await(200, TimeUnit.MILLISECONDS), "Expected the producer to wait for a free queue slot");
+        release.countDown();
+        assertTrue(submittedAll.await(5, TimeUnit.SECONDS), "Expected the producer to finish once lookups completed");
+        pipeline.close();
+    }
+
+    /**
+     * Tests that a failed lookup fails its own future only.
+     */
+    @Test
+    public void testFailureCompletesFutureExceptionally() {
+        LookupPipeline pipeline = new LookupPipeline(registrationNumber -> {
+            if (registrationNumber.equals("BAD")) {
+                throw new IllegalStateException("404");
+            }
+            return LookupResult.found(registrationNumber, "BMW", "120D M SPORT", "2008");
+        }, 2, 4, true);
+
+        CompletableFuture<LookupResult> bad = pipeline.submit("BAD");
+        CompletableFuture<LookupResult> good = pipeline.submit("AD58VNF");
+        pipeline.close();
+
+        assertTrue(bad.isCompletedExceptionally());
+        assertEquals("AD58VNF", good.join().registration());
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the lookup scheduler against a local stub of the car checking site that slows down under load and throttles.
+ */
+public class LookupSchedulerTest {
+
+    private static final int COMFORTABLE_CONCURRENCY = 2;
+    private static final int WORKERS = 8;
+    private static final int LOOKUPS = 40;
+
+    private static CarCheckingStubServer server;
+
+    /**
+     * Starts the stub site. Every fifth report request gets a 429, and requests beyond a comfortable
+     * concurrency are slowed down.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    @BeforeAll
+    public static void startStubServer() throws IOException {
+        server = new CarCheckingStubServer(Map.of("AD58VNF", LookupResult.found("AD58VNF", "BMW", "120D M SPORT", "2008")),
+                new CarCheckingStubServer.Profile(Duration.ZERO, 0, 0, 0, 5, 0, COMFORTABLE_CONCURRENCY, Duration.ofMillis(300), 5));
+    }
+
+    /**
+     * Stops the stub site.
+     */
+    @AfterAll
+    public static void stopStubServer() {
+        server.close();
+    }
+
+    /**
+     * Tests that throttled lookups are retried until they succeed, and that throttling and slow responses
+     * cut the concurrency limit.
+     */
+    @Test
+    public void testRetriesThrottledLookupsAndCutsConcurrency() {
+        LookupMetrics metrics = new LookupMetrics();
+        VehicleLookupClient client = new VehicleLookupClient(URI.create(server.getBaseUrl()));
+        LookupScheduler scheduler = new LookupScheduler(client, new LookupScheduler.Limits(0, WORKERS, 1, WORKERS, WORKERS,
+                Duration.ofMillis(200), 0.5, 5, Duration.ofMillis(10), Duration.ofMillis(100)), metrics);
+
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        try {
+            List<CompletableFuture<LookupResult>> results = new ArrayList<>();
+            for (int i = 0; i < LOOKUPS; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> scheduler.lookup("AD58 VNF"), workers));
+            }
+            for (CompletableFuture<LookupResult> result : results) {
+                assertEquals("AD58VNF,BMW,120D M SPORT,2008", result.join().toRow());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        // Requests 5, 10, ... 45 are throttled, so the 40th success is request 49
+        assertEquals(9, metrics.getCount(LookupMetrics.Event.THROTTLED));
+        assertEquals(metrics.getCount(LookupMetrics.Event.THROTTLED), metrics.getCount(LookupMetrics.Event.RETRY));
+        assertTrue(metrics.getCount(LookupMetrics.Event.LIMIT_DECREASE) > 0, "Expected the concurrency limit to be cut");
+    }
+
+    /**
+     * Tests that the token bucket holds lookups to the configured rate once the burst is used up.
+     */
+    @Test
+    public void testRateLimit() {
+        LookupScheduler scheduler = new LookupScheduler(registrationNumber -> LookupResult.found(registrationNumber, "BMW", "120D M SPORT", "2008"),
+                new LookupScheduler.Limits(20, 1, 1, 1, 1, Duration.ofSeconds(10), 0.5, 1, Duration.ZERO, Duration.ZERO), new LookupMetrics());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            scheduler.lookup("AD58 VNF");
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis >= 400, "Expected 10 lookups at 20 per second to take about 450 ms, took " + elapsedMillis);
+    }
+
+    /**
+     * Tests that a failure that is not transient is not retried.
+     */
+    @Test
+    public void testPermanentFailureNotRetried() {
+        LookupMetrics metrics = new LookupMetrics();
+        AtomicInteger attempts = new AtomicInteger();
+        LookupScheduler scheduler = new LookupScheduler(registrationNumber -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("404");
+        }, new LookupScheduler.Limits(0, 1, 1, 1, 1, Duration.ofSeconds(10), 0.5, 3, Duration.ZERO, Duration.ZERO), metrics);
+
+        assertThrows(IllegalStateException.class, () -> scheduler.lookup("AD58 VNF"));
+        assertEquals(1, attempts.get());
+        assertEquals(0, metrics.getCount(LookupMetrics.Event.RETRY));
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests multi-tab lookups against the embedded car checking stub, with site latency so tabs finish out of order.
+ * The lookups use a private driver pool of one browser session, which is skipped where no browser can be started.
+ */
+public class MultiTabLookupTest {
+
+    private static final Logger logger = LogManager.getLogger(MultiTabLookupTest.class);
+    private static final String EXPECTED_OUTPUT_FILE_PATH = "src/test/resources/expected_output.txt";
+    private static final CarCheckingStubServer.Profile SLOW_SITE =
+            new CarCheckingStubServer.Profile(Duration.ofMillis(100), 0.5, 0, 0, 0, 0, 0, Duration.ZERO, 7);
+    private static final int TABS = 4;
+    private static final int ROUNDS = 3;
+
+    private static CarCheckingStubServer server;
+    private static DriverPool pool;
+    private static List<String> expectedRows;
+
+    /**
+     * Starts the stub site serving the expected output's cars and a private pool with one browser session.
+     *
+     * @throws IOException if the stub cannot be started
+     */
+    @BeforeAll
+    public static void startStubServer() throws IOException {
+        server = CarCheckingStubServer.fromExpectedOutput(Paths.get(EXPECTED_OUTPUT_FILE_PATH), SLOW_SITE);
+        expectedRows = Files.readAllLines(Paths.get(EXPECTED_OUTPUT_FILE_PATH)).stream().skip(1).collect(Collectors.toList());
+        Settings config = DriverSingleton.getSettings();
+        pool = new DriverPool(() -> DriverSingleton.createDriver(config.getString("browser", "chrome"), NetworkShaper.fromConfig(config)),
+                1, 1, Duration.ofMinutes(5), Duration.ofMinutes(1));
+        boolean browserStarted;
+        try {
+            pool.prewarm();
+            browserStarted = true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not start a browser for multi-tab lookups", e);
+            browserStarted = false;
+        }
+        assumeTrue(browserStarted, "No browser available for multi-tab lookups");
+    }
+
+    /**
+     * Stops the private driver pool and the stub site.
+     */
+    @AfterAll
+    public static void stopStubServer() {
+        if (pool != null) {
+            pool.close();
+        }
+        server.close();
+    }
+
+    /**
+     * Tests that every tab's result is attributed to the registration it looked up, so several tabs give the same
+     * results in the same order as one tab.
+     */
+    @Test
+    public void testTabsMatchOneTab() {
+        List<String> expected = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            expected.addAll(expectedRows);
+        }
+
+        assertEquals(expected, lookUpAll(expected, 1));
+        assertEquals(expected, lookUpAll(expected, TABS));
+    }
+
+    /**
+     * Tests that a lookup queued after the lookup is closed fails instead of waiting forever.
+     */
+    @Test
+    public void testLookupAfterCloseFails() {
+        MultiTabVehicleLookup lookup = newLookup(TABS);
+        lookup.close();
+
+        assertThrows(IllegalStateException.class, () -> lookup.lookup("AD58 VNF"));
+    }
+
+    /**
+     * Looks up the registration of every expected row from as many caller threads as there are tabs.
+     *
+     * @return the result rows, in the order of the expected rows
+     */
+    private List<String> lookUpAll(List<String> expected, int tabs) {
+        ExecutorService callers = Executors.newFixedThreadPool(tabs);
+        try (MultiTabVehicleLookup lookup = newLookup(tabs)) {
+            List<CompletableFuture<LookupResult>> results = new ArrayList<>();
+            for (String row : expected) {
+                String registration = row.substring(0, row.indexOf(','));
+                results.add(CompletableFuture.supplyAsync(() -> lookup.lookup(registration), callers));
+            }
+            return results.stream().map(result -> result.join().toRow()).collect(Collectors.toList());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static MultiTabVehicleLookup newLookup(int tabs) {
+        return new MultiTabVehicleLookup(server.getBaseUrl(), tabs, pool,
+                new OutcomeDetector(Duration.ofSeconds(10), Duration.ofSeconds(2), Duration.ofSeconds(30), 0.99, 2.0),
+                new LookupMetrics());
+    }
+}
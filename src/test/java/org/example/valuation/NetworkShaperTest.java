@@ -0,0 +1,127 @@
+package org.example.valuation;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the traffic and page load time saved by request blocking, against a local stub site with heavy assets.
+ */
+public class NetworkShaperTest {
+
+    private static final Logger logger = LogManager.getLogger(NetworkShaperTest.class);
+    private static final int IMAGES = 10;
+    private static final int ASSET_SIZE = 256 * 1024;
+    private static final int PAGE_LOADS = 5;
+
+    private static HttpServer server;
+    private static String pageUrl;
+    private static NetworkShaper unshaped;
+    private static NetworkShaper shaped;
+    private static WebDriver unshapedDriver;
+    private static WebDriver shapedDriver;
+
+    /**
+     * Starts the stub site: a form page that pulls in images, a web font and an analytics script, and a shaped and an
+     * unshaped browser session. The test is skipped where no browser can be started.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    @BeforeAll
+    public static void startStubServer() throws IOException {
+        StringBuilder page = new StringBuilder("<html><head>"
+                + "<style>@font-face { font-family: Heavy; src: url('/assets/heavy.woff2'); } body { font-family: Heavy; }</style>"
+                + "<script src=\"/analytics.js\"></script></head><body><h1>Car checking</h1>"
+                + "<form action=\"/report\" method=\"post\"><input id=\"subForm1\" name=\"reg\" type=\"text\">"
+                + "<button type=\"submit\">Check</button></form>");
+        for (int i = 0; i < IMAGES; i++) {
+            page.append("<img src=\"/assets/car-").append(i).append(".png\">");
+        }
+        page.append("</body></html>");
+        byte[] asset = new byte[ASSET_SIZE];
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> respond(exchange, "text/html", page.toString().getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/assets/", exchange -> respond(exchange,
+                exchange.getRequestURI().getPath().endsWith(".png") ? "image/png" : "font/woff2", asset));
+        server.createContext("/analytics.js", exchange -> respond(exchange, "text/javascript", asset));
+        server.start();
+        pageUrl = "http://localhost:" + server.getAddress().getPort() + "/";
+
+        unshaped = new NetworkShaper(true, PageLoadStrategy.NORMAL, List.of(), List.of());
+        shaped = new NetworkShaper(true, PageLoadStrategy.EAGER, List.of("Image", "Media", "Font"), List.of("*analytics*"));
+        boolean browserStarted;
+        try {
+            unshapedDriver = DriverSingleton.createDriver("chrome", unshaped);
+            shapedDriver = DriverSingleton.createDriver("chrome", shaped);
+            browserStarted = true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not start a browser to measure request blocking", e);
+            browserStarted = false;
+        }
+        assumeTrue(browserStarted, "No browser available to measure request blocking");
+    }
+
+    /**
+     * Quits the browser sessions and stops the stub site.
+     */
+    @AfterAll
+    public static void stopStubServer() {
+        for (WebDriver driver : new WebDriver[]{unshapedDriver, shapedDriver}) {
+            if (driver != null) {
+                driver.quit();
+            }
+        }
+        server.stop(0);
+    }
+
+    /**
+     * Tests that a shaped session receives fewer bytes per page load than an unshaped one, and logs the difference.
+     */
+    @Test
+    public void testBlockingReducesTraffic() {
+        long unshapedNanos = loadPages(unshapedDriver);
+        long shapedNanos = loadPages(shapedDriver);
+
+        long unshapedBytes = unshaped.getBytesReceived() / PAGE_LOADS;
+        long shapedBytes = shaped.getBytesReceived() / PAGE_LOADS;
+        logger.info("Per page load: " + unshapedBytes + " bytes in " + unshapedNanos / PAGE_LOADS / 1_000_000 + " ms unshaped, "
+                + shapedBytes + " bytes in " + shapedNanos / PAGE_LOADS / 1_000_000 + " ms shaped, "
+                + shaped.getRequestsBlocked() / PAGE_LOADS + " requests blocked");
+        assertTrue(shaped.getRequestsBlocked() >= IMAGES, "Expected the heavy assets to be blocked");
+        assertTrue(shapedBytes < unshapedBytes, "Expected the shaped session to receive fewer bytes");
+    }
+
+    private static long loadPages(WebDriver driver) {
+        long start = System.nanoTime();
+        for (int i = 0; i < PAGE_LOADS; i++) {
+            driver.get(pageUrl + "?load=" + i);
+            new CarCheckingPage(driver).enterRegistrationNumber("AD58 VNF");
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests how the outcome detector derives its timeout from recorded response times.
+ */
+public class OutcomeDetectorTest {
+
+    private static final Duration INITIAL = Duration.ofSeconds(3);
+    private static final Duration MIN = Duration.ofMillis(50);
+    private static final Duration MAX = Duration.ofSeconds(1);
+
+    /**
+     * Tests that the initial timeout holds until enough responses are recorded, and that the timeout then follows
+     * the configured percentile times the headroom.
+     */
+    @Test
+    public void testTimeoutFollowsPercentile() {
+        OutcomeDetector detector = new OutcomeDetector(INITIAL, MIN, MAX, 0.9, 2.0);
+        for (int millis = 1; millis < 20; millis++) {
+            detector.recordResponse(Duration.ofMillis(millis).toNanos());
+        }
+        assertEquals(INITIAL, detector.currentTimeout());
+
+        for (int millis = 20; millis <= 100; millis++) {
+            detector.recordResponse(Duration.ofMillis(millis).toNanos());
+        }
+        // The 90th of 100 responses of 1-100 ms is 90 ms
+        assertEquals(Duration.ofMillis(180), detector.currentTimeout());
+    }
+
+    /**
+     * Tests that the timeout never leaves the minimum and maximum, however fast or slow the site answers.
+     */
+    @Test
+    public void testTimeoutIsBounded() {
+        OutcomeDetector fast = new OutcomeDetector(INITIAL, MIN, MAX, 0.99, 2.0);
+        OutcomeDetector slow = new OutcomeDetector(INITIAL, MIN, MAX, 0.99, 2.0);
+        for (int i = 0; i < 50; i++) {
+            fast.recordResponse(Duration.ofMillis(1).toNanos());
+            slow.recordResponse(Duration.ofSeconds(5).toNanos());
+        }
+        assertEquals(MIN, fast.currentTimeout());
+        assertEquals(MAX, slow.currentTimeout());
+    }
+
+    /**
+     * Tests that only the most recent responses count, so the timeout comes down again once a slow spell is over.
+     */
+    @Test
+    public void testTimeoutForgetsOldResponses() {
+        OutcomeDetector detector = new OutcomeDetector(INITIAL, MIN, MAX, 0.99, 2.0);
+        for (int i = 0; i < 200; i++) {
+            detector.recordResponse(Duration.ofSeconds(5).toNanos());
+        }
+        assertEquals(MAX, detector.currentTimeout());
+
+        for (int i = 0; i < 200; i++) {
+            detector.recordResponse(Duration.ofMillis(100).toNanos());
+        }
+        assertEquals(Duration.ofMillis(200), detector.currentTimeout());
+    }
+}
@@ -0,0 +1,273 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Compares an actual output file with the expected one by joining rows on their first field, {@code VARIANT_REG},
+ * so row order does not matter. Both files are hash-partitioned on the key into temporary files and each partition
+ * is joined on its own, which keeps memory bounded by the partition size rather than the file size.
+ * A differing header and every missing, extra and mismatched row are written to a diff file with one JSON object
+ * per line.
+ */
+public class OutputComparator {
+
+    private static final Logger logger = LogManager.getLogger(OutputComparator.class);
+    private static final String FIELD_SEPARATOR = ",";
+    private static final String LINE_SEPARATOR = "\t";
+
+    private final Path diffFile;
+    private final long partitionSizeBytes;
+
+    /**
+     * Constructor to initialize the OutputComparator.
+     *
+     * @param diffFile           the file to write the differences to
+     * @param partitionSizeBytes the approximate amount of output to join in memory at once, sized from the larger file
+     */
+    public OutputComparator(Path diffFile, long partitionSizeBytes) {
+        this.diffFile = diffFile;
+        this.partitionSizeBytes = partitionSizeBytes;
+    }
+
+    /**
+     * Compares the actual output with the expected output and writes the differences to the diff file.
+     *
+     * @param expectedFile the expected output, starting with a header row
+     * @param actualFile   the actual output, starting with a header row
+     * @return the number of rows of each kind
+     * @throws IOException if a file cannot be read or written
+     */
+    public Summary compare(Path expectedFile, Path actualFile) throws IOException {
+        int partitions = (int) Math.max(1, Math.max(Files.size(expectedFile), Files.size(actualFile)) / partitionSizeBytes + 1);
+        Path workDir = Files.createTempDirectory("output-compare");
+        if (diffFile.getParent() != null) {
+            Files.createDirectories(diffFile.getParent());
+        }
+        try (BufferedWriter diff = Files.newBufferedWriter(diffFile, StandardCharsets.UTF_8)) {
+            DiffWriter differences = new DiffWriter(diff);
+            String[] header = partition(expectedFile, workDir, "expected", partitions);
+            String[] actualHeader = partition(actualFile, workDir, "actual", partitions);
+            if (!String.join(FIELD_SEPARATOR, header).equals(String.join(FIELD_SEPARATOR, actualHeader))) {
+                differences.headerMismatch(String.join(FIELD_SEPARATOR, header), String.join(FIELD_SEPARATOR, actualHeader));
+            }
+            for (int i = 0; i < partitions; i++) {
+                join(workDir.resolve("expected-" + i), workDir.resolve("actual-" + i), header, differences);
+            }
+            Summary summary = differences.summary();
+            logger.info("Compared output with expected output across " + partitions + " partitions: " + summary);
+            return summary;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            try (Stream<Path> files = Files.walk(workDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Splits a file into partition files by the hash of each row's key, prefixing each row with its line number.
+     *
+     * @return the header fields
+     */
+    private static String[] partition(Path file, Path workDir, String prefix, int partitions) throws IOException {
+        BufferedWriter[] writers = new BufferedWriter[partitions];
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < partitions; i++) {
+                writers[i] = Files.newBufferedWriter(workDir.resolve(prefix + "-" + i), StandardCharsets.UTF_8);
+            }
+            String header = reader.readLine();
+            String line;
+            long lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                BufferedWriter writer = writers[Math.floorMod(key(line).hashCode(), partitions)];
+                writer.write(lineNumber + LINE_SEPARATOR + line);
+                writer.newLine();
+            }
+            return header == null ? new String[0] : header.split(FIELD_SEPARATOR, -1);
+        } finally {
+            for (BufferedWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Joins one partition: expected rows are held in memory by key and each actual row is matched against them.
+     * Rows sharing a key are paired in file order.
+     */
+    private static void join(Path expectedPartition, Path actualPartition, String[] header, DiffWriter differences) throws IOException {
+        Map<String, Deque<Row>> expectedRows = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(expectedPartition, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Row row = Row.parse(line);
+                expectedRows.computeIfAbsent(row.key(), key -> new ArrayDeque<>()).add(row);
+            }
+        }
+        try (BufferedReader reader = Files.newBufferedReader(actualPartition, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Row actual = Row.parse(line);
+                Deque<Row> candidates = expectedRows.get(actual.key());
+                Row expected = candidates == null ? null : candidates.poll();
+                if (expected == null) {
+                    differences.extra(actual);
+                } else {
+                    differences.compareFields(expected, actual, header);
+                }
+            }
+        }
+        expectedRows.values().forEach(rows -> rows.forEach(differences::missing));
+    }
+
+    private static String key(String line) {
+        int separator = line.indexOf(FIELD_SEPARATOR);
+        return separator < 0 ? line : line.substring(0, separator);
+    }
+
+    /**
+     * Counts of the rows seen by a comparison.
+     *
+     * @param matched          rows present in both files with equal fields
+     * @param missing          expected rows with no actual row
+     * @param extra            actual rows with no expected row
+     * @param mismatched       rows present in both files with different fields
+     * @param headerMismatches 1 if the header rows differ, 0 otherwise
+     */
+    public record Summary(long matched, long missing, long extra, long mismatched, long headerMismatches) {
+
+        /**
+         * Returns whether the files have the same header and hold the same rows.
+         *
+         * @return true if the headers are equal and nothing is missing, extra or mismatched
+         */
+        public boolean isMatch() {
+            return headerMismatches == 0 && missing == 0 && extra == 0 && mismatched == 0;
+        }
+    }
+
+    private record Row(long lineNumber, String[] fields) {
+
+        private static Row parse(String partitionLine) {
+            int separator = partitionLine.indexOf(LINE_SEPARATOR);
+            return new Row(Long.parseLong(partitionLine.substring(0, separator)),
+                    partitionLine.substring(separator + 1).split(FIELD_SEPARATOR, -1));
+        }
+
+        private String key() {
+            return fields[0];
+        }
+
+        private String text() {
+            return String.join(FIELD_SEPARATOR, fields);
+        }
+    }
+
+    /**
+     * Writes differences as JSON lines and counts the rows of each kind.
+     */
+    private static final class DiffWriter {
+        private final BufferedWriter writer;
+        private long matched;
+        private long missing;
+        private long extra;
+        private long mismatched;
+        private long headerMismatches;
+
+        private DiffWriter(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        private void headerMismatch(String expected, String actual) {
+            headerMismatches++;
+            write("{\"type\":\"HEADER\",\"expected\":" + json(expected) + ",\"actual\":" + json(actual) + "}");
+        }
+
+        private void missing(Row expected) {
+            missing++;
+            write("{\"type\":\"MISSING\",\"key\":" + json(expected.key()) + ",\"expectedLine\":" + expected.lineNumber()
+                    + ",\"expected\":" + json(expected.text()) + "}");
+        }
+
+        private void extra(Row actual) {
+            extra++;
+            write("{\"type\":\"EXTRA\",\"key\":" + json(actual.key()) + ",\"actualLine\":" + actual.lineNumber()
+                    + ",\"actual\":" + json(actual.text()) + "}");
+        }
+
+        private void compareFields(Row expected, Row actual, String[] header) {
+            StringBuilder fields = new StringBuilder();
+            int fieldCount = Math.max(expected.fields().length, actual.fields().length);
+            for (int i = 1; i < fieldCount; i++) {
+                String expectedField = i < expected.fields().length ? expected.fields()[i] : null;
+                String actualField = i < actual.fields().length ? actual.fields()[i] : null;
+                if (expectedField == null ? actualField != null : !expectedField.equals(actualField)) {
+                    fields.append(fields.length() == 0 ? "" : ",")
+                            .append("{\"field\":").append(json(i < header.length ? header[i] : "FIELD_" + (i + 1)))
+                            .append(",\"expected\":").append(json(expectedField))
+                            .append(",\"actual\":").append(json(actualField)).append('}');
+                }
+            }
+            if (fields.length() == 0) {
+                matched++;
+                return;
+            }
+            mismatched++;
+            write("{\"type\":\"MISMATCH\",\"key\":" + json(expected.key()) + ",\"expectedLine\":" + expected.lineNumber()
+                    + ",\"actualLine\":" + actual.lineNumber() + ",\"fields\":[" + fields + "]}");
+        }
+
+        private Summary summary() {
+            return new Summary(matched, missing, extra, mismatched, headerMismatches);
+        }
+
+        private void write(String json) {
+            try {
+                writer.write(json);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String json(String value) {
+            if (value == null) {
+                return "null";
+            }
+            StringBuilder json = new StringBuilder("\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20) {
+                    json.append(String.format("\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+            }
+            return json.append('"').toString();
+        }
+    }
+}
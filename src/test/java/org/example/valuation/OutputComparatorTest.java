@@ -0,0 +1,91 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the keyed output comparator.
+ */
+public class OutputComparatorTest {
+
+    private static final String HEADER = "VARIANT_REG,MAKE,MODEL,YEAR";
+
+    /**
+     * Tests that rows in a different order match, with partitions small enough that each holds only a few rows.
+     *
+     * @param dir a directory for the files
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testReorderedRowsMatch(@TempDir Path dir) throws IOException {
+        Path expected = write(dir.resolve("expected.txt"), HEADER, "AD58VNF,BMW,120D M SPORT,2008",
+                "KT17DLX,SKODA,SUPERB SPORTLINE TDI S-A,2017", "AA00,The license plate number is not recognised");
+        Path actual = write(dir.resolve("actual.txt"), HEADER, "AA00,The license plate number is not recognised",
+                "KT17DLX,SKODA,SUPERB SPORTLINE TDI S-A,2017", "AD58VNF,BMW,120D M SPORT,2008");
+
+        OutputComparator.Summary summary = new OutputComparator(dir.resolve("diff.jsonl"), 40).compare(expected, actual);
+
+        assertEquals(new OutputComparator.Summary(3, 0, 0, 0, 0), summary);
+        assertTrue(Files.readAllLines(dir.resolve("diff.jsonl")).isEmpty());
+    }
+
+    /**
+     * Tests that every missing, extra and mismatched row is reported, not only the first difference.
+     *
+     * @param dir a directory for the files
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testAllDifferencesReported(@TempDir Path dir) throws IOException {
+        Path expected = write(dir.resolve("expected.txt"), HEADER, "AD58VNF,BMW,120D M SPORT,2008",
+                "KT17DLX,SKODA,SUPERB SPORTLINE TDI S-A,2017", "AA00,The license plate number is not recognised");
+        Path actual = write(dir.resolve("actual.txt"), HEADER, "AD58VNF,BMW,120D,2009",
+                "AA00,The license plate number is not recognised", "SG18HTN,BMW,520D,2018");
+
+        OutputComparator.Summary summary = new OutputComparator(dir.resolve("diff.jsonl"), 40).compare(expected, actual);
+
+        assertEquals(new OutputComparator.Summary(1, 1, 1, 1, 0), summary);
+        List<String> diff = Files.readAllLines(dir.resolve("diff.jsonl"));
+        assertTrue(diff.contains("{\"type\":\"MISMATCH\",\"key\":\"AD58VNF\",\"expectedLine\":2,\"actualLine\":2,\"fields\":["
+                + "{\"field\":\"MODEL\",\"expected\":\"120D M SPORT\",\"actual\":\"120D\"},"
+                + "{\"field\":\"YEAR\",\"expected\":\"2008\",\"actual\":\"2009\"}]}"), diff.toString());
+        assertTrue(diff.contains("{\"type\":\"MISSING\",\"key\":\"KT17DLX\",\"expectedLine\":3,"
+                + "\"expected\":\"KT17DLX,SKODA,SUPERB SPORTLINE TDI S-A,2017\"}"), diff.toString());
+        assertTrue(diff.contains("{\"type\":\"EXTRA\",\"key\":\"SG18HTN\",\"actualLine\":4,"
+                + "\"actual\":\"SG18HTN,BMW,520D,2018\"}"), diff.toString());
+    }
+
+    /**
+     * Tests that files whose rows match but whose headers differ do not match.
+     *
+     * @param dir a directory for the files
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testHeaderMismatchFailsComparison(@TempDir Path dir) throws IOException {
+        Path expected = write(dir.resolve("expected.txt"), HEADER, "AD58VNF,BMW,120D M SPORT,2008");
+        Path actual = write(dir.resolve("actual.txt"), "VARIANT_REG,MAKE,MODEL,YEAR_OF_MANUFACTURE",
+                "AD58VNF,BMW,120D M SPORT,2008");
+
+        OutputComparator.Summary summary = new OutputComparator(dir.resolve("diff.jsonl"), 40).compare(expected, actual);
+
+        assertEquals(new OutputComparator.Summary(1, 0, 0, 0, 1), summary);
+        assertFalse(summary.isMatch());
+        assertEquals(List.of("{\"type\":\"HEADER\",\"expected\":\"" + HEADER + "\","
+                + "\"actual\":\"VARIANT_REG,MAKE,MODEL,YEAR_OF_MANUFACTURE\"}"), Files.readAllLines(dir.resolve("diff.jsonl")));
+    }
+
+    private static Path write(Path file, String... lines) throws IOException {
+        return Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+    }
+}
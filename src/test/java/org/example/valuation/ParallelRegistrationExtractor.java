@@ -0,0 +1,190 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Extracts vehicle registration numbers like {@link VehicleRegistrationExtractor}, but fans out across input files
+ * and splits large files into line-aligned chunks that are memory-mapped and scanned on a fork-join pool.
+ * Chunk results are merged in file and chunk order, so the output is identical to the sequential extractor's.
+ */
+public class ParallelRegistrationExtractor {
+
+    private static final Logger logger = LogManager.getLogger(ParallelRegistrationExtractor.class);
+    private static final Path INPUT_DIR = Paths.get("src/test/resources");
+    private static final Path OUTPUT_FILE = Paths.get("src/test/resources/cleaned_test_data.txt");
+    private static final int BOUNDARY_SEARCH_SIZE = 8192;
+
+    /**
+     * Extracts and writes registration numbers to the output file.
+     *
+     * @param parallelism the fork-join pool size
+     * @param chunkSize   the target chunk size in bytes; chunks end on the first line break at or after it
+     */
+    public static void extractAndWriteRegistrationNumbers(int parallelism, int chunkSize) {
+        extractAndWriteRegistrationNumbers(INPUT_DIR, OUTPUT_FILE, parallelism, chunkSize);
+    }
+
+    /**
+     * Extracts registration numbers from the input files of a directory in parallel and writes them to the output file.
+     *
+     * @param inputDir    the directory holding the {@code *_input*.txt} files
+     * @param outputFile  the file to write the cleaned test data to
+     * @param parallelism the fork-join pool size
+     * @param chunkSize   the target chunk size in bytes; chunks end on the first line break at or after it
+     */
+    static void extractAndWriteRegistrationNumbers(Path inputDir, Path outputFile, int parallelism, int chunkSize) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Chunk> chunks = new ArrayList<>();
+            for (Path inputFile : VehicleRegistrationExtractor.listInputFiles(inputDir)) {
+                chunks.addAll(splitIntoChunks(inputFile, chunkSize));
+            }
+            ChunkResult merged = pool.invoke(new ChunkRangeTask(chunks, 0, chunks.size()));
+
+            try (BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+                writer.write(VehicleRegistrationExtractor.HEADER);
+                writer.newLine();
+                for (String registrationNumber : merged.validRegistrationNumbers) {
+                    writer.write(registrationNumber + "," + VehicleRegistrationExtractor.VALID_STATUS);
+                    writer.newLine();
+                }
+                for (String registrationNumber : merged.invalidRegistrationNumbers) {
+                    writer.write(registrationNumber + "," + LookupResult.NOT_RECOGNISED_MESSAGE);
+                    writer.newLine();
+                }
+            }
+            logger.info("Successfully wrote registration numbers from " + chunks.size() + " chunks to output file");
+        } catch (IOException e) {
+            logger.error("Error processing files", e);
+        } catch (UncheckedIOException e) {
+            logger.error("Error processing files", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits a file into chunks of about chunkSize bytes, each ending just after a line break (or at end of file),
+     * so that no registration number straddles two chunks.
+     */
+    private static List<Chunk> splitIntoChunks(Path file, int chunkSize) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            ByteBuffer search = ByteBuffer.allocate(BOUNDARY_SEARCH_SIZE);
+            while (start < size) {
+                long end = Math.min(start + chunkSize, size);
+                while (end < size) {
+                    search.clear();
+                    int read = channel.read(search, end);
+                    int newline = -1;
+                    for (int i = 0; i < read && newline < 0; i++) {
+                        if (search.get(i) == '\n') {
+                            newline = i;
+                        }
+                    }
+                    if (newline >= 0) {
+                        end += newline + 1;
+                        break;
+                    }
+                    end = Math.min(end + Math.max(read, 1), size);
+                }
+                chunks.add(new Chunk(file, start, end - start));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    private static final class Chunk {
+        private final Path file;
+        private final long position;
+        private final long size;
+
+        private Chunk(Path file, long position, long size) {
+            this.file = file;
+            this.position = position;
+            this.size = size;
+        }
+
+        private ChunkResult scan() {
+            ChunkResult result = new ChunkResult();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                // Malformed input fails the extraction, as the sequential extractor's reader does
+                CharBuffer text = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(mapped);
+                VehicleRegistrationExtractor.scan(text,
+                        result.validRegistrationNumbers::add, result.invalidRegistrationNumbers::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading file: " + file, e);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Distinct registration numbers in order of first occurrence.
+     */
+    private static final class ChunkResult {
+        private final Set<String> validRegistrationNumbers = new LinkedHashSet<>();
+        private final Set<String> invalidRegistrationNumbers = new LinkedHashSet<>();
+
+        /**
+         * Appends the later result; entries already present keep their earlier position.
+         */
+        private ChunkResult merge(ChunkResult later) {
+            validRegistrationNumbers.addAll(later.validRegistrationNumbers);
+            invalidRegistrationNumbers.addAll(later.invalidRegistrationNumbers);
+            return this;
+        }
+    }
+
+    private static final class ChunkRangeTask extends RecursiveTask<ChunkResult> {
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        private ChunkRangeTask(List<Chunk> chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (to - from <= 1) {
+                return from < to ? chunks.get(from).scan() : new ChunkResult();
+            }
+            int middle = (from + to) >>> 1;
+            ChunkRangeTask left = new ChunkRangeTask(chunks, from, middle);
+            left.fork();
+            ChunkResult right = new ChunkRangeTask(chunks, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the parallel extractor writes exactly what the sequential extractor writes.
+ */
+public class ParallelRegistrationExtractorTest {
+
+    private static final String LETTERS = "ABCDEFGHJKLMNOPRSTUVWXY";
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Tests a generated corpus of several small files and one file large enough to be split into many chunks,
+     * with registrations repeated across files and chunks. {@code ExtractionBenchmark} compares their speed.
+     *
+     * @param inputDir the directory to generate the corpus in
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testParallelOutputMatchesSequential(@TempDir Path inputDir) throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 4; i++) {
+            writeCorpusFile(inputDir.resolve("car_input_" + i + ".txt"), 2_000, random);
+        }
+        writeCorpusFile(inputDir.resolve("car_input_large.txt"), 200_000, random);
+        Path sequentialOutput = inputDir.resolve("sequential.csv");
+        Path parallelOutput = inputDir.resolve("parallel.csv");
+
+        VehicleRegistrationExtractor.extractAndWriteRegistrationNumbers(inputDir, sequentialOutput);
+        ParallelRegistrationExtractor.extractAndWriteRegistrationNumbers(inputDir, parallelOutput,
+                Runtime.getRuntime().availableProcessors(), CHUNK_SIZE);
+
+        assertEquals(Files.readAllLines(sequentialOutput, StandardCharsets.UTF_8),
+                Files.readAllLines(parallelOutput, StandardCharsets.UTF_8));
+    }
+
+    private static void writeCorpusFile(Path file, int lines, Random random) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write("Car " + i + " with registration " + registration(random)
+                        + " was valued at £" + random.nextInt(50_000) + ", see also " + registration(random).replace(" ", ""));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Draws from a small space so that registrations repeat across lines, chunks and files.
+     */
+    private static String registration(Random random) {
+        return "" + LETTERS.charAt(random.nextInt(4)) + LETTERS.charAt(random.nextInt(LETTERS.length()))
+                + random.nextInt(10) + random.nextInt(10) + " "
+                + LETTERS.charAt(random.nextInt(3)) + LETTERS.charAt(random.nextInt(3)) + LETTERS.charAt(random.nextInt(LETTERS.length()));
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the plate format rules and the registration number tokenizer.
+ */
+public class RegistrationTokenizerTest {
+
+    /**
+     * Tests that each UK format is recognised with or without its space, and that impossible candidates are not.
+     */
+    @Test
+    public void testPlateFormats() {
+        assertEquals(PlateFormat.CURRENT, PlateFormat.of("AD58 VNF"));
+        assertEquals(PlateFormat.CURRENT, PlateFormat.of("ad58vnf"));
+        assertEquals(PlateFormat.PREFIX, PlateFormat.of("A123 BCD"));
+        assertEquals(PlateFormat.SUFFIX, PlateFormat.of("ABC 12D"));
+        assertEquals(PlateFormat.DATELESS, PlateFormat.of("ABC 1"));
+        assertEquals(PlateFormat.DATELESS, PlateFormat.of("1234 AB"));
+        for (String impossible : new String[]{"INVALID123", "1", "A", "A1A", "AAA", "AA00", "A012 BCD", "AB12 CDEF"}) {
+            assertEquals(PlateFormat.NONE, PlateFormat.of(impossible), impossible);
+        }
+    }
+
+    /**
+     * Tests that plates written with their space are found as one candidate and other runs on word boundaries.
+     */
+    @Test
+    public void testTokenize() {
+        List<String> tokens = new ArrayList<>();
+        RegistrationTokenizer.tokenize("BMW AD58 VNF, or A123 BCD (1234 AB) at £3000 and AB12345678 KT17_DLX",
+                (text, start, space, end, format) -> tokens.add(text.subSequence(start, end) + "=" + format));
+        assertEquals(List.of("BMW=NONE", "AD58 VNF=CURRENT", "A123 BCD=PREFIX", "1234 AB=DATELESS", "3000=NONE"), tokens);
+    }
+}
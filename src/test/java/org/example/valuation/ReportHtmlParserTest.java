@@ -0,0 +1,28 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests reading error alerts from the car checking site's HTML.
+ */
+public class ReportHtmlParserTest {
+
+    /**
+     * Tests that an alert's text runs to its own closing tag when it holds nested elements of the same name,
+     * and that only elements with both alert classes count, as the {@code .alert.alert-danger} locator requires.
+     */
+    @Test
+    public void testAlertWithNestedMarkup() {
+        String html = "<div class=\"alert-danger-banner\">Cookies</div>"
+                + "<div class=\"alert-danger\">Not an alert</div>"
+                + "<div class=\"alert alert-danger\" role=\"alert\"><div class=\"icon\"></div>"
+                + "<div>The license plate number is <b>not</b> recognised</div></div>"
+                + "<div>Footer</div>";
+
+        assertEquals("The license plate number is not recognised", ReportHtmlParser.parseErrorMessage(html));
+        assertNull(ReportHtmlParser.parseErrorMessage("<div class=\"alert alert-info\">Welcome</div>"));
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the binary result store: CSV round trips, unpackable registrations, parsing rows with commas and its size
+ * against CSV.
+ */
+public class ResultStoreTest {
+
+    private static final String HEADER = "VARIANT_REG,MAKE,MODEL,YEAR";
+
+    /**
+     * Tests that every line of the expected output survives a round trip through the result store unchanged,
+     * across several blocks.
+     *
+     * @param dir a directory for the store and the exported output
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCsvRoundTrip(@TempDir Path dir) throws IOException {
+        Path expected = Paths.get("src/test/resources/expected_output.txt");
+        Path store = dir.resolve("results.bin");
+        Path exported = dir.resolve("exported.txt");
+
+        long imported = ResultStoreWriter.importCsv(expected, store, 4);
+        long rows = ResultStoreReader.exportCsv(store, exported, HEADER);
+
+        assertEquals(imported, rows);
+        assertEquals(Files.readAllLines(expected), Files.readAllLines(exported));
+    }
+
+    /**
+     * Tests that registrations that cannot be packed, and results with commas in the model, are read back unchanged.
+     *
+     * @param dir a directory for the store
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testUnpackableValues(@TempDir Path dir) throws IOException {
+        Path store = dir.resolve("results.bin");
+        List<LookupResult> results = List.of(
+                LookupResult.found("AD58VNF", "BMW", "1 SERIES, 120D", "2008"),
+                LookupResult.notRecognised("ad58 vnf", LookupResult.NOT_RECOGNISED_MESSAGE),
+                LookupResult.notRecognised("AAAAAAAAAAAA", LookupResult.NOT_RECOGNISED_MESSAGE),
+                LookupResult.notRecognised("", LookupResult.NOT_RECOGNISED_MESSAGE));
+        try (ResultStoreWriter writer = new ResultStoreWriter(store, 3)) {
+            for (LookupResult result : results) {
+                writer.write(result);
+            }
+        }
+
+        try (ResultStoreReader reader = new ResultStoreReader(store)) {
+            for (LookupResult result : results) {
+                assertEquals(result, reader.next());
+            }
+            assertNull(reader.next());
+        }
+        ResultStoreReader.Columns columns = ResultStoreReader.load(store);
+        assertEquals(results.size(), columns.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(results.get(i), columns.get(i));
+        }
+        assertEquals(results.get(0), LookupResult.fromRow(results.get(0).toRow()));
+    }
+
+    /**
+     * Tests that rows whose message or model contains commas are parsed back into the result that wrote them.
+     */
+    @Test
+    public void testRowsWithCommasParse() {
+        List<LookupResult> results = List.of(
+                LookupResult.notRecognised("AD58VNF", "Sorry, try again"),
+                LookupResult.notRecognised("AD58VNF", "Sorry, the site is busy, please try again, later"),
+                LookupResult.found("KT17DLX", "SKODA", "SUPERB, SPORTLINE, TDI", "2017"),
+                LookupResult.found("KT17DLX", "SKODA", "SUPERB", "2017"));
+        for (LookupResult result : results) {
+            assertEquals(result, LookupResult.fromRow(result.toRow()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> LookupResult.fromRow("AD58VNF"));
+    }
+
+    /**
+     * Tests that the store of a large output with repeated makes and models is much smaller than the CSV.
+     *
+     * @param dir a directory for the files
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testSmallerThanCsv(@TempDir Path dir) throws IOException {
+        Path csv = dir.resolve("output.txt");
+        StringBuilder output = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 10000; i++) {
+            output.append(i % 5 == 0
+                    ? LookupResult.notRecognised("AA" + i, LookupResult.NOT_RECOGNISED_MESSAGE).toRow()
+                    : LookupResult.found("KT17DL" + (char) ('A' + i % 26), "VOLKSWAGEN", "GOLF SE NAVIGATION TSI EVO",
+                            Integer.toString(2000 + i % 20)).toRow()).append('\n');
+        }
+        Files.write(csv, output.toString().getBytes(StandardCharsets.UTF_8));
+        Path store = dir.resolve("output.bin");
+
+        ResultStoreWriter.importCsv(csv, store, 4096);
+
+        assertTrue(Files.size(store) * 2 < Files.size(csv), "Expected the store to be less than half the CSV size, got "
+                + Files.size(store) + " against " + Files.size(csv));
+    }
+}
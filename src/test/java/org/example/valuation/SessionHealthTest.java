@@ -0,0 +1,124 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests session health tracking and the driver pool's background recycling, with stand-in sessions in place of browsers.
+ */
+public class SessionHealthTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Tests that a session is flagged once its lookups drift past the threshold, and not before its baseline is complete.
+     */
+    @Test
+    public void testLatencyDrift() {
+        SessionHealthPolicy policy = new SessionHealthPolicy(0, Duration.ZERO, 1.5, 0, 0, Duration.ZERO);
+        SessionHealth health = new SessionHealth(List.of());
+        for (int i = 0; i < 20; i++) {
+            health.recordLookup(100_000_000);
+        }
+        health.recordLookup(1_000_000_000);
+        assertNull(health.reasonToRecycle(policy));
+        for (int i = 0; i < 40; i++) {
+            health.recordLookup(200_000_000);
+        }
+        assertTrue(health.getLatencyDrift() > 1.5, "Drift was " + health.getLatencyDrift());
+        assertNotNull(health.reasonToRecycle(policy));
+    }
+
+    /**
+     * Tests that this JVM's own process tree can be sampled from {@code /proc}.
+     */
+    @Test
+    public void testSamplesProcessTree() {
+        SessionHealth health = new SessionHealth(List.of(ProcessHandle.current()));
+        health.sample();
+        if (ProcessMemory.rssBytes(ProcessHandle.current().pid()) < 0) {
+            assertEquals(-1, ProcessMemory.openFiles(ProcessHandle.current().pid()));
+            return;
+        }
+        assertTrue(health.getRssBytes() > 0);
+        assertTrue(health.getOpenFiles() > 0);
+    }
+
+    /**
+     * Tests that a session returned after its last allowed lookup is quit and replaced in the background, and that
+     * the replacement is what the next checkout gets.
+     *
+     * @throws InterruptedException if interrupted while waiting for the recycler
+     */
+    @Test
+    public void testRecyclesSessionOnRelease() throws InterruptedException {
+        Set<WebDriver> quit = ConcurrentHashMap.newKeySet();
+        SessionHealthPolicy policy = new SessionHealthPolicy(3, Duration.ZERO, 0, 0, 0, Duration.ZERO);
+        LookupMetrics metrics = new LookupMetrics();
+        try (DriverPool pool = new DriverPool(() -> FakeWebDriver.create(quit), 1, 2, Duration.ofMinutes(5), Duration.ofSeconds(5),
+                policy, metrics)) {
+            WebDriver first = pool.checkout();
+            for (int i = 0; i < 3; i++) {
+                pool.recordLookup(first, 1_000_000);
+            }
+            pool.release(first);
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (!quit.contains(first) || pool.idleCount() == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the session to be recycled");
+                Thread.sleep(10);
+            }
+            WebDriver second = pool.checkout();
+            assertNotSame(first, second);
+            assertEquals(0, pool.getHealth(second).getLookups());
+            assertEquals(1, pool.size());
+            assertEquals(1, metrics.getCount(LookupMetrics.Event.SESSION_RECYCLED));
+            pool.release(second);
+        }
+    }
+
+    /**
+     * Tests that the monitor recycles an idle session that crossed a threshold while idle, and that the replacement
+     * waits idle in its place.
+     *
+     * @throws InterruptedException if interrupted while waiting for the monitor
+     */
+    @Test
+    public void testMonitorRecyclesIdleSession() throws InterruptedException {
+        Set<WebDriver> quit = ConcurrentHashMap.newKeySet();
+        SessionHealthPolicy policy = new SessionHealthPolicy(3, Duration.ZERO, 0, 0, 0, Duration.ZERO);
+        LookupMetrics metrics = new LookupMetrics();
+        try (DriverPool pool = new DriverPool(() -> FakeWebDriver.create(quit), 1, 1, Duration.ofMillis(100), Duration.ofSeconds(5),
+                policy, metrics)) {
+            WebDriver first = pool.checkout();
+            pool.recordLookup(first, 1_000_000);
+            pool.release(first);
+            assertEquals(1, pool.idleCount());
+            pool.recordLookup(first, 1_000_000);
+            pool.recordLookup(first, 1_000_000);
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (!quit.contains(first) || pool.idleCount() == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the monitor to recycle the session");
+                Thread.sleep(10);
+            }
+            assertEquals(1, pool.size());
+            assertEquals(1, metrics.getCount(LookupMetrics.Event.SESSION_RECYCLED));
+            WebDriver second = pool.checkout();
+            assertNotSame(first, second);
+            assertEquals(0, pool.getHealth(second).getLookups());
+            pool.release(second);
+        }
+    }
+}
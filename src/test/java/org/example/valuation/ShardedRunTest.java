@@ -0,0 +1,89 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests sharded runs with real worker processes against the car checking stub.
+ */
+public class ShardedRunTest {
+
+    private static final int SHARDS = 3;
+
+    /**
+     * Tests that three worker processes and the merge write the same output as looking up every
+     * registration in input order in this process.
+     *
+     * @param dir a directory for the input, shards and outputs
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testShardedRunMatchesSingleProcess(@TempDir Path dir) throws IOException {
+        Path input = dir.resolve("cleaned_test_data.txt");
+        List<String> inputLines = new ArrayList<>(Files.readAllLines(Paths.get("src/test/resources/cleaned_test_data.txt")));
+        for (int i = 0; i < 200; i++) {
+            inputLines.add((i % 2 == 0 ? "AD58 VNF" : "ZZ" + i) + ",VALID");
+        }
+        Files.write(input, inputLines);
+
+        try (CarCheckingStubServer server = CarCheckingStubServer.fromExpectedOutput(
+                Paths.get("src/test/resources/expected_output.txt"), CarCheckingStubServer.Profile.IDEAL)) {
+            Path output = dir.resolve("car_output.txt");
+            ShardedRun.coordinate(SHARDS, input, output, dir.resolve("shards"), "http", server.getBaseUrl(), 4);
+
+            VehicleLookupClient client = new VehicleLookupClient(URI.create(server.getBaseUrl()));
+            List<String> expected = new ArrayList<>(List.of("VARIANT_REG,MAKE,MODEL,YEAR"));
+            for (String line : inputLines.subList(1, inputLines.size())) {
+                expected.add(client.lookup(line.substring(0, line.indexOf(','))).toRow());
+            }
+            assertEquals(expected, Files.readAllLines(output));
+        }
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertTrue(Files.size(dir.resolve("shards").resolve("shard-" + shard + ".txt")) > 0, "Expected shard " + shard + " to have rows");
+        }
+    }
+
+    /**
+     * Tests that a failed lookup is kept out of the shard file and listed in the failure file, that the worker carries
+     * on with the rest of its shard but then fails, and that the merge refuses the shard.
+     *
+     * @param dir a directory for the input and shard file
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testFailedLookupFailsWorker(@TempDir Path dir) throws IOException {
+        Path input = Files.write(dir.resolve("cleaned_test_data.txt"),
+                List.of("VARIANT_REG,VALIDITY", "AD58 VNF,VALID", "BROKEN,VALID", "KT17 DLX,VALID"));
+        VehicleLookup lookup = registrationNumber -> {
+            if (registrationNumber.equals("BROKEN")) {
+                throw new IllegalStateException("Site\nunreachable");
+            }
+            return LookupResult.found(Registrations.canonical(registrationNumber), "BMW", "120D", "2008");
+        };
+
+        assertThrows(IllegalStateException.class, () -> ShardedRun.runWorker(0, 1, input, dir, lookup, 2));
+        assertEquals(List.of("0\tAD58VNF,BMW,120D,2008", "2\tKT17DLX,BMW,120D,2008"), Files.readAllLines(dir.resolve("shard-0.txt")));
+        assertEquals(List.of("1\tBROKEN\tSite unreachable"), Files.readAllLines(ShardedRun.failedFile(dir, 0)));
+        assertThrows(IllegalStateException.class, () -> ShardedRun.merge(1, dir, dir.resolve("car_output.txt")));
+    }
+
+    /**
+     * Tests that a registration lands in the same shard however it is written.
+     */
+    @Test
+    public void testShardOfCanonicalRegistration() {
+        assertEquals(ShardedRun.shardOf("AD58 VNF", 7), ShardedRun.shardOf("ad58vnf", 7));
+    }
+}
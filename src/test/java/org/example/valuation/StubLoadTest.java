@@ -0,0 +1,83 @@
+package org.example.valuation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test of the HTTP lookup chain against the embedded car checking stub.
+ * Runs {@code loadtest.lookups} lookups, alternating the expected output's recognised cars with unknown registration
+ * numbers, through the lookup scheduler and the lookup pipeline with {@code loadtest.concurrency} slots, against a stub
+ * with the {@code stub.*} latency and fault profile, and reports throughput and latency percentiles.
+ */
+public class StubLoadTest {
+
+    private static final Logger logger = LogManager.getLogger(StubLoadTest.class);
+    private static final String EXPECTED_OUTPUT_FILE_PATH = "src/test/resources/expected_output.txt";
+    private static final int MAX_ATTEMPTS = 10;
+
+    /**
+     * Tests that every lookup of the load run succeeds with the stub's answer, and logs the run's throughput.
+     *
+     * @throws IOException if the stub cannot be started
+     */
+    @Test
+    public void testLoad() throws IOException {
+        Settings config = DriverSingleton.getSettings();
+        int lookups = config.getInt("loadtest.lookups", 2000);
+        int concurrency = config.getInt("loadtest.concurrency", 64);
+        LookupMetrics metrics = new LookupMetrics();
+
+        List<String> cars = Files.readAllLines(Paths.get(EXPECTED_OUTPUT_FILE_PATH)).stream()
+                .skip(1)
+                .map(line -> line.split(","))
+                .filter(fields -> fields.length == 4)
+                .map(fields -> fields[0])
+                .collect(Collectors.toList());
+
+        try (CarCheckingStubServer server = CarCheckingStubServer.fromExpectedOutput(Paths.get(EXPECTED_OUTPUT_FILE_PATH),
+                CarCheckingStubServer.Profile.fromConfig(config))) {
+            // No rate limit here: the point is to find what the stub, or the site it stands in for, can take
+            LookupScheduler.Limits limits = new LookupScheduler.Limits(0, concurrency, 1, concurrency, concurrency,
+                    Duration.ofMillis(config.getLong("scheduler.latencyTargetMillis", 10000)), 1.0, MAX_ATTEMPTS,
+                    Duration.ofMillis(10), Duration.ofSeconds(1));
+            VehicleLookup lookup = metrics.instrument(new LookupScheduler(new VehicleLookupClient(URI.create(server.getBaseUrl())),
+                    limits, metrics));
+            LookupPipeline pipeline = new LookupPipeline(lookup, concurrency, concurrency * 4, true);
+            List<CompletableFuture<LookupResult>> results = new ArrayList<>(lookups);
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                results.add(pipeline.submit(i % 2 == 0 ? cars.get(i / 2 % cars.size()) : "AA" + i));
+            }
+            pipeline.close();
+            long elapsedNanos = System.nanoTime() - start;
+
+            int recognised = 0;
+            for (CompletableFuture<LookupResult> result : results) {
+                if (result.join().isRecognised()) {
+                    recognised++;
+                }
+            }
+            LatencyHistogram latency = metrics.histogram(LookupMetrics.Phase.LOOKUP);
+            logger.info(String.format("Load test: %d lookups at concurrency %d in %d ms, %.1f lookups/s, "
+                            + "p50 %.1f ms, p99 %.1f ms, %d throttled, %d failed at the stub", lookups, concurrency,
+                    elapsedNanos / 1_000_000, lookups * 1e9 / elapsedNanos, latency.percentile(0.5) / 1e6,
+                    latency.percentile(0.99) / 1e6, server.getThrottled(), server.getFailed()));
+            assertEquals(lookups / 2 + lookups % 2, recognised);
+            assertTrue(server.getReportRequests() >= lookups);
+        }
+    }
+}
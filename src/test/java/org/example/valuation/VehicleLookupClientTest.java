@@ -0,0 +1,62 @@
+package org.example.valuation;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the HTTP lookup engine against a local stub of the car checking site.
+ */
+public class VehicleLookupClientTest {
+
+    private static CarCheckingStubServer server;
+    private static VehicleLookupClient client;
+
+    /**
+     * Starts the stub site, which knows one registration number.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    @BeforeAll
+    public static void startStubServer() throws IOException {
+        server = new CarCheckingStubServer(Map.of("AD58VNF", LookupResult.found("AD58VNF", "BMW", "120D M SPORT", "2008")),
+                CarCheckingStubServer.Profile.IDEAL);
+        client = new VehicleLookupClient(URI.create(server.getBaseUrl()));
+    }
+
+    /**
+     * Stops the stub site.
+     */
+    @AfterAll
+    public static void stopStubServer() {
+        server.close();
+    }
+
+    /**
+     * Tests that a report page is parsed into the same row the Selenium lookup writes.
+     */
+    @Test
+    public void testRecognisedRegistrationNumber() {
+        LookupResult result = client.lookup("AD58 VNF");
+        assertTrue(result.isRecognised());
+        assertEquals("AD58VNF,BMW,120D M SPORT,2008", result.toRow());
+    }
+
+    /**
+     * Tests that an error alert is parsed into a not recognised row for the entered registration number.
+     */
+    @Test
+    public void testUnrecognisedRegistrationNumber() {
+        LookupResult result = client.lookup("AA00");
+        assertFalse(result.isRecognised());
+        assertEquals("AA00,The license plate number is not recognised", result.toRow());
+    }
+}
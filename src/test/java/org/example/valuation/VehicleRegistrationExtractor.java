@@ -3,16 +3,20 @@ package org.example.valuation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.regex.MatchResult;
 
 /**
  * Extracts vehicle registration numbers from input files and categorizes them as valid or invalid.
@@ -21,70 +25,240 @@ public class VehicleRegistrationExtractor {
 
     private static final Logger logger = LogManager.getLogger(VehicleRegistrationExtractor.class);
     private static final Path INPUT_DIR = Paths.get("src/test/resources");
-    private static final String VALID_REGEX = "\\b[A-Z]{2}[0-9]{2} [A-Z]{3}\\b";
-    private static final String INVALID_REGEX = "\\b(?![A-Z]{2}[0-9]{2} [A-Z]{3}\\b)[A-Z0-9]{1,7}\\b";
-    private static final Pattern VALID_PATTERN = Pattern.compile(VALID_REGEX);
-    private static final Pattern INVALID_PATTERN = Pattern.compile(INVALID_REGEX);
     private static final Path OUTPUT_FILE = Paths.get("src/test/resources/cleaned_test_data.txt");
+    static final String HEADER = "VARIANT_REG,STATUS";
+    static final String VALID_STATUS = "VALID";
 
     /**
      * Extracts and writes registration numbers to the output file.
      */
     public static void extractAndWriteRegistrationNumbers() {
-        try {
-            List<String> validRegistrationNumbers = extractRegistrationNumbers(VALID_PATTERN);
-            List<String> invalidRegistrationNumbers = extractRegistrationNumbers(INVALID_PATTERN)
-                    .stream()
-                    .filter(reg -> !validRegistrationNumbers.contains(reg))
-                    .collect(Collectors.toList());
+        extractAndWriteRegistrationNumbers(INPUT_DIR, OUTPUT_FILE);
+    }
 
-            List<String> allRegistrationNumbers = Stream.concat(
-                    Stream.of("VARIANT_REG,STATUS"), // Add the header
-                    Stream.concat(
-                            validRegistrationNumbers.stream().map(reg -> reg + ",VALID"),
-                            invalidRegistrationNumbers.stream().map(reg -> reg + ",The license plate number is not recognised")
-                    )
-            ).collect(Collectors.toList());
+    /**
+     * Extracts registration numbers from the default input directory to the default output file,
+     * reporting each distinct one to a listener as soon as it is found.
+     *
+     * @param listener receives each distinct registration number
+     * @return the number of valid registration numbers written
+     * @throws IOException if an input file cannot be read or the output cannot be written
+     */
+    static long extractAndWriteRegistrationNumbers(RegistrationListener listener) throws IOException {
+        return extractAndWriteRegistrationNumbers(INPUT_DIR, OUTPUT_FILE, listener);
+    }
 
-            Files.write(OUTPUT_FILE, allRegistrationNumbers);
-            logger.info("Successfully wrote registration numbers to output file");
+    /**
+     * Extracts registration numbers from the input files of a directory in a single streaming pass and writes them to the output file.
+     * Valid registration numbers are written as they are found; invalid ones are spooled to a temporary file and appended
+     * after them, so memory use depends only on the number of distinct registration numbers.
+     *
+     * @param inputDir   the directory holding the {@code *_input*.txt} files
+     * @param outputFile the file to write the cleaned test data to
+     */
+    static void extractAndWriteRegistrationNumbers(Path inputDir, Path outputFile) {
+        try {
+            extractAndWriteRegistrationNumbers(inputDir, outputFile, null);
         } catch (IOException e) {
             logger.error("Error processing files", e);
         }
     }
 
     /**
-     * Extracts registration numbers from input files based on the provided pattern.
+     * Extracts registration numbers like {@link #extractAndWriteRegistrationNumbers(Path, Path)}, reporting each distinct
+     * one to a listener as soon as it is found, so that work on it can start before the extraction finishes.
      *
-     * @param pattern the pattern to match registration numbers
-     * @return a list of matched registration numbers
-     * @throws IOException if an I/O error occurs
+     * @param inputDir   the directory holding the {@code *_input*.txt} files
+     * @param outputFile the file to write the cleaned test data to
+     * @param listener   receives each distinct registration number, or null
+     * @return the number of valid registration numbers written, which is also the position of the first invalid one
+     * @throws IOException if an input file cannot be read or the output cannot be written
      */
-    private static List<String> extractRegistrationNumbers(Pattern pattern) throws IOException {
-        return Files.list(INPUT_DIR)
-                .filter(Files::isRegularFile)
-                .filter(path -> path.toString().endsWith(".txt"))
-                .filter(path -> path.getFileName().toString().contains("_input")) // Filter for files with "_input" in the name
-                .flatMap(VehicleRegistrationExtractor::linesFromFile)
-                .flatMap(line -> {
-                    Matcher matcher = pattern.matcher(line);
-                    return matcher.results().map(MatchResult::group);
-                })
-                .collect(Collectors.toList());
+    static long extractAndWriteRegistrationNumbers(Path inputDir, Path outputFile, RegistrationListener listener)
+            throws IOException {
+        RegistrationClassifier classifier;
+        Path invalidSpool = Files.createTempFile("invalid-registrations", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            try (BufferedWriter spool = Files.newBufferedWriter(invalidSpool, StandardCharsets.UTF_8)) {
+                classifier = new RegistrationClassifier(writer, spool, listener);
+                for (Path inputFile : listInputFiles(inputDir)) {
+                    try (BufferedReader reader = Files.newBufferedReader(inputFile, StandardCharsets.UTF_8)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            classifier.classify(line);
+                        }
+                    }
+                }
+            }
+            try (BufferedReader spooled = Files.newBufferedReader(invalidSpool, StandardCharsets.UTF_8)) {
+                spooled.transferTo(writer);
+            }
+        } finally {
+            Files.deleteIfExists(invalidSpool);
+        }
+        logger.info("Successfully wrote registration numbers to output file");
+        return classifier.validRegistrationNumbers.size();
     }
 
     /**
-     * Reads lines from a file.
+     * Extracts registration numbers from the default input directory to the default output file through an
+     * extraction index, like {@link #extractIncrementally(Path, Path, Path, RegistrationListener)}.
      *
-     * @param path the path to the file
-     * @return a stream of lines from the file
+     * @param indexFile the extraction index file
+     * @param listener  receives each distinct registration number, or null
+     * @return the cleaned test data
+     * @throws IOException if an input file cannot be read or the output cannot be written
      */
-    private static Stream<String> linesFromFile(Path path) {
-        try {
-            return Files.lines(path);
-        } catch (IOException e) {
-            logger.error("Error reading file: " + path, e);
-            throw new RuntimeException("Error reading file: " + path, e);
+    static CleanedTestData extractIncrementally(Path indexFile, RegistrationListener listener) throws IOException {
+        return extractIncrementally(INPUT_DIR, OUTPUT_FILE, indexFile, listener);
+    }
+
+    /**
+     * Extracts registration numbers through an {@link ExtractionIndex}: only input files that are new or changed since
+     * the index was saved are scanned, and the cleaned test data is only rewritten if it changed. The output is the same
+     * as {@link #extractAndWriteRegistrationNumbers(Path, Path, RegistrationListener)} writes, and is also returned,
+     * so callers can use it without reading the file back.
+     *
+     * @param inputDir   the directory holding the {@code *_input*.txt} files
+     * @param outputFile the file to write the cleaned test data to
+     * @param indexFile  the extraction index file
+     * @param listener   receives each distinct registration number, or null
+     * @return the cleaned test data
+     * @throws IOException if an input file cannot be read or the output cannot be written
+     */
+    static CleanedTestData extractIncrementally(Path inputDir, Path outputFile, Path indexFile, RegistrationListener listener)
+            throws IOException {
+        List<Path> inputFiles = listInputFiles(inputDir);
+        ExtractionIndex index = ExtractionIndex.load(indexFile);
+        int scanned = index.refresh(inputFiles);
+        CleanedTestData data = index.merge(inputFiles, listener);
+        boolean written = index.writeSnapshot(data, outputFile);
+        index.save();
+        logger.info("Scanned " + scanned + " of " + inputFiles.size() + " input files; cleaned test data "
+                + (written ? "written" : "unchanged"));
+        return data;
+    }
+
+    /**
+     * Lists the input files of a directory: {@code .txt} files with "_input" in the name, sorted by name.
+     *
+     * @param inputDir the directory to list
+     * @return the input files
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> listInputFiles(Path inputDir) throws IOException {
+        try (Stream<Path> paths = Files.list(inputDir)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> path.toString().endsWith(".txt"))
+                    .filter(path -> path.getFileName().toString().contains("_input")) // Filter for files with "_input" in the name
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Scans text for registration numbers, reporting each occurrence in text order.
+     * Only the current format written with its space counts as valid, and is reported in its canonical form without
+     * the space, as {@link Registrations#canonical(String)} gives it; the letters after its space also stand alone as
+     * an invalid candidate. Older formats written with a space are reported as their two halves, and every other
+     * candidate as it appears.
+     * Tokens never span a line break, so any text that ends on a line boundary can be scanned on its own.
+     *
+     * @param text    the text to scan
+     * @param valid   receives valid registration numbers
+     * @param invalid receives invalid registration numbers
+     */
+    static void scan(CharSequence text, Consumer<String> valid, Consumer<String> invalid) {
+        RegistrationTokenizer.tokenize(text, (source, start, space, end, format) -> {
+            if (space < 0) {
+                invalid.accept(source.subSequence(start, end).toString());
+                return;
+            }
+            if (format == PlateFormat.CURRENT) {
+                valid.accept(new StringBuilder(end - start - 1)
+                        .append(source, start, space).append(source, space + 1, end).toString());
+            } else {
+                invalid.accept(source.subSequence(start, space).toString());
+            }
+            invalid.accept(source.subSequence(space + 1, end).toString());
+        });
+    }
+
+    /**
+     * Receives distinct registration numbers as the extractor finds them.
+     */
+    interface RegistrationListener {
+
+        /**
+         * Called for each distinct valid registration number.
+         *
+         * @param index              the position of the registration number among the valid ones, from 0
+         * @param registrationNumber the registration number
+         */
+        void onValid(long index, String registrationNumber);
+
+        /**
+         * Called for each distinct invalid registration number. Invalid registration numbers are written after all
+         * valid ones, so their position in the cleaned test data is only known once the extraction has finished.
+         *
+         * @param index              the position of the registration number among the invalid ones, from 0
+         * @param registrationNumber the registration number
+         */
+        void onInvalid(long index, String registrationNumber);
+    }
+
+    /**
+     * Classifies the tokens of each line as valid or invalid registration numbers and writes each distinct one once.
+     */
+    private static final class RegistrationClassifier {
+        private final BufferedWriter validWriter;
+        private final BufferedWriter invalidWriter;
+        private final Set<String> validRegistrationNumbers = new HashSet<>();
+        private final Set<String> invalidRegistrationNumbers = new HashSet<>();
+        private final RegistrationListener listener;
+
+        private RegistrationClassifier(BufferedWriter validWriter, BufferedWriter invalidWriter, RegistrationListener listener) {
+            this.validWriter = validWriter;
+            this.invalidWriter = invalidWriter;
+            this.listener = listener;
+        }
+
+        private void classify(String line) throws IOException {
+            try {
+                scan(line, this::writeValid, this::writeInvalid);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void writeValid(String registrationNumber) {
+            if (validRegistrationNumbers.add(registrationNumber)) {
+                writeRow(validWriter, registrationNumber, VALID_STATUS);
+                if (listener != null) {
+                    listener.onValid(validRegistrationNumbers.size() - 1, registrationNumber);
+                }
+            }
+        }
+
+        private void writeInvalid(String registrationNumber) {
+            if (invalidRegistrationNumbers.add(registrationNumber)) {
+                writeRow(invalidWriter, registrationNumber, LookupResult.NOT_RECOGNISED_MESSAGE);
+                if (listener != null) {
+                    listener.onInvalid(invalidRegistrationNumbers.size() - 1, registrationNumber);
+                }
+            }
+        }
+
+        private static void writeRow(BufferedWriter writer, String registrationNumber, String status) {
+            try {
+                writer.write(registrationNumber + "," + status);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
     }
-}
\ No newline at end of file
+}